@@ -0,0 +1,39 @@
+package net.povstalec.stellarview.benchmark;
+
+import com.electronwill.nightconfig.core.CommentedConfig;
+import net.neoforged.neoforge.common.ModConfigSpec;
+import net.neoforged.fml.config.IConfigSpec;
+import net.povstalec.stellarview.common.config.StellarViewConfig;
+
+/**
+ * Benchmarks run outside of the game, so nothing loads the config for them.
+ * This loads the default values into an in-memory config, which is enough for the code that reads them
+ */
+public final class BenchmarkConfig
+{
+	private static boolean loaded = false;
+	
+	public static synchronized void load()
+	{
+		if(loaded)
+			return;
+		
+		ModConfigSpec spec = StellarViewConfig.CLIENT_CONFIG;
+		CommentedConfig config = CommentedConfig.inMemory();
+		spec.correct(config); // Fills the empty config with the default values
+		
+		spec.acceptConfig(new IConfigSpec.ILoadedConfig()
+		{
+			@Override
+			public CommentedConfig config()
+			{
+				return config;
+			}
+			
+			@Override
+			public void save() {}
+		});
+		
+		loaded = true;
+	}
+}
@@ -0,0 +1,99 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.client.render.BufferResidency;
+
+/**
+ * Residency bookkeeping of a frame in which the camera sweeps across far more Star Field LODs than fit into the default budget.
+ * No GL context exists outside of the game, so LODs only pretend to own a buffer and releasing one just forgets about it
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferResidencyBenchmark
+{
+	private static final int LODS = 4096;
+	private static final int VISIBLE_LODS = 256;
+	private static final int LODS_PASSED_PER_FRAME = 8;
+	private static final long BYTES_PER_LOD = 1024L * 1024L; // The default budget fits 512 of them
+	
+	private FakeLOD[] lods;
+	private int firstVisible = 0;
+	
+	/**
+	 * Stands in for a Star or Dust Cloud LOD, tracking and untracking its buffer the same way they do
+	 */
+	private static final class FakeLOD
+	{
+		private final BufferResidency.Handle residency = new BufferResidency.Handle();
+		
+		public void upload()
+		{
+			BufferResidency.track(residency, BYTES_PER_LOD, this::reset);
+		}
+		
+		public void reset()
+		{
+			BufferResidency.untrack(residency);
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		BufferResidency.releaseAll();
+		
+		lods = new FakeLOD[LODS];
+		for(int i = 0; i < LODS; i++)
+		{
+			lods[i] = new FakeLOD();
+		}
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		BufferResidency.releaseAll();
+	}
+	
+	@Benchmark
+	public long frame()
+	{
+		BufferResidency.beginFrame();
+		
+		for(int i = 0; i < VISIBLE_LODS; i++)
+		{
+			FakeLOD lod = lods[(firstVisible + i) % LODS];
+			
+			if(lod.residency.isResident())
+				BufferResidency.drawn(lod.residency);
+			else
+				lod.upload();
+		}
+		
+		firstVisible = (firstVisible + LODS_PASSED_PER_FRAME) % LODS;
+		
+		if(BufferResidency.liveBytes() > BufferResidency.budget() + VISIBLE_LODS * BYTES_PER_LOD)
+			throw new IllegalStateException(BufferResidency.liveBytes() + " bytes are resident, which is more than the budget allows");
+		
+		return BufferResidency.liveBytes();
+	}
+}
@@ -0,0 +1,98 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.client.render.LightingContext;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.util.AxisRotation;
+
+/**
+ * Lighting of a frame with 200 textured objects, once recomputed for every Texture Layer the way it used to be and once read from the frame's Lighting Context.
+ * There's no level outside of the game, so the values it would provide are fixed, which leaves its queries out of both
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LightingBenchmark
+{
+	private static final int OBJECTS = 200;
+	private static final int LAYERS_PER_OBJECT = 3;
+	
+	private static final float LEVEL_STAR_BRIGHTNESS = 0.35F;
+	private static final float STAR_DIMMING = 1.6F;
+	private static final float DUST_CLOUD_DIMMING = 1.2F;
+	private static final float RAIN_DIMMING = 0.8F;
+	
+	private ViewCenter viewCenter;
+	private LightingContext lighting;
+	private float[] sizes;
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		// Neither horizon nor void are created, so the View Center can exist without a render thread
+		viewCenter = new ViewCenter(Optional.empty(), Optional.empty(), new AxisRotation(),
+				0, ViewCenter.DayBlending.DAY_BLENDING, ViewCenter.DayBlending.SUN_DAY_BLENDING,
+				Optional.empty(), Optional.empty(),
+				false, false,
+				false, false, false, 30000000);
+		lighting = new LightingContext();
+		
+		Random random = new Random(0);
+		sizes = new float[OBJECTS * LAYERS_PER_OBJECT];
+		for(int i = 0; i < sizes.length; i++)
+		{
+			sizes[i] = random.nextFloat() * 40F;
+		}
+	}
+	
+	private void update()
+	{
+		lighting.set(viewCenter, LEVEL_STAR_BRIGHTNESS, STAR_DIMMING, DUST_CLOUD_DIMMING, RAIN_DIMMING, false);
+	}
+	
+	@Benchmark
+	public float perLayer()
+	{
+		float sum = 0;
+		for(int i = 0; i < sizes.length; i++)
+		{
+			update();
+			sum += lighting.dayBrightness(sizes[i]);
+		}
+		
+		return sum;
+	}
+	
+	@Benchmark
+	public float frameContext()
+	{
+		update();
+		
+		float sum = 0;
+		for(int i = 0; i < sizes.length; i++)
+		{
+			sum += lighting.dayBrightness(sizes[i]);
+		}
+		
+		return sum;
+	}
+}
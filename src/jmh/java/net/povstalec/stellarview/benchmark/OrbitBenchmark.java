@@ -0,0 +1,68 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.api.common.space_objects.OrbitingObject;
+
+/**
+ * Orbit positions are recalculated for every orbiting object each frame
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrbitBenchmark
+{
+	private OrbitingObject.OrbitInfo orbitInfo;
+	
+	private long ticks;
+	private double meanAnomaly;
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		// Roughly the orbit of Mars, with a period of 30 Minecraft days
+		orbitInfo = new OrbitingObject.OrbitInfo(249261000F, 206650000F, 0,
+				new OrbitingObject.OrbitalPeriod(720000, 1, false),
+				286.5F,
+				1.85F, 49.57F,
+				19.41F);
+	}
+	
+	@Benchmark
+	public Vector3f getOrbitVector()
+	{
+		ticks += 7;
+		return orbitInfo.getOrbitVector(ticks, 0.5F);
+	}
+	
+	@Benchmark
+	public Vector3f getClampedOrbitVector()
+	{
+		ticks += 7;
+		return orbitInfo.getOrbitVector(ticks, 0.5F, 1E12);
+	}
+	
+	@Benchmark
+	public double approximateEccentricAnomaly()
+	{
+		meanAnomaly += 0.001;
+		return OrbitingObject.OrbitInfo.approximateEccentricAnomaly(orbitInfo.eccentricity(), meanAnomaly, 4);
+	}
+}
@@ -0,0 +1,126 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.api.common.space_objects.OrbitingObject;
+import net.povstalec.stellarview.client.render.OrbitEngine;
+
+/**
+ * A frame of a system with lots of moons, where every orbit position is asked for a few times,
+ * once evaluated separately for every call and once through the Orbit Engine
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrbitEngineBenchmark
+{
+	private static final int CALLS_PER_FRAME = 3;
+	private static final double TOLERANCE = 1E-4; // Relative to the size of the orbit
+	
+	@Param({"100", "500"})
+	public int moons;
+	
+	private OrbitingObject.OrbitInfo[] orbits;
+	private int[] ids;
+	private long ticks;
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		Random random = new Random(0);
+		
+		orbits = new OrbitingObject.OrbitInfo[moons];
+		ids = new int[moons];
+		
+		OrbitEngine.clear();
+		for(int i = 0; i < moons; i++)
+		{
+			float periapsis = 1000F + random.nextFloat() * 100000F;
+			float apoapsis = periapsis * (1 + random.nextFloat() * 2);
+			
+			orbits[i] = new OrbitingObject.OrbitInfo(apoapsis, periapsis, 0,
+					new OrbitingObject.OrbitalPeriod(1000 + random.nextInt(1000000), 1, false),
+					random.nextFloat() * 360,
+					random.nextFloat() * 30, random.nextFloat() * 360,
+					random.nextFloat() * 360);
+			ids[i] = OrbitEngine.register(orbits[i], -1);
+		}
+		
+		verify();
+	}
+	
+	/**
+	 * Makes sure the batched solver ends up with the same positions as the regular one
+	 */
+	private void verify()
+	{
+		Vector3f engineVector = new Vector3f();
+		
+		for(long verifiedTicks = 0; verifiedTicks < 2000000; verifiedTicks += 99991)
+		{
+			for(int i = 0; i < moons; i++)
+			{
+				Vector3f orbitVector = orbits[i].getOrbitVector(verifiedTicks, 0.25F);
+				OrbitEngine.getOrbitVector(ids[i], verifiedTicks, 0.25F, engineVector);
+				
+				double difference = orbitVector.distance(engineVector) / orbits[i].apoapsis();
+				if(difference > TOLERANCE)
+					throw new IllegalStateException("Orbit " + i + " differs by " + difference + " at tick " + verifiedTicks + ": " + orbitVector + " vs " + engineVector);
+			}
+		}
+	}
+	
+	@Benchmark
+	public float perCall()
+	{
+		ticks++;
+		
+		float sum = 0;
+		for(int call = 0; call < CALLS_PER_FRAME; call++)
+		{
+			for(int i = 0; i < moons; i++)
+			{
+				sum += orbits[i].getOrbitVector(ticks, 0.5F).x;
+			}
+		}
+		
+		return sum;
+	}
+	
+	@Benchmark
+	public float orbitEngine()
+	{
+		ticks++;
+		
+		Vector3f orbitVector = new Vector3f();
+		float sum = 0;
+		for(int call = 0; call < CALLS_PER_FRAME; call++)
+		{
+			for(int i = 0; i < moons; i++)
+			{
+				sum += OrbitEngine.getOrbitVector(ids[i], ticks, 0.5F, orbitVector).x;
+			}
+		}
+		
+		return sum;
+	}
+}
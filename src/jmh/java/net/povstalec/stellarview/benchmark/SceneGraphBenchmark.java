@@ -0,0 +1,112 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mojang.datafixers.util.Either;
+
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.api.common.space_objects.TexturedObject;
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.Planet;
+import net.povstalec.stellarview.client.render.SceneGraphBuilder;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.resourcepack.PlanetRenderer;
+import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+
+/**
+ * Links a large synthetic universe to its parents, once by searching all objects for every parent the way reloading used to
+ * and once through the Scene Graph Builder.
+ * Every object orbits one that was created before it, so the graph is a forest without cycles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SceneGraphBenchmark
+{
+	private static final int ROOT_FRACTION = 50; // One in this many objects has no parent
+	
+	@Param({"5000", "50000"})
+	public int objects;
+	
+	private HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects;
+	
+	@Setup(Level.Invocation)
+	public void setup()
+	{
+		Random random = new Random(0);
+		
+		ResourceLocation[] locations = new ResourceLocation[objects];
+		spaceObjects = new HashMap<ResourceLocation, SpaceObjectRenderer<?>>();
+		
+		for(int i = 0; i < objects; i++)
+		{
+			locations[i] = ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "planet/benchmark/object_" + i);
+			
+			Optional<ResourceLocation> parent = i == 0 || i % ROOT_FRACTION == 0 ? Optional.empty() : Optional.of(locations[random.nextInt(i)]);
+			Planet planet = new Planet(parent, Either.left(new SpaceCoords(random.nextInt(1000), random.nextInt(1000), random.nextInt(1000))), new AxisRotation(),
+					Optional.empty(), List.of(), TexturedObject.FadeOutHandler.DEFAULT_PLANET_HANDLER);
+			
+			spaceObjects.put(locations[i], new PlanetRenderer<Planet>(planet));
+		}
+	}
+	
+	@Benchmark
+	public int sceneGraph()
+	{
+		SceneGraphBuilder sceneGraph = new SceneGraphBuilder(spaceObjects).build();
+		
+		if(sceneGraph.linked() + sceneGraph.roots().size() != objects)
+			throw new IllegalStateException("Only " + sceneGraph.linked() + " of " + objects + " objects were linked");
+		
+		return sceneGraph.roots().size();
+	}
+	
+	@Benchmark
+	public int linearScan()
+	{
+		int roots = 0;
+		
+		for(Map.Entry<ResourceLocation, SpaceObjectRenderer<?>> spaceObjectEntry : spaceObjects.entrySet())
+		{
+			SpaceObjectRenderer<?> spaceObject = spaceObjectEntry.getValue();
+			
+			if(spaceObject.renderedObject().getParentLocation().isPresent())
+			{
+				for(Map.Entry<ResourceLocation, SpaceObjectRenderer<?>> parentEntry : spaceObjects.entrySet())
+				{
+					if(parentEntry.getKey().equals(spaceObject.renderedObject().getParentLocation().get()))
+					{
+						parentEntry.getValue().addChild(spaceObject);
+						break;
+					}
+				}
+			}
+			else
+				roots++;
+		}
+		
+		return roots;
+	}
+}
@@ -0,0 +1,155 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.MutableSpaceCoords;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import net.povstalec.stellarview.common.util.SphericalCoords;
+
+/**
+ * Space Coords are added, subtracted and projected onto the sky for every object each frame.
+ * The sky traversal benchmarks go through the same math for a whole system, the mutable one shouldn't allocate anything
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpaceCoordsBenchmark
+{
+	private static final int OBJECTS = 256;
+	
+	private SpaceCoords coords;
+	private SpaceCoords other;
+	private Vector3f vector;
+	private ViewCenter viewCenter;
+	
+	private SpaceCoords[] objectCoords;
+	private Vector3f[] objectOffsets;
+	
+	private final MutableSpaceCoords mutableCoords = new MutableSpaceCoords();
+	private final Vector3d skyPosition = new Vector3d();
+	private final SphericalCoords sphericalCoords = new SphericalCoords();
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		coords = new SpaceCoords(12L, -3L, 27L, 1.5E8, -2.5E7, 3.0E6);
+		other = new SpaceCoords(-8L, 4L, 11L, 7.5E7, 1.2E8, -4.0E6);
+		vector = new Vector3f(1.5E8F, -2.0E7F, 3.3E6F);
+		
+		// Neither horizon nor void are created, so the View Center can exist without a render thread
+		viewCenter = new ViewCenter(Optional.empty(), Optional.empty(), new AxisRotation(),
+				0, ViewCenter.DayBlending.DAY_BLENDING, ViewCenter.DayBlending.SUN_DAY_BLENDING,
+				Optional.empty(), Optional.empty(),
+				false, false,
+				false, false, false, 30000000)
+		{
+			{
+				setCoords(other);
+			}
+		};
+		
+		objectCoords = new SpaceCoords[OBJECTS];
+		objectOffsets = new Vector3f[OBJECTS];
+		for(int i = 0; i < OBJECTS; i++)
+		{
+			objectCoords[i] = new SpaceCoords(i % 7 - 3L, i % 5 - 2L, i % 3 - 1L, i * 1.0E9, -i * 3.0E8, i * 7.0E7);
+			objectOffsets[i] = new Vector3f(i * 1.0E6F, i * -2.0E5F, i * 3.0E5F);
+		}
+	}
+	
+	@Benchmark
+	public SpaceCoords add()
+	{
+		return coords.add(other);
+	}
+	
+	@Benchmark
+	public SpaceCoords addVector()
+	{
+		return coords.add(vector);
+	}
+	
+	@Benchmark
+	public SpaceCoords sub()
+	{
+		return coords.sub(other);
+	}
+	
+	@Benchmark
+	public SpaceCoords subVector()
+	{
+		return coords.sub(vector);
+	}
+	
+	@Benchmark
+	public SphericalCoords skyPosition()
+	{
+		// Adjusting for rotation needs a level, the rest of the projection is the same
+		return coords.skyPosition(null, viewCenter, 0.5F, false);
+	}
+	
+	@Benchmark
+	public MutableSpaceCoords mutableAdd()
+	{
+		return mutableCoords.set(coords).add(other);
+	}
+	
+	@Benchmark
+	public MutableSpaceCoords mutableSub()
+	{
+		return mutableCoords.set(coords).sub(vector);
+	}
+	
+	@Benchmark
+	public Vector3d mutableSkyPosition()
+	{
+		return mutableCoords.set(coords).skyPosition(viewCenter, false, skyPosition);
+	}
+	
+	@Benchmark
+	public double skyTraversal()
+	{
+		double distance = 0;
+		for(int i = 0; i < OBJECTS; i++)
+		{
+			SphericalCoords position = objectCoords[i].add(objectOffsets[i]).skyPosition(null, viewCenter, 0.5F, false);
+			distance += position.r;
+		}
+		
+		return distance;
+	}
+	
+	@Benchmark
+	public double mutableSkyTraversal()
+	{
+		double distance = 0;
+		for(int i = 0; i < OBJECTS; i++)
+		{
+			mutableCoords.set(objectCoords[i]).add(objectOffsets[i]).skyPosition(viewCenter, false, skyPosition);
+			distance += sphericalCoords.set(skyPosition).r;
+		}
+		
+		return distance;
+	}
+}
@@ -0,0 +1,134 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mojang.blaze3d.vertex.MeshData;
+
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.client.render.SpriteBatcher;
+import net.povstalec.stellarview.common.util.AtlasSprite;
+import net.povstalec.stellarview.common.util.UV;
+
+/**
+ * Test scene of a Star Field full of Stars followed by a planet with a moon, queued in the same back-to-front order the renderers use.
+ * Before batching every Texture Layer took a draw call of its own, the number of draws with and without the batcher is printed during setup.
+ * With the atlas, all the textures are sprites on the same Celestial Atlas page
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteBatchBenchmark
+{
+	private static final ResourceLocation STAR = texture("star.png");
+	private static final ResourceLocation HALO = texture("white_halo.png");
+	private static final ResourceLocation PLANET = texture("moon.png");
+	private static final ResourceLocation PHASES = texture("phases_overlay.png");
+	private static final ResourceLocation MOON = texture("moon_phases.png");
+	private static final ResourceLocation MOON_HALO = texture("moon_halo_phases.png");
+	private static final ResourceLocation ATLAS_PAGE = ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "celestial_atlas/page_0");
+	
+	@Param({"200", "2000"})
+	public int stars;
+	
+	@Param({"false", "true"})
+	public boolean atlas;
+	
+	private AtlasSprite star;
+	private AtlasSprite halo;
+	private AtlasSprite planet;
+	private AtlasSprite phases;
+	private AtlasSprite moon;
+	private AtlasSprite moonHalo;
+	
+	private final Matrix4f pose = new Matrix4f();
+	private final Vector3f corner00 = new Vector3f(1, 100, 1);
+	private final Vector3f corner10 = new Vector3f(-1, 100, 1);
+	private final Vector3f corner11 = new Vector3f(-1, 100, -1);
+	private final Vector3f corner01 = new Vector3f(1, 100, -1);
+	
+	private static ResourceLocation texture(String path)
+	{
+		return ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "textures/environment/" + path);
+	}
+	
+	private AtlasSprite sprite(ResourceLocation texture, int index)
+	{
+		if(!atlas)
+			return AtlasSprite.whole(texture);
+		
+		return new AtlasSprite(ATLAS_PAGE, index / 8F, 0, (index + 1) / 8F, 1);
+	}
+	
+	@Setup
+	public void setup()
+	{
+		star = sprite(STAR, 0);
+		halo = sprite(HALO, 1);
+		planet = sprite(PLANET, 2);
+		phases = sprite(PHASES, 3);
+		moon = sprite(MOON, 4);
+		moonHalo = sprite(MOON_HALO, 5);
+		
+		SpriteBatcher.discard();
+		
+		int quads = queueScene();
+		try(MeshData mesh = SpriteBatcher.build())
+		{
+			System.out.println("Sprite batch test scene with " + stars + " Stars" + (atlas ? " on the atlas" : "") + ": " + quads + " draws unbatched, " + SpriteBatcher.runs() + " draws batched");
+		}
+	}
+	
+	/**
+	 * @return Number of quads queued
+	 */
+	private int queueScene()
+	{
+		for(int i = 0; i < stars; i++)
+		{
+			queue(star, true);
+			queue(halo, true);
+		}
+		
+		queue(planet, false);
+		queue(phases, false);
+		queue(halo, true);
+		
+		queue(moon, false);
+		queue(moonHalo, true);
+		
+		return SpriteBatcher.queued();
+	}
+	
+	private void queue(AtlasSprite sprite, boolean additive)
+	{
+		SpriteBatcher.queue(sprite, additive, pose, corner00, corner10, corner11, corner01, UV.Quad.DEFAULT_QUAD_UV, 0, 1, 1, 1, 0.5F);
+	}
+	
+	@Benchmark
+	public int buildBatch()
+	{
+		queueScene();
+		try(MeshData mesh = SpriteBatcher.build())
+		{
+			return SpriteBatcher.runs();
+		}
+	}
+}
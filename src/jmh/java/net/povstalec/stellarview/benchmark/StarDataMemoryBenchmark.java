@@ -0,0 +1,135 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.api.common.space_objects.StarLike;
+import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.common.util.Color;
+import net.povstalec.stellarview.common.util.StarInfo;
+
+/**
+ * Fills a LOD of 30000 Stars once with the flat arrays Star Data uses and once with the arrays per Star it used to keep.
+ * Each operation is a single Star, so the gc.alloc.rate.norm reported by the GC profiler is the number of bytes each layout needs per Star.
+ * Nothing the flat layout allocates becomes garbage, so that's also what it keeps on the heap,
+ * the old layout replaced the color array its constructor allocated for every Star, which accounts for 24 of its bytes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StarDataMemoryBenchmark
+{
+	public static final int STARS = 30000;
+	
+	private StarLike.StarType[] starTypes;
+	private double[][] coords;
+	private Random random;
+	
+	@Setup
+	public void setup()
+	{
+		StarInfo starInfo = StarInfoBenchmark.starInfo();
+		Random setupRandom = new Random(StarGenerationBenchmark.SEED);
+		
+		starTypes = new StarLike.StarType[STARS];
+		coords = new double[STARS][];
+		for(int i = 0; i < STARS; i++)
+		{
+			starTypes[i] = starInfo.randomLOD3StarType(setupRandom);
+			coords[i] = new double[] {setupRandom.nextGaussian() * 100, setupRandom.nextGaussian() * 100, setupRandom.nextGaussian() * 100};
+		}
+		
+		random = new Random(0);
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(STARS)
+	public StarData.LOD flatArrays()
+	{
+		random.setSeed(0);
+		
+		StarData.LOD lod = new StarData.LOD(STARS);
+		for(int i = 0; i < STARS; i++)
+		{
+			lod.newStar(starTypes[i], random, coords[i][0], coords[i][1], coords[i][2]);
+		}
+		
+		return lod;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(STARS)
+	public ObjectPerStarLOD objectPerStar()
+	{
+		random.setSeed(0);
+		
+		ObjectPerStarLOD lod = new ObjectPerStarLOD(STARS);
+		for(int i = 0; i < STARS; i++)
+		{
+			lod.newStar(starTypes[i], random, coords[i][0], coords[i][1], coords[i][2]);
+		}
+		
+		return lod;
+	}
+	
+	/**
+	 * The way Star Data stored its Stars before it switched to flat arrays, with arrays for the position, color and rotation of every Star
+	 */
+	public static class ObjectPerStarLOD
+	{
+		private double[][] starCoords;
+		private double[] starSizes;
+		
+		private short[][] starRGBA;
+		
+		private double[][] randoms;
+		
+		private int stars;
+		
+		public ObjectPerStarLOD(int stars)
+		{
+			this.starCoords = new double[stars][3];
+			this.starSizes = new double[stars];
+			this.randoms = new double[stars][2];
+			
+			this.starRGBA = new short[stars][4];
+			
+			this.stars = 0;
+		}
+		
+		public void newStar(StarLike.StarType starType, Random random, double x, double y, double z)
+		{
+			starCoords[stars][0] = x;
+			starCoords[stars][1] = y;
+			starCoords[stars][2] = z;
+			
+			short alpha = starType.randomBrightness(random);
+			Color.IntRGB rgb = starType.getRGB();
+			
+			starSizes[stars] = starType.randomSize(random);
+			
+			starRGBA[stars] = new short[] {(short) rgb.red(), (short) rgb.green(), (short) rgb.blue(), alpha};
+			
+			double randomValue = random.nextDouble() * Math.PI * 2.0D;
+			randoms[stars][0] = Math.sin(randomValue);
+			randoms[stars][1] = Math.cos(randomValue);
+			
+			stars++;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.client.render.DrawBatch;
+
+/**
+ * Test scene of 100 Star Fields drawn in a row, the way the Space Renderer draws the Star Fields of the regions in range.
+ * Every twentieth Star Field is textured and uses the other star shader, and something else is drawn in between every so often, which ends the batch.
+ * Draws go to fake buffers and shaders that only count what's done with them, so the scene runs through the same Draw Batch as Star Draw Batch without any GL.
+ * Every Star Field keeps its own buffer and draw, batching only saves shader setups. DrawBatchTest checks how many the scene takes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StarDrawBatchBenchmark
+{
+	public static final int STAR_FIELDS = 100;
+	
+	// Star Fields drawn before something else is drawn, 0 if nothing else is
+	@Param({"0", "10"})
+	public int interruptEvery;
+	
+	private final FakeShader shader = new FakeShader();
+	private final FakeShader texturedShader = new FakeShader();
+	private final FakeBuffer[] buffers = new FakeBuffer[STAR_FIELDS];
+	
+	private DrawBatch<FakeShader> batch;
+	
+	@Setup
+	public void setup()
+	{
+		for(int i = 0; i < STAR_FIELDS; i++)
+		{
+			buffers[i] = new FakeBuffer(i % 20 == 19 ? texturedShader : shader);
+		}
+		
+		batch = new DrawBatch<FakeShader>(FakeShader::clear);
+	}
+	
+	private void drawScene()
+	{
+		for(int i = 0; i < STAR_FIELDS; i++)
+		{
+			FakeBuffer buffer = buffers[i];
+			
+			if(batch.draw(buffer.shader))
+				buffer.shader.setups++;
+			buffer.draw();
+			
+			if(interruptEvery > 0 && i % interruptEvery == interruptEvery - 1)
+				batch.end(); // Sprites or a static sky buffer drawn with another shader
+		}
+		
+		batch.end(); // End of the space pass
+	}
+	
+	@Benchmark
+	public long drawStarFields()
+	{
+		drawScene();
+		return batch.setups();
+	}
+	
+	private static class FakeShader
+	{
+		private int setups = 0;
+		private int clears = 0;
+		
+		private void clear()
+		{
+			clears++;
+		}
+	}
+	
+	private static class FakeBuffer
+	{
+		private final FakeShader shader;
+		private int draws = 0;
+		
+		private FakeBuffer(FakeShader shader)
+		{
+			this.shader = shader;
+		}
+		
+		private void draw()
+		{
+			draws++;
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mojang.datafixers.util.Either;
+
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.client.render.space_objects.resourcepack.StarFieldRenderer;
+import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.client.util.StarGenerator;
+import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import net.povstalec.stellarview.common.util.StarInfo;
+
+/**
+ * Every LOD of every Star Field is generated whenever the resources are reloaded and nothing has been cached yet.
+ * The counter-based generator is run both serially and in parallel, StarGeneratorTest makes sure both produce the exact same Stars
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StarGenerationBenchmark
+{
+	public static final long SEED = 131;
+	
+	@Param({"LOD1", "LOD2", "LOD3"})
+	public StarField.LevelOfDetail levelOfDetail;
+	
+	@Param({"legacy", "serial", "parallel"})
+	public String generator;
+	
+	private BenchmarkStarFieldRenderer renderer;
+	
+	/**
+	 * @return Star Field resembling the Milky Way, with a central bulge and two spiral arms
+	 */
+	public static StarField starField()
+	{
+		List<StarField.SpiralArm> arms = new ArrayList<StarField.SpiralArm>();
+		arms.add(new StarField.SpiralArm(0, Optional.empty(), 10000, 0, 3, 2.5, true));
+		arms.add(new StarField.SpiralArm(0, Optional.empty(), 10000, 180, 3, 2.5, true));
+		
+		return new StarField(Optional.empty(), Either.left(new SpaceCoords()), new AxisRotation(18, 0, 0),
+				0, Optional.empty(), StarField.DEFAULT_DUST_CLOUD_TEXTURE, true, StarField.Stretch.DEFAULT_STRETCH,
+				10000, Optional.empty(), StarField.DEFAULT_STAR_TEXTURE, true, new StarField.Stretch(1, 0.3, 1),
+				SEED, 90000, arms);
+	}
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		renderer = new BenchmarkStarFieldRenderer(starField(), StarInfoBenchmark.starInfo());
+	}
+	
+	private StarGenerator generator()
+	{
+		switch(generator)
+		{
+			case "legacy":
+				return StarGenerator.legacy(SEED);
+			case "serial":
+				return StarGenerator.counter(SEED, false);
+			default:
+				return StarGenerator.counter(SEED, true);
+		}
+	}
+	
+	@Benchmark
+	public StarData.LOD generateStars()
+	{
+		StarData.LOD lod = new StarData.LOD(renderer.fieldStars(levelOfDetail));
+		renderer.generateStars(lod, levelOfDetail, generator());
+		
+		return lod;
+	}
+	
+	@Benchmark
+	public StarData.LOD generateArmStars()
+	{
+		StarData.LOD lod = new StarData.LOD(renderer.armStars(levelOfDetail, 0));
+		renderer.generateArmStars(lod, levelOfDetail, generator(), 0);
+		
+		return lod;
+	}
+	
+	/**
+	 * Exposes the generation of the renderer without setting up the rest of the Space Object
+	 */
+	public static class BenchmarkStarFieldRenderer extends StarFieldRenderer<StarField>
+	{
+		public BenchmarkStarFieldRenderer(StarField starField, StarInfo starInfo)
+		{
+			super(starField);
+			
+			setStarInfo(starInfo);
+			setupLOD(starInfo);
+		}
+		
+		public int fieldStars(StarField.LevelOfDetail levelOfDetail)
+		{
+			switch(levelOfDetail)
+			{
+				case LOD1:
+					return lod1stars;
+				case LOD2:
+					return lod2stars;
+				default:
+					return renderedObject.getStars() - lod1stars - lod2stars;
+			}
+		}
+		
+		public int armStars(StarField.LevelOfDetail levelOfDetail, int armIndex)
+		{
+			switch(levelOfDetail)
+			{
+				case LOD1:
+					return armLod1stars[armIndex];
+				case LOD2:
+					return armLod2stars[armIndex];
+				default:
+					return renderedObject.getSpiralArm(armIndex).armStars() - armLod1stars[armIndex] - armLod2stars[armIndex];
+			}
+		}
+		
+		@Override
+		public void generateStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, StarGenerator generator)
+		{
+			super.generateStars(lod, levelOfDetail, generator);
+		}
+		
+		public void generateArmStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, StarGenerator generator, int armIndex)
+		{
+			double sizeMultiplier = renderedObject.getDiameter() / 30D;
+			
+			generateArmStars(lod, levelOfDetail, renderedObject.getAxisRotation(), getStarInfo(), generator, sizeMultiplier, hasTexture, renderedObject.getSpiralArm(armIndex), armIndex);
+		}
+	}
+}
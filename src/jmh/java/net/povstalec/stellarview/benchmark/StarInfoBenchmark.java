@@ -0,0 +1,74 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.api.common.space_objects.StarLike;
+import net.povstalec.stellarview.common.util.Color;
+import net.povstalec.stellarview.common.util.StarInfo;
+
+/**
+ * A Star Type is picked for every single Star that gets generated
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StarInfoBenchmark
+{
+	private StarInfo starInfo;
+	private Random random;
+	
+	/**
+	 * @return Star Info with a spread of Star Types similar to the ones shipped with the mod
+	 */
+	public static StarInfo starInfo()
+	{
+		return new StarInfo(Arrays.asList(
+				new StarLike.StarType(new Color.IntRGB(255, 204, 111), 0.05F, 0.15F, (short) 60, (short) 180, 2000000, 40),
+				new StarLike.StarType(new Color.IntRGB(255, 210, 161), 0.1F, 0.2F, (short) 80, (short) 200, 4000000, 30),
+				new StarLike.StarType(new Color.IntRGB(255, 244, 234), 0.15F, 0.25F, (short) 100, (short) 220, 6000000, 15),
+				new StarLike.StarType(new Color.IntRGB(248, 247, 255), 0.2F, 0.3F, (short) 150, (short) 235, 8000000, 8),
+				new StarLike.StarType(new Color.IntRGB(202, 215, 255), 0.25F, 0.35F, (short) 200, (short) 255, 12000000, 5),
+				new StarLike.StarType(new Color.IntRGB(170, 191, 255), 0.3F, 0.4F, (short) 225, (short) 255, 16000000, 2)));
+	}
+	
+	@Setup
+	public void setup()
+	{
+		starInfo = starInfo();
+		random = new Random(0);
+	}
+	
+	@Benchmark
+	public StarLike.StarType randomLOD1StarType()
+	{
+		return starInfo.randomLOD1StarType(random);
+	}
+	
+	@Benchmark
+	public StarLike.StarType randomLOD2StarType()
+	{
+		return starInfo.randomLOD2StarType(random);
+	}
+	
+	@Benchmark
+	public StarLike.StarType randomLOD3StarType()
+	{
+		return starInfo.randomLOD3StarType(random);
+	}
+}
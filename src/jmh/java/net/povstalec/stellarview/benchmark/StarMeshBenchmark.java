@@ -0,0 +1,173 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.Tesselator;
+import com.mojang.blaze3d.vertex.VertexFormat;
+
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
+import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.client.util.StarGenerator;
+import net.povstalec.stellarview.client.util.StarMeshWriter;
+
+/**
+ * Builds the mesh of a non-static LOD once through the Star Mesh Writer and once through a Buffer Builder the way Star Data used to,
+ * both from the same Stars. StarMeshWriterTest makes sure both meshes end up the same size
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StarMeshBenchmark
+{
+	@Param({"false", "true"})
+	public boolean hasTexture;
+	
+	private StarData.LOD lod;
+	private Tesselator tesselator;
+	
+	// The Stars of the LOD, read back out of its cache layout since the LOD keeps them to itself
+	private int stars;
+	private double[] starCoordX;
+	private double[] starCoordY;
+	private double[] starCoordZ;
+	private float[] starSizes;
+	private int[] starRGBA;
+	private float[] starRotations;
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		StarGenerationBenchmark.BenchmarkStarFieldRenderer renderer = new StarGenerationBenchmark.BenchmarkStarFieldRenderer(StarGenerationBenchmark.starField(), StarInfoBenchmark.starInfo());
+		
+		lod = new StarData.LOD(renderer.fieldStars(StarField.LevelOfDetail.LOD3));
+		renderer.generateStars(lod, StarField.LevelOfDetail.LOD3, StarGenerator.counter(StarGenerationBenchmark.SEED, false));
+		
+		ByteBuffer buffer = ByteBuffer.allocate(lod.byteSize());
+		lod.write(buffer);
+		buffer.flip();
+		
+		stars = buffer.getInt();
+		starCoordX = doubles(buffer);
+		starCoordY = doubles(buffer);
+		starCoordZ = doubles(buffer);
+		starSizes = floats(buffer);
+		starRGBA = new int[stars];
+		buffer.asIntBuffer().get(starRGBA);
+		buffer.position(buffer.position() + stars * Integer.BYTES);
+		starRotations = floats(buffer);
+		
+		tesselator = new Tesselator();
+	}
+	
+	private double[] doubles(ByteBuffer buffer)
+	{
+		double[] array = new double[stars];
+		buffer.asDoubleBuffer().get(array);
+		buffer.position(buffer.position() + stars * Double.BYTES);
+		
+		return array;
+	}
+	
+	private float[] floats(ByteBuffer buffer)
+	{
+		float[] array = new float[stars];
+		buffer.asFloatBuffer().get(array);
+		buffer.position(buffer.position() + stars * Float.BYTES);
+		
+		return array;
+	}
+	
+	@Benchmark
+	public int starMeshWriter()
+	{
+		try(StarMeshWriter writer = buildWithStarMeshWriter())
+		{
+			return writer.vertices();
+		}
+	}
+	
+	@Benchmark
+	public int bufferBuilder()
+	{
+		try(MeshData mesh = buildWithBufferBuilder())
+		{
+			return mesh.drawState().vertexCount();
+		}
+	}
+	
+	/**
+	 * @return Mesh written by the Star Mesh Writer, which needs to be closed
+	 */
+	public StarMeshWriter buildWithStarMeshWriter()
+	{
+		return lod.getStarMesh(hasTexture, false);
+	}
+	
+	/**
+	 * @return Mesh built by a Buffer Builder the way Star Data used to, which needs to be closed
+	 */
+	public MeshData buildWithBufferBuilder()
+	{
+		BufferBuilder builder = tesselator.begin(VertexFormat.Mode.QUADS, hasTexture ? StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get() : StellarViewVertexFormat.STAR_POS_COLOR_LY.get());
+		
+		for(int i = 0; i < stars; i++)
+		{
+			double sinRandom = Math.sin(starRotations[i]);
+			double cosRandom = Math.cos(starRotations[i]);
+			
+			int rgba = starRGBA[i];
+			
+			for(int j = 0; j < 4; ++j)
+			{
+				double aLocation = (j & 2) - 1;
+				double bLocation = (j + 1 & 2) - 1;
+				
+				double height = aLocation * cosRandom - bLocation * sinRandom;
+				double width = bLocation * cosRandom + aLocation * sinRandom;
+				
+				builder.addVertex((float) starCoordX[i], (float) starCoordY[i], (float) starCoordZ[i]).setColor(StarData.red(rgba), StarData.green(rgba), StarData.blue(rgba), (byte) StarData.alpha(rgba));
+				
+				addStarHeightWidthSize(builder, (float) height, (float) width, starSizes[i]);
+				
+				if(hasTexture)
+					builder.setUv((float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F);
+			}
+		}
+		
+		return builder.build();
+	}
+	
+	private static void addStarHeightWidthSize(BufferBuilder builder, float height, float width, float size)
+	{
+		long i = builder.beginElement(StellarViewVertexFormat.ELEMENT_HEIGHT_WIDTH_SIZE.get());
+		
+		if(i != -1L)
+		{
+			MemoryUtil.memPutFloat(i, height);
+			MemoryUtil.memPutFloat(i + Float.BYTES, width);
+			MemoryUtil.memPutFloat(i + Float.BYTES * 2, size);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.Tesselator;
+
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.client.util.StarGenerator;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+
+/**
+ * With the static sky enabled, the Star buffers are rebuilt on the CPU every time the viewer moves far enough
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticStarBufferBenchmark
+{
+	@Param({"false", "true"})
+	public boolean hasTexture;
+	
+	private StarData.LOD lod;
+	private Tesselator tesselator;
+	private SpaceCoords difference;
+	
+	@Setup
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		
+		StarGenerationBenchmark.BenchmarkStarFieldRenderer renderer = new StarGenerationBenchmark.BenchmarkStarFieldRenderer(StarGenerationBenchmark.starField(), StarInfoBenchmark.starInfo());
+		
+		lod = new StarData.LOD(renderer.fieldStars(StarField.LevelOfDetail.LOD3));
+		renderer.generateStars(lod, StarField.LevelOfDetail.LOD3, StarGenerator.legacy(StarGenerationBenchmark.SEED));
+		
+		tesselator = new Tesselator();
+		difference = new SpaceCoords(-26000L, 20L, 0L, 0, 0, 0);
+	}
+	
+	@Benchmark
+	public int getStaticStarBuffer()
+	{
+		try(MeshData mesh = lod.getStaticStarBuffer(tesselator, hasTexture, difference))
+		{
+			return mesh.drawState().vertexCount();
+		}
+	}
+}
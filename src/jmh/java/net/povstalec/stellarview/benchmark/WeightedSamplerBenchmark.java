@@ -0,0 +1,90 @@
+package net.povstalec.stellarview.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.povstalec.stellarview.api.common.space_objects.StarLike;
+import net.povstalec.stellarview.common.util.Color;
+import net.povstalec.stellarview.common.util.WeightedSampler;
+
+/**
+ * Picks a Star Type once by walking the list of types the way Star Infos used to and once through the Weighted Sampler,
+ * with more and more types to show how the cost of a pick grows with them.
+ * WeightedSamplerTest makes sure both pick the same type for every possible draw, so the distribution of the types doesn't change
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeightedSamplerBenchmark
+{
+	@Param({"6", "60", "600"})
+	public int types;
+	
+	private ArrayList<StarLike.StarType> starTypes;
+	private int totalWeight;
+	private WeightedSampler<StarLike.StarType> sampler;
+	private Random random;
+	
+	@Setup
+	public void setup()
+	{
+		Random weights = new Random(0);
+		
+		starTypes = new ArrayList<StarLike.StarType>();
+		totalWeight = 0;
+		for(int i = 0; i < types; i++)
+		{
+			// Mostly light weights with the occasional heavy one, similar to packs that have a few common and many rare spectral classes
+			int weight = weights.nextInt(10) == 0 ? weights.nextInt(50, 200) : weights.nextInt(1, 10);
+			
+			starTypes.add(new StarLike.StarType(new Color.IntRGB(255, 255, 255), 0.15F, 0.25F, (short) 100, (short) 255, 6000000, weight));
+			totalWeight += weight;
+		}
+		
+		sampler = new WeightedSampler<StarLike.StarType>(starTypes, StarLike.StarType::getWeight, totalWeight);
+		
+		random = new Random(0);
+	}
+	
+	private int linearIndex(int draw)
+	{
+		int i = 0;
+		for(int weight = draw; i < starTypes.size() - 1; i++)
+		{
+			weight -= starTypes.get(i).getWeight();
+			
+			if(weight <= 0)
+				break;
+		}
+		
+		return i;
+	}
+	
+	@Benchmark
+	public StarLike.StarType linearScan()
+	{
+		return starTypes.get(linearIndex(random.nextInt(0, totalWeight)));
+	}
+	
+	@Benchmark
+	public StarLike.StarType weightedSampler()
+	{
+		return sampler.sample(random);
+	}
+}
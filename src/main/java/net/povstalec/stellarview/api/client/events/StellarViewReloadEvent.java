@@ -9,6 +9,11 @@ import net.neoforged.bus.api.ICancellableEvent;
 
 import java.util.Map;
 
+/**
+ * Posted on the game thread once the Stellar View files have been scanned, but before any of them are decoded.
+ * The JSON map can be changed to add, replace or remove files, and cancelling the event skips the reload entirely,
+ * leaving everything that was loaded before in place
+ */
 public class StellarViewReloadEvent extends Event implements ICancellableEvent
 {
 	private final Map<ResourceLocation, JsonElement> jsonMap;
@@ -7,6 +7,7 @@ import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 
 public class SpaceRegion implements INBTSerializable<CompoundTag>
 {
@@ -20,11 +21,14 @@ public class SpaceRegion implements INBTSerializable<CompoundTag>
 	private RegionPos pos;
 	
 	protected ArrayList<SpaceObject> children;
+	// Same objects as the children, so that adding one doesn't have to look through the whole list
+	protected HashSet<SpaceObject> childSet;
 	
 	public SpaceRegion(RegionPos pos)
 	{
 		this.pos = pos;
 		this.children = new ArrayList<SpaceObject>();
+		this.childSet = new HashSet<SpaceObject>();
 	}
 	
 	public SpaceRegion(long x, long y, long z)
@@ -49,7 +53,7 @@ public class SpaceRegion implements INBTSerializable<CompoundTag>
 	
 	public boolean addChild(SpaceObject child)
 	{
-		if(this.children.contains(child))
+		if(!this.childSet.add(child))
 			return false;
 		
 		this.children.add(child);
@@ -146,10 +150,48 @@ public class SpaceRegion implements INBTSerializable<CompoundTag>
 		@Override
 		public final int hashCode()
 		{
-			int result = (int) x;
-			result = 31 * result + (int) y;
-			result = 31 * result + (int) z;
-			return result;
+			return Long.hashCode(key());
+		}
+		
+		/**
+		 * @return Well distributed 64-bit key of this position, see {@link #key(long, long, long)}
+		 */
+		public long key()
+		{
+			return key(x, y, z);
+		}
+		
+		/**
+		 * Creates a 64-bit key out of the Morton code of the position, which keeps neighbouring regions close to each other,
+		 * while the higher bits that don't fit into the Morton code are mixed in afterwards
+		 */
+		public static long key(long x, long y, long z)
+		{
+			long morton = spreadBits(x) | spreadBits(y) << 1 | spreadBits(z) << 2;
+			long high = (x >> 21) * 0x9E3779B97F4A7C15L + (y >> 21) * 0xC2B2AE3D27D4EB4FL + (z >> 21) * 0x165667B19E3779F9L;
+			
+			// Finalizer from MurmurHash3
+			long key = morton ^ high;
+			key ^= key >>> 33;
+			key *= 0xFF51AFD7ED558CCDL;
+			key ^= key >>> 33;
+			key *= 0xC4CEB9FE1A85EC53L;
+			key ^= key >>> 33;
+			return key;
+		}
+		
+		/**
+		 * Spreads the lower 21 bits of the value so that there are two zero bits between each of them
+		 */
+		private static long spreadBits(long value)
+		{
+			value &= 0x1FFFFFL;
+			value = (value | value << 32) & 0x1F00000000FFFFL;
+			value = (value | value << 16) & 0x1F0000FF0000FFL;
+			value = (value | value << 8) & 0x100F00F00F00F00FL;
+			value = (value | value << 4) & 0x10C30C30C30C30C3L;
+			value = (value | value << 2) & 0x1249249249249249L;
+			return value;
 		}
 		
 		@Override
@@ -344,15 +344,34 @@ public class OrbitingObject extends TexturedObject
 		}
 		
 		public Vector3f getOrbitVector(long ticks, float partialTicks, double distance)
+		{
+			return clampOrbitVector(getOrbitVector(ticks, partialTicks), distance);
+		}
+		
+		/**
+		 * Same as {@link #getOrbitVector(long, float)}, but with an eccentric anomaly that has already been calculated
+		 * @param eccentricAnomaly Eccentric anomaly in radians
+		 * @param dest Vector the position is written into
+		 * @return The dest vector
+		 */
+		public Vector3f getOrbitVector(float eccentricAnomaly, Vector3f dest)
+		{
+			// INITIAL_ORBIT_VECTOR rotated around the Y axis, which is what the movement matrix does
+			return getOrbitMatrix().transformProject(-(float) Math.cos(eccentricAnomaly), 0, (float) Math.sin(eccentricAnomaly), dest);
+		}
+		
+		/**
+		 * Visually enlarges the orbit when it's viewed from further away than the orbit clamp distance
+		 * @param orbitVector Position along the orbit, which gets changed in place
+		 * @param distance Distance the orbit is viewed from
+		 * @return The orbit vector
+		 */
+		public Vector3f clampOrbitVector(Vector3f orbitVector, double distance)
 		{
 			if(orbitClampDistance > 0 && distance > orbitClampDistance)
-			{
-				float mul = (float) distance / orbitClampDistance;
-				
-				return getOrbitVector(ticks, partialTicks).mulProject(new Matrix4f().scale(mul, mul, mul));
-			}
+				return orbitVector.mul((float) distance / orbitClampDistance);
 			
-			return getOrbitVector(ticks, partialTicks);
+			return orbitVector;
 		}
 		
 		public double meanAnomaly(long ticks, float partialTicks)
@@ -478,5 +497,38 @@ public class OrbitingObject extends TexturedObject
 			}
 			return E;
 		}
+		
+		/**
+		 * Batch version of {@link #approximateEccentricAnomaly(double, double, int)}, which solves a whole range of orbits at once.
+		 * Each step is done for all orbits before moving on to the next one, which keeps the loops short and free of dependencies
+		 * @param eccentricities Eccentricities of the orbits
+		 * @param meanAnomalies Mean Anomalies of the orbits
+		 * @param eccentricAnomalies Output array for the Eccentric Anomalies
+		 * @param from First index of the range, inclusive
+		 * @param to Last index of the range, exclusive
+		 * @param iterations Number of Newton iterations
+		 */
+		public static void approximateEccentricAnomalies(double[] eccentricities, double[] meanAnomalies, double[] eccentricAnomalies, int from, int to, int iterations)
+		{
+			for(int i = from; i < to; i++)
+			{
+				double eccentricity = eccentricities[i];
+				double meanAnomaly = meanAnomalies[i];
+				double sinMeanAnomaly = Math.sin(meanAnomaly);
+				
+				eccentricAnomalies[i] = meanAnomaly + eccentricity * ( sinMeanAnomaly / (1 - Math.sin(meanAnomaly + eccentricity) + sinMeanAnomaly) );
+			}
+			
+			for(int iteration = 0; iteration < iterations; iteration++)
+			{
+				for(int i = from; i < to; i++)
+				{
+					double E = eccentricAnomalies[i];
+					double eccentricity = eccentricities[i];
+					
+					eccentricAnomalies[i] = E - (E - eccentricity * Math.sin(E) - meanAnomalies[i]) / (1 - eccentricity * Math.cos(E));
+				}
+			}
+		}
 	}
 }
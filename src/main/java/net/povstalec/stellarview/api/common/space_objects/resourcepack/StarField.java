@@ -27,14 +27,24 @@ public class StarField extends SpaceObject
 		LOD3((short) 0, 0); // Very close, even the dimmest stars are seen
 		
 		short minBrightness;
+		long minDistance;
 		long minDistanceSquared;
 		
 		LevelOfDetail(short minBrightness, long minDistance)
 		{
 			this.minBrightness = minBrightness;
+			this.minDistance = minDistance;
 			this.minDistanceSquared = minDistance * minDistance;
 		}
 		
+		/**
+		 * @return Distance in light years from which this LOD is used
+		 */
+		public long minDistance()
+		{
+			return minDistance;
+		}
+		
 		public static LevelOfDetail fromBrightness(short brightness) // Majority of stars should be dim, so we're starting with LOD3
 		{
 			if(brightness < LOD2.minBrightness)
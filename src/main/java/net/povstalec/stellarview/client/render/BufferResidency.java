@@ -0,0 +1,201 @@
+package net.povstalec.stellarview.client.render;
+
+import javax.annotation.Nullable;
+
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+/**
+ * Keeps track of the GPU memory taken up by Star and Dust Cloud buffers.
+ * Buffers are kept in the order they were last drawn in, once they take up more than the budget
+ * the ones that haven't been drawn for the longest are released and get uploaded again if they're ever needed
+ */
+public final class BufferResidency
+{
+	private static final long BYTES_PER_MEGABYTE = 1024L * 1024L;
+	
+	// Least recently drawn buffer first
+	@Nullable
+	private static Handle first;
+	@Nullable
+	private static Handle last;
+	
+	private static int liveBuffers = 0;
+	private static long liveBytes = 0;
+	private static long frame = 0;
+	private static long totalEvictions = 0;
+	
+	/**
+	 * Place of a single buffer in the residency order, each buffer owner keeps one Handle for as long as it exists
+	 */
+	public static final class Handle
+	{
+		@Nullable
+		private Handle previous;
+		@Nullable
+		private Handle next;
+		@Nullable
+		private Runnable release;
+		private long bytes;
+		private long lastDrawn;
+		
+		public boolean isResident()
+		{
+			return release != null;
+		}
+	}
+	
+	/**
+	 * Starts tracking a buffer that was just uploaded
+	 * @param bytes Size of the buffer
+	 * @param release Closes the buffer, has to stop tracking it as well
+	 */
+	public static void track(Handle handle, long bytes, Runnable release)
+	{
+		untrack(handle);
+		
+		handle.bytes = bytes;
+		handle.release = release;
+		handle.lastDrawn = frame;
+		append(handle);
+		
+		liveBuffers++;
+		liveBytes += bytes;
+	}
+	
+	/**
+	 * Stops tracking a buffer, has to be called whenever the buffer is closed
+	 */
+	public static void untrack(Handle handle)
+	{
+		if(!handle.isResident())
+			return;
+		
+		unlink(handle);
+		handle.release = null;
+		
+		liveBuffers--;
+		liveBytes -= handle.bytes;
+		handle.bytes = 0;
+	}
+	
+	/**
+	 * Marks the buffer as used during the current frame
+	 */
+	public static void drawn(Handle handle)
+	{
+		if(!handle.isResident())
+			return;
+		
+		handle.lastDrawn = frame;
+		
+		if(handle != last)
+		{
+			unlink(handle);
+			append(handle);
+		}
+	}
+	
+	//============================================================================================
+	//******************************************Eviction******************************************
+	//============================================================================================
+	
+	/**
+	 * Starts a new frame and releases the least recently drawn buffers until the rest fits into the budget.
+	 * Buffers drawn during the previous frame are never released, so that the ones in view don't get uploaded over and over
+	 */
+	public static void beginFrame()
+	{
+		frame++;
+		
+		long budget = budget();
+		while(liveBytes > budget && first != null && first.lastDrawn < frame - 1)
+		{
+			release(first);
+			totalEvictions++;
+		}
+	}
+	
+	/**
+	 * Releases every tracked buffer, used when none of them are going to be drawn anymore
+	 */
+	public static void releaseAll()
+	{
+		int released = liveBuffers;
+		long releasedBytes = liveBytes;
+		
+		while(first != null)
+		{
+			release(first);
+		}
+		
+		if(released > 0)
+			StellarView.LOGGER.debug("Released " + released + " Star and Dust Cloud buffers taking up " + releasedBytes / BYTES_PER_MEGABYTE + " MB");
+	}
+	
+	private static void release(Handle handle)
+	{
+		Runnable release = handle.release;
+		untrack(handle); // In case the owner doesn't
+		release.run();
+	}
+	
+	private static void append(Handle handle)
+	{
+		handle.previous = last;
+		handle.next = null;
+		
+		if(last != null)
+			last.next = handle;
+		else
+			first = handle;
+		
+		last = handle;
+	}
+	
+	private static void unlink(Handle handle)
+	{
+		if(handle.previous != null)
+			handle.previous.next = handle.next;
+		else
+			first = handle.next;
+		
+		if(handle.next != null)
+			handle.next.previous = handle.previous;
+		else
+			last = handle.previous;
+		
+		handle.previous = null;
+		handle.next = null;
+	}
+	
+	//============================================================================================
+	//******************************************Metrics*******************************************
+	//============================================================================================
+	
+	public static int liveBuffers()
+	{
+		return liveBuffers;
+	}
+	
+	public static long liveBytes()
+	{
+		return liveBytes;
+	}
+	
+	/**
+	 * @return Budget in bytes
+	 */
+	public static long budget()
+	{
+		return GeneralConfig.buffer_memory_budget.get() * BYTES_PER_MEGABYTE;
+	}
+	
+	/**
+	 * @return Number of buffers released for going over the budget since the game started
+	 */
+	public static long totalEvictions()
+	{
+		return totalEvictions;
+	}
+}
@@ -0,0 +1,165 @@
+package net.povstalec.stellarview.client.render;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import javax.annotation.Nullable;
+
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+/**
+ * Spreads the creation of Star and Dust Cloud buffers across multiple frames.
+ * Buffers that are needed during a frame are requested, then at the start of the next frame
+ * the closest ones are uploaded until the time budget for that frame runs out
+ */
+public final class BufferUploadScheduler
+{
+	private static final long NANOS_PER_MICRO = 1000L;
+	
+	private static final Comparator<Ticket> PRIORITY = Comparator.<Ticket>comparingDouble(ticket -> ticket.distance).thenComparingInt(ticket -> ticket.detail);
+	
+	private static final ArrayList<Ticket> REQUESTED = new ArrayList<Ticket>();
+	private static final PriorityQueue<Ticket> QUEUE = new PriorityQueue<Ticket>(PRIORITY);
+	
+	private static int lastQueueDepth = 0;
+	private static int lastUploads = 0;
+	private static long lastUploadNanos = 0;
+	private static long totalUploads = 0;
+	
+	/**
+	 * Pending upload of a single buffer, each buffer owner keeps one Ticket and requests it every frame until its buffer exists
+	 */
+	public static final class Ticket
+	{
+		private double distance;
+		private int detail;
+		@Nullable
+		private Runnable upload;
+		private boolean requested;
+		
+		public boolean isPending()
+		{
+			return upload != null;
+		}
+		
+		/**
+		 * Stops the pending upload from happening, the Ticket may be requested again afterwards
+		 */
+		public void cancel()
+		{
+			upload = null;
+		}
+	}
+	
+	/**
+	 * Requests an upload that will happen at the start of one of the following frames
+	 * @param ticket Ticket of the buffer
+	 * @param distance Distance between the View Center and the object the buffer belongs to, closer objects are uploaded first
+	 * @param detail Used for ordering requests with the same distance, lower values are uploaded first
+	 * @param upload Creates and uploads the buffer
+	 */
+	public static void request(Ticket ticket, double distance, int detail, Runnable upload)
+	{
+		ticket.distance = distance;
+		ticket.detail = detail;
+		ticket.upload = upload;
+		
+		if(!ticket.requested)
+		{
+			ticket.requested = true;
+			REQUESTED.add(ticket);
+		}
+	}
+	
+	/**
+	 * Uploads the requested buffers in order of priority until the budget runs out, at least one buffer is uploaded every frame.
+	 * Requests that didn't fit into the budget are dropped and need to be requested again
+	 */
+	public static void processUploads()
+	{
+		for(Ticket ticket : REQUESTED)
+		{
+			ticket.requested = false;
+			if(ticket.isPending())
+				QUEUE.add(ticket);
+		}
+		REQUESTED.clear();
+		
+		lastQueueDepth = QUEUE.size();
+		lastUploads = 0;
+		
+		long budget = GeneralConfig.upload_budget.get() * NANOS_PER_MICRO;
+		long start = System.nanoTime();
+		long elapsed = 0;
+		
+		Ticket ticket;
+		while((lastUploads == 0 || elapsed < budget) && (ticket = QUEUE.poll()) != null)
+		{
+			Runnable upload = ticket.upload;
+			ticket.upload = null;
+			
+			upload.run();
+			SkyRenderStats.increment(SkyRenderStats.Counter.BUFFERS_BUILT);
+			
+			lastUploads++;
+			elapsed = System.nanoTime() - start;
+		}
+		
+		for(Ticket remaining : QUEUE)
+		{
+			remaining.upload = null;
+		}
+		QUEUE.clear();
+		
+		lastUploadNanos = elapsed;
+		totalUploads += lastUploads;
+	}
+	
+	/**
+	 * Drops all requests, used when the buffers they would be uploaded to are no longer relevant
+	 */
+	public static void clear()
+	{
+		for(Ticket ticket : REQUESTED)
+		{
+			ticket.requested = false;
+			ticket.upload = null;
+		}
+		REQUESTED.clear();
+	}
+	
+	//============================================================================================
+	//******************************************Metrics*******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Number of uploads that were waiting at the start of the last frame
+	 */
+	public static int queueDepth()
+	{
+		return lastQueueDepth;
+	}
+	
+	/**
+	 * @return Number of buffers uploaded during the last frame
+	 */
+	public static int lastUploads()
+	{
+		return lastUploads;
+	}
+	
+	/**
+	 * @return Time spent uploading buffers during the last frame in nanoseconds
+	 */
+	public static long lastUploadNanos()
+	{
+		return lastUploadNanos;
+	}
+	
+	public static long totalUploads()
+	{
+		return totalUploads;
+	}
+}
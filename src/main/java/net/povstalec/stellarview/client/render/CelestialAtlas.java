@@ -0,0 +1,353 @@
+package net.povstalec.stellarview.client.render;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+
+import javax.annotation.Nullable;
+
+import com.mojang.blaze3d.platform.NativeImage;
+import com.mojang.blaze3d.systems.RenderSystem;
+
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.renderer.texture.DynamicTexture;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.Resource;
+import net.minecraft.server.packs.resources.ResourceMetadata;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.util.Mth;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.api.common.space_objects.TexturedObject;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.distinct.LunaRenderer;
+import net.povstalec.stellarview.client.resourcepack.Skybox;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.client.resourcepack.effects.MeteorEffect;
+import net.povstalec.stellarview.common.util.AtlasSprite;
+import net.povstalec.stellarview.common.util.TextureLayer;
+import net.povstalec.stellarview.common.util.UV;
+
+/**
+ * Stitches the textures of all Texture Layers and Skyboxes into a few atlas pages when resources are reloaded,
+ * so that the quads using them can share a texture and get drawn together.
+ * Textures that take up too much of a page stay on their own and are drawn with their own texture like before,
+ * as do textures with metadata (blur, clamp) and textures some quad samples outside of, since a sprite can't wrap around
+ */
+public final class CelestialAtlas
+{
+	private static final int MAX_PAGE_SIZE = 4096;
+	// Textures wider or taller than this fraction of a page are left standalone
+	private static final int MAX_SPRITE_FRACTION = 2;
+	// Every sprite is surrounded by a copy of its edge pixels, which keeps neighbouring sprites from bleeding into it
+	private static final int PADDING = 1;
+	
+	private static final HashMap<ResourceLocation, AtlasSprite> SPRITES = new HashMap<ResourceLocation, AtlasSprite>();
+	private static final ArrayList<ResourceLocation> PAGES = new ArrayList<ResourceLocation>();
+	
+	/**
+	 * @return Sprite the texture was stitched into, or the whole texture if it isn't part of the atlas
+	 */
+	public static AtlasSprite sprite(ResourceLocation texture)
+	{
+		return SPRITES.computeIfAbsent(texture, AtlasSprite::whole);
+	}
+	
+	public static int pages()
+	{
+		return PAGES.size();
+	}
+	
+	public static void clear()
+	{
+		for(ResourceLocation page : PAGES)
+		{
+			Minecraft.getInstance().getTextureManager().release(page);
+		}
+		
+		PAGES.clear();
+		SPRITES.clear();
+	}
+	
+	//============================================================================================
+	//******************************************Building******************************************
+	//============================================================================================
+	
+	/**
+	 * Builds the atlas from the textures of the Space Objects and View Centers, then points their Texture Layers and Skybox facades at it
+	 */
+	public static void build(ResourceManager manager, Collection<SpaceObjectRenderer<?>> spaceObjects, Collection<ViewCenter> viewCenters)
+	{
+		long start = System.nanoTime();
+		clear();
+		
+		ArrayList<TextureLayer> textureLayers = new ArrayList<TextureLayer>();
+		ArrayList<Skybox.SkyboxFacade> facades = new ArrayList<Skybox.SkyboxFacade>();
+		collect(spaceObjects, viewCenters, textureLayers, facades);
+		
+		LinkedHashSet<ResourceLocation> textures = new LinkedHashSet<ResourceLocation>();
+		HashSet<ResourceLocation> wrapped = new HashSet<ResourceLocation>(); // Textures that rely on repeating
+		for(TextureLayer textureLayer : textureLayers)
+		{
+			textures.add(textureLayer.texture());
+			if(!isWithinTexture(textureLayer.uv()))
+				wrapped.add(textureLayer.texture());
+		}
+		for(Skybox.SkyboxFacade facade : facades)
+		{
+			textures.add(facade.texture());
+			if(!isWithinTexture(facade.uv()))
+				wrapped.add(facade.texture());
+		}
+		
+		int pageSize = Math.min(MAX_PAGE_SIZE, RenderSystem.maxSupportedTextureSize());
+		int maxSpriteSize = pageSize / MAX_SPRITE_FRACTION;
+		
+		ArrayList<Entry> entries = new ArrayList<Entry>();
+		int standalone = 0;
+		for(ResourceLocation texture : textures)
+		{
+			NativeImage image = wrapped.contains(texture) ? null : read(manager, texture);
+			if(image == null)
+			{
+				standalone++;
+				continue;
+			}
+			
+			if(image.getWidth() + 2 * PADDING > maxSpriteSize || image.getHeight() + 2 * PADDING > maxSpriteSize)
+			{
+				image.close();
+				standalone++;
+				continue;
+			}
+			
+			entries.add(new Entry(texture, image));
+		}
+		
+		try
+		{
+			stitch(entries, pageSize);
+		}
+		finally
+		{
+			for(Entry entry : entries)
+			{
+				entry.image.close();
+			}
+		}
+		
+		for(TextureLayer textureLayer : textureLayers)
+		{
+			textureLayer.setSprite(sprite(textureLayer.texture()));
+		}
+		for(Skybox.SkyboxFacade facade : facades)
+		{
+			facade.setSprite(sprite(facade.texture()));
+		}
+		
+		StellarView.LOGGER.info("Built Celestial Atlas with " + entries.size() + " textures on " + PAGES.size() + " pages, " + standalone + " textures left standalone, took " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+	
+	private static void collect(Collection<SpaceObjectRenderer<?>> spaceObjects, Collection<ViewCenter> viewCenters, List<TextureLayer> textureLayers, List<Skybox.SkyboxFacade> facades)
+	{
+		textureLayers.add(LunaRenderer.MOON_TEXTURE_LAYER);
+		
+		for(SpaceObjectRenderer<?> spaceObject : spaceObjects)
+		{
+			if(spaceObject.renderedObject() instanceof TexturedObject texturedObject)
+				textureLayers.addAll(texturedObject.getTextureLayers());
+		}
+		
+		for(ViewCenter viewCenter : viewCenters)
+		{
+			Optional<List<Skybox>> skyboxes = viewCenter.getSkyboxes();
+			if(skyboxes.isPresent())
+			{
+				for(Skybox skybox : skyboxes.get())
+				{
+					facades.add(skybox.topFacade());
+					facades.add(skybox.northFacade());
+					facades.add(skybox.eastFacade());
+					facades.add(skybox.southFacade());
+					facades.add(skybox.westFacade());
+					facades.add(skybox.bottomFacade());
+				}
+			}
+			
+			collect(viewCenter.getShootingStar(), textureLayers);
+			collect(viewCenter.getMeteorShower(), textureLayers);
+		}
+	}
+	
+	private static void collect(@Nullable MeteorEffect meteorEffect, List<TextureLayer> textureLayers)
+	{
+		if(meteorEffect == null)
+			return;
+		
+		for(MeteorEffect.MeteorType meteorType : meteorEffect.getMeteorTypes())
+		{
+			textureLayers.addAll(meteorType.getTextureLayers());
+		}
+	}
+	
+	/**
+	 * @return Whether all UVs of the quad stay within the texture, which is all a sprite can show
+	 */
+	private static boolean isWithinTexture(UV.Quad uv)
+	{
+		return isWithinTexture(uv.topLeft()) && isWithinTexture(uv.bottomLeft()) && isWithinTexture(uv.bottomRight()) && isWithinTexture(uv.topRight());
+	}
+	
+	private static boolean isWithinTexture(UV uv)
+	{
+		// Phases divide the UVs by the number of rows and columns, so they stay within the texture as long as the UVs themselves do
+		return uv.u() >= 0 && uv.u() <= 1 && uv.v() >= 0 && uv.v() <= 1;
+	}
+	
+	/**
+	 * @return Image of the texture, or null if it's missing or has metadata the atlas couldn't honor
+	 */
+	@Nullable
+	private static NativeImage read(ResourceManager manager, ResourceLocation texture)
+	{
+		Optional<Resource> resource = manager.getResource(texture);
+		if(resource.isEmpty())
+			return null; // The missing texture gets reported once something tries to bind it
+		
+		try
+		{
+			// Blur and clamp are settings of the whole texture, so a texture with an .mcmeta file keeps its own
+			if(resource.get().metadata() != ResourceMetadata.EMPTY)
+				return null;
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.error("Failed to read the metadata of " + texture + " for the Celestial Atlas " + e);
+			return null;
+		}
+		
+		try(InputStream stream = resource.get().open())
+		{
+			return NativeImage.read(NativeImage.Format.RGBA, stream);
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.error("Failed to read " + texture + " for the Celestial Atlas " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Packs the textures onto shelves, tallest first, and starts a new page whenever one fills up
+	 */
+	private static void stitch(List<Entry> entries, int pageSize)
+	{
+		if(entries.isEmpty())
+			return;
+		
+		entries.sort(Comparator.comparingInt((Entry entry) -> entry.height()).reversed().thenComparing(entry -> entry.texture));
+		
+		// Pages are only as wide as they need to be, small atlases shouldn't take up a whole page
+		long area = 0;
+		int widest = 0;
+		for(Entry entry : entries)
+		{
+			area += (long) entry.width() * entry.height();
+			widest = Math.max(widest, entry.width());
+		}
+		int pageWidth = Mth.clamp(Mth.smallestEncompassingPowerOfTwo((int) Math.ceil(Math.sqrt(area))), Mth.smallestEncompassingPowerOfTwo(widest), pageSize);
+		
+		ArrayList<Entry> page = new ArrayList<Entry>();
+		int x = 0;
+		int y = 0;
+		int shelfHeight = 0;
+		
+		for(Entry entry : entries)
+		{
+			if(x + entry.width() > pageWidth)
+			{
+				x = 0;
+				y += shelfHeight;
+				shelfHeight = 0;
+			}
+			
+			if(y + entry.height() > pageSize)
+			{
+				upload(page, pageWidth, y);
+				page.clear();
+				x = 0;
+				y = 0;
+			}
+			
+			entry.x = x;
+			entry.y = y;
+			page.add(entry);
+			
+			x += entry.width();
+			shelfHeight = Math.max(shelfHeight, entry.height());
+		}
+		
+		upload(page, pageWidth, y + shelfHeight);
+	}
+	
+	private static void upload(List<Entry> page, int width, int usedHeight)
+	{
+		int height = Mth.smallestEncompassingPowerOfTwo(usedHeight);
+		ResourceLocation location = ResourceLocation.fromNamespaceAndPath(StellarView.MODID, "celestial_atlas/page_" + PAGES.size());
+		
+		NativeImage pageImage = new NativeImage(width, height, true);
+		for(Entry entry : page)
+		{
+			NativeImage image = entry.image;
+			int imageWidth = image.getWidth();
+			int imageHeight = image.getHeight();
+			int x = entry.x + PADDING;
+			int y = entry.y + PADDING;
+			
+			image.copyRect(pageImage, 0, 0, x, y, imageWidth, imageHeight, false, false);
+			
+			// Edges
+			image.copyRect(pageImage, 0, 0, x, y - 1, imageWidth, 1, false, false);
+			image.copyRect(pageImage, 0, imageHeight - 1, x, y + imageHeight, imageWidth, 1, false, false);
+			image.copyRect(pageImage, 0, 0, x - 1, y, 1, imageHeight, false, false);
+			image.copyRect(pageImage, imageWidth - 1, 0, x + imageWidth, y, 1, imageHeight, false, false);
+			
+			SPRITES.put(entry.texture, new AtlasSprite(location, (float) x / width, (float) y / height, (float) (x + imageWidth) / width, (float) (y + imageHeight) / height));
+		}
+		
+		// The Dynamic Texture takes care of closing the image
+		Minecraft.getInstance().getTextureManager().register(location, new DynamicTexture(pageImage));
+		PAGES.add(location);
+	}
+	
+	private static class Entry
+	{
+		private final ResourceLocation texture;
+		private final NativeImage image;
+		
+		private int x;
+		private int y;
+		
+		private Entry(ResourceLocation texture, NativeImage image)
+		{
+			this.texture = texture;
+			this.image = image;
+		}
+		
+		private int width()
+		{
+			return image.getWidth() + 2 * PADDING;
+		}
+		
+		private int height()
+		{
+			return image.getHeight() + 2 * PADDING;
+		}
+	}
+}
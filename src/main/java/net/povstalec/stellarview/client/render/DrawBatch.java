@@ -0,0 +1,75 @@
+package net.povstalec.stellarview.client.render;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps track of the state consecutive draws share, so that it only has to be set up when a draw needs a different one.
+ * Doesn't touch anything by itself, whoever draws sets the state up when asked to and the state is cleared through the callback
+ * @param <S> State the draws share, usually a shader
+ */
+public final class DrawBatch<S>
+{
+	private final Consumer<S> clear;
+	
+	@Nullable
+	private S state;
+	
+	private long setups = 0;
+	private long draws = 0;
+	
+	/**
+	 * @param clear Clears the state once the batch ends
+	 */
+	public DrawBatch(Consumer<S> clear)
+	{
+		this.clear = clear;
+	}
+	
+	/**
+	 * Starts a draw with the state, ending the current batch first if it used a different one
+	 * @return Whether the state has to be set up, which is only the case for the first draw of a batch
+	 */
+	public boolean draw(S state)
+	{
+		draws++;
+		
+		if(this.state == state)
+			return false;
+		
+		end();
+		this.state = state;
+		setups++;
+		
+		return true;
+	}
+	
+	/**
+	 * Ends the current batch and clears its state, the next draw has to set the state up again
+	 */
+	public void end()
+	{
+		if(state == null)
+			return;
+		
+		clear.accept(state);
+		state = null;
+	}
+	
+	/**
+	 * @return Number of times the state has been set up
+	 */
+	public long setups()
+	{
+		return setups;
+	}
+	
+	/**
+	 * @return Number of draws
+	 */
+	public long draws()
+	{
+		return draws;
+	}
+}
@@ -0,0 +1,182 @@
+package net.povstalec.stellarview.client.render;
+
+import net.minecraft.client.Camera;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.multiplayer.ClientLevel;
+import net.povstalec.stellarview.client.render.level.util.StellarViewFogEffects;
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+/**
+ * Snapshot of everything {@link LightEffects} needs, taken once at the start of every frame by the View Center.
+ * Renderers read the brightness of their layers from it instead of querying the level and the config for every one of them
+ */
+public final class LightingContext
+{
+	private boolean isFoggy;
+	private boolean lightPollution;
+	
+	private float starDimming;
+	private float dustCloudDimming;
+	private float rainDimming;
+	private float weatherDimming;
+	
+	private float baseStarBrightness;
+	private float baseDustBrightness;
+	
+	private float dayMaxBrightness;
+	private float dayMinVisibleSize;
+	private float dayMaxVisibleSize;
+	private float dayVisibleRange;
+	
+	private float sunDayMaxBrightness;
+	private float sunDayMinVisibleSize;
+	private float sunDayMaxVisibleSize;
+	private float sunDayVisibleRange;
+	
+	/**
+	 * Queries the level, the camera and the config, has to be called once per frame before anything is rendered
+	 */
+	public void update(ViewCenter viewCenter, ClientLevel level, Camera camera, float partialTicks)
+	{
+		boolean lightPollution = GeneralConfig.light_pollution.get();
+		
+		// The light pollution dimming is smoothed over time, so it may only be advanced once per frame
+		set(viewCenter,
+				viewCenter.starsAlwaysVisible() ? 0.5F : level.getStarBrightness(partialTicks),
+				lightPollution ? LightEffects.lightSourceStarDimming(level, camera) : 2F,
+				lightPollution ? LightEffects.lightSourceDustCloudDimming(level, camera) : 2F,
+				LightEffects.rainDimming(level, partialTicks),
+				StellarViewFogEffects.isFoggy(Minecraft.getInstance(), camera));
+	}
+	
+	/**
+	 * Fills the context from values that were already taken from the level
+	 * @param levelStarBrightness Star brightness of the level, or 0.5 for View Centers whose stars are always visible
+	 * @param starDimming Light pollution dimming of Stars, 2 if light pollution is disabled
+	 * @param dustCloudDimming Light pollution dimming of Dust Clouds, 2 if light pollution is disabled
+	 * @param rainDimming Dimming caused by rain, regardless of whether the View Center ignores it
+	 */
+	public void set(ViewCenter viewCenter, float levelStarBrightness, float starDimming, float dustCloudDimming, float rainDimming, boolean isFoggy)
+	{
+		this.isFoggy = isFoggy;
+		this.lightPollution = GeneralConfig.light_pollution.get();
+		
+		this.starDimming = starDimming;
+		this.dustCloudDimming = dustCloudDimming;
+		this.rainDimming = rainDimming;
+		this.weatherDimming = viewCenter.starsIgnoreRain() ? 1F : rainDimming;
+		
+		this.baseStarBrightness = GeneralConfig.star_brightness.get() / 100F * levelStarBrightness * starDimming;
+		this.baseDustBrightness = GeneralConfig.dust_cloud_brightness.get() / 100F * levelStarBrightness * dustCloudDimming;
+		
+		ViewCenter.DayBlending dayBlending = viewCenter.dayBlending();
+		this.dayMaxBrightness = dayBlending.dayMaxBrightness();
+		this.dayMinVisibleSize = dayBlending.dayMinVisibleSize();
+		this.dayMaxVisibleSize = dayBlending.dayMaxVisibleSize();
+		this.dayVisibleRange = dayBlending.dayVisibleRange();
+		
+		ViewCenter.DayBlending sunDayBlending = viewCenter.sunDayBlending();
+		this.sunDayMaxBrightness = sunDayBlending.dayMaxBrightness();
+		this.sunDayMinVisibleSize = sunDayBlending.dayMinVisibleSize();
+		this.sunDayMaxVisibleSize = sunDayBlending.dayMaxVisibleSize();
+		this.sunDayVisibleRange = sunDayBlending.dayVisibleRange();
+	}
+	
+	public boolean isFoggy()
+	{
+		return isFoggy;
+	}
+	
+	public boolean lightPollution()
+	{
+		return lightPollution;
+	}
+	
+	public float starDimming()
+	{
+		return starDimming;
+	}
+	
+	public float dustCloudDimming()
+	{
+		return dustCloudDimming;
+	}
+	
+	public float rainDimming()
+	{
+		return rainDimming;
+	}
+	
+	/**
+	 * @return Brightness of Stars before the weather is accounted for, same as {@link LightEffects#getStarBrightness(ViewCenter, ClientLevel, Camera, float)}
+	 */
+	public float baseStarBrightness()
+	{
+		return baseStarBrightness;
+	}
+	
+	/**
+	 * @return Brightness of Dust Clouds before the weather is accounted for, same as {@link LightEffects#getDustBrightness(ViewCenter, ClientLevel, Camera, float)}
+	 */
+	public float baseDustBrightness()
+	{
+		return baseDustBrightness;
+	}
+	
+	//============================================================================================
+	//*****************************************Brightness*****************************************
+	//============================================================================================
+	
+	public float starBrightness()
+	{
+		return baseStarBrightness * weatherDimming;
+	}
+	
+	public float dustCloudBrightness()
+	{
+		return baseDustBrightness * weatherDimming;
+	}
+	
+	/**
+	 * @param size Size of the Texture Layer
+	 * @return Brightness of a Texture Layer, which large enough objects keep even during the day
+	 */
+	public float dayBrightness(float size)
+	{
+		return blend(baseStarBrightness, size, dayMaxBrightness, dayMinVisibleSize, dayMaxVisibleSize, dayVisibleRange) * weatherDimming;
+	}
+	
+	/**
+	 * @param size Size of the Texture Layer
+	 * @return Brightness of a Star Texture Layer, which uses the sun day blending
+	 */
+	public float starDayBrightness(float size)
+	{
+		return blend(baseStarBrightness, size, sunDayMaxBrightness, sunDayMinVisibleSize, sunDayMaxVisibleSize, sunDayVisibleRange) * weatherDimming;
+	}
+	
+	/**
+	 * @param size Size of the Texture Layer
+	 * @return Brightness of a Nebula Texture Layer, which is dimmed the same way Dust Clouds are
+	 */
+	public float nebulaBrightness(float size)
+	{
+		return blend(baseDustBrightness, size, dayMaxBrightness, dayMinVisibleSize, dayMaxVisibleSize, dayVisibleRange) * weatherDimming;
+	}
+	
+	private static float blend(float brightness, float size, float maxBrightness, float minVisibleSize, float maxVisibleSize, float visibleRange)
+	{
+		if(brightness < maxBrightness && size > minVisibleSize)
+		{
+			float aboveSize = size >= maxVisibleSize ? visibleRange : size - minVisibleSize;
+			float brightnessPercentage = aboveSize / visibleRange;
+			float minBrightness = brightnessPercentage * maxBrightness;
+			
+			if(brightness < minBrightness)
+				brightness = minBrightness;
+		}
+		
+		return brightness;
+	}
+}
@@ -0,0 +1,215 @@
+package net.povstalec.stellarview.client.render;
+
+import java.util.Arrays;
+
+import net.povstalec.stellarview.api.common.space_objects.OrbitingObject;
+import org.joml.Vector3f;
+
+/**
+ * Evaluates the orbits of all Orbiting Objects at most once per distinct point in time.
+ * Every orbit gets an id, its position is kept in flat arrays under that id, and Kepler's equation is solved for all orbits
+ * in a single batch, so asking for the same position multiple times during a frame (walking the parent chain, sorting children) costs nothing.
+ * The positions can also be evaluated in the background with {@link #snapshot(long, float)} and handed back with {@link #adopt(Positions, long, float)}
+ */
+public final class OrbitEngine
+{
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int ITERATIONS = 4; // Same number of iterations OrbitInfo uses
+	
+	private static OrbitingObject.OrbitInfo[] orbits = new OrbitingObject.OrbitInfo[INITIAL_CAPACITY];
+	private static double[] eccentricities = new double[INITIAL_CAPACITY];
+	private static double[] meanAnomalies = new double[INITIAL_CAPACITY];
+	private static double[] eccentricAnomalies = new double[INITIAL_CAPACITY];
+	private static float[] positionX = new float[INITIAL_CAPACITY];
+	private static float[] positionY = new float[INITIAL_CAPACITY];
+	private static float[] positionZ = new float[INITIAL_CAPACITY];
+	private static int count = 0;
+	
+	// Point in time the positions were evaluated for, orbits registered afterwards still need to be evaluated
+	private static long evaluatedTicks;
+	private static float evaluatedPartialTicks;
+	private static int evaluatedCount = 0;
+	
+	// Changes whenever the ids are invalidated, so that positions evaluated before that are never adopted
+	private static int generation = 0;
+	
+	/**
+	 * Positions of the orbits that were registered when the snapshot was taken.
+	 * The snapshot is taken on the render thread, after which {@link #evaluate()} can be called from any thread
+	 */
+	public static final class Positions
+	{
+		private final OrbitingObject.OrbitInfo[] orbits;
+		private final int generation;
+		private final long ticks;
+		private final float partialTicks;
+		
+		private final float[] positionX;
+		private final float[] positionY;
+		private final float[] positionZ;
+		
+		private Positions(OrbitingObject.OrbitInfo[] orbits, int generation, long ticks, float partialTicks)
+		{
+			this.orbits = orbits;
+			this.generation = generation;
+			this.ticks = ticks;
+			this.partialTicks = partialTicks;
+			
+			this.positionX = new float[orbits.length];
+			this.positionY = new float[orbits.length];
+			this.positionZ = new float[orbits.length];
+		}
+		
+		public Positions evaluate()
+		{
+			int count = orbits.length;
+			
+			OrbitEngine.evaluate(orbits, 0, count, ticks, partialTicks, new double[count], new double[count], new double[count], positionX, positionY, positionZ);
+			
+			return this;
+		}
+		
+		public int size()
+		{
+			return orbits.length;
+		}
+	}
+	
+	/**
+	 * Registers the orbit if it isn't registered yet
+	 * @param orbitInfo Orbit to register
+	 * @param id Id the orbit was registered under last time, or -1 if it hasn't been registered before
+	 * @return Id of the orbit, which stays the same until the engine is cleared
+	 */
+	public static int register(OrbitingObject.OrbitInfo orbitInfo, int id)
+	{
+		if(id >= 0 && id < count && orbits[id] == orbitInfo)
+			return id;
+		
+		if(count == orbits.length)
+			grow(count * 2);
+		
+		orbits[count] = orbitInfo;
+		
+		return count++;
+	}
+	
+	private static void grow(int capacity)
+	{
+		orbits = Arrays.copyOf(orbits, capacity);
+		eccentricities = Arrays.copyOf(eccentricities, capacity);
+		meanAnomalies = Arrays.copyOf(meanAnomalies, capacity);
+		eccentricAnomalies = Arrays.copyOf(eccentricAnomalies, capacity);
+		positionX = Arrays.copyOf(positionX, capacity);
+		positionY = Arrays.copyOf(positionY, capacity);
+		positionZ = Arrays.copyOf(positionZ, capacity);
+	}
+	
+	/**
+	 * Removes all orbits, every id handed out before becomes invalid
+	 */
+	public static void clear()
+	{
+		Arrays.fill(orbits, 0, count, null);
+		count = 0;
+		evaluatedCount = 0;
+		generation++;
+	}
+	
+	public static int size()
+	{
+		return count;
+	}
+	
+	/**
+	 * Writes the position of the orbit at the given point in time into the vector, the same as {@link OrbitingObject.OrbitInfo#getOrbitVector(long, float)}
+	 * @param id Id of the orbit returned by {@link #register(OrbitingObject.OrbitInfo, int)}
+	 * @return The dest vector
+	 */
+	public static Vector3f getOrbitVector(int id, long ticks, float partialTicks, Vector3f dest)
+	{
+		if(id >= evaluatedCount || ticks != evaluatedTicks || partialTicks != evaluatedPartialTicks)
+			evaluateAll(ticks, partialTicks);
+		
+		return dest.set(positionX[id], positionY[id], positionZ[id]);
+	}
+	
+	/**
+	 * Evaluates every registered orbit that hasn't been evaluated for the given point in time yet
+	 */
+	public static void evaluateAll(long ticks, float partialTicks)
+	{
+		if(evaluatedCount == 0 || ticks != evaluatedTicks || partialTicks != evaluatedPartialTicks)
+		{
+			evaluatedTicks = ticks;
+			evaluatedPartialTicks = partialTicks;
+			evaluatedCount = 0;
+		}
+		
+		if(evaluatedCount < count)
+		{
+			evaluate(orbits, evaluatedCount, count, ticks, partialTicks, eccentricities, meanAnomalies, eccentricAnomalies, positionX, positionY, positionZ);
+			evaluatedCount = count;
+		}
+	}
+	
+	private static void evaluate(OrbitingObject.OrbitInfo[] orbits, int from, int to, long ticks, float partialTicks,
+			double[] eccentricities, double[] meanAnomalies, double[] eccentricAnomalies, float[] positionX, float[] positionY, float[] positionZ)
+	{
+		for(int i = from; i < to; i++)
+		{
+			OrbitingObject.OrbitInfo orbitInfo = orbits[i];
+			
+			eccentricities[i] = orbitInfo.eccentricity();
+			meanAnomalies[i] = orbitInfo.meanAnomaly(ticks % orbitInfo.orbitalPeriod().ticks(), partialTicks);
+		}
+		
+		OrbitingObject.OrbitInfo.approximateEccentricAnomalies(eccentricities, meanAnomalies, eccentricAnomalies, from, to, ITERATIONS);
+		
+		Vector3f position = new Vector3f();
+		for(int i = from; i < to; i++)
+		{
+			orbits[i].getOrbitVector((float) eccentricAnomalies[i], position);
+			
+			positionX[i] = position.x;
+			positionY[i] = position.y;
+			positionZ[i] = position.z;
+		}
+	}
+	
+	//============================================================================================
+	//*****************************************Background*****************************************
+	//============================================================================================
+	
+	/**
+	 * Copies the registered orbits, so that their positions can be evaluated on another thread
+	 * @param ticks Point in time the positions should be evaluated for
+	 */
+	public static Positions snapshot(long ticks, float partialTicks)
+	{
+		return new Positions(Arrays.copyOf(orbits, count), generation, ticks, partialTicks);
+	}
+	
+	/**
+	 * Uses positions evaluated in the background in place of evaluating them for the given point in time.
+	 * Orbits registered after the snapshot was taken are still evaluated once they're needed
+	 * @param positions Evaluated positions
+	 * @return False if the orbits were cleared since the snapshot was taken, in which case nothing is adopted
+	 */
+	public static boolean adopt(Positions positions, long ticks, float partialTicks)
+	{
+		if(positions.generation != generation || positions.size() > count)
+			return false;
+		
+		int size = positions.size();
+		System.arraycopy(positions.positionX, 0, positionX, 0, size);
+		System.arraycopy(positions.positionY, 0, positionY, 0, size);
+		System.arraycopy(positions.positionZ, 0, positionZ, 0, size);
+		
+		evaluatedTicks = ticks;
+		evaluatedPartialTicks = partialTicks;
+		evaluatedCount = size;
+		
+		return true;
+	}
+}
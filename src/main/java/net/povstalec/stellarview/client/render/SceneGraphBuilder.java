@@ -0,0 +1,150 @@
+package net.povstalec.stellarview.client.render;
+
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Links Space Object Renderers to their parents. Parents are looked up by their location instead of searching through all objects,
+ * so the whole graph is put together in a single pass over the objects.
+ * Objects with a missing parent or a parent chain that loops back onto itself are left out, along with everything orbiting them
+ */
+public final class SceneGraphBuilder
+{
+	private final Map<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects;
+	
+	// Walk in which every object was reached while looking for cycles
+	private final HashMap<ResourceLocation, Integer> walks = new HashMap<ResourceLocation, Integer>();
+	private final HashSet<ResourceLocation> inCycle = new HashSet<ResourceLocation>();
+	
+	private final ArrayList<SpaceObjectRenderer<?>> roots = new ArrayList<SpaceObjectRenderer<?>>();
+	private int linked = 0;
+	private int missingParents = 0;
+	private int cycles = 0;
+	
+	public SceneGraphBuilder(Map<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects)
+	{
+		this.spaceObjects = spaceObjects;
+	}
+	
+	/**
+	 * @return Objects without a parent, which are the ones that get added to the Space Regions
+	 */
+	public List<SpaceObjectRenderer<?>> roots()
+	{
+		return roots;
+	}
+	
+	/**
+	 * @return Number of objects that were added to their parent
+	 */
+	public int linked()
+	{
+		return linked;
+	}
+	
+	public int missingParents()
+	{
+		return missingParents;
+	}
+	
+	/**
+	 * @return Number of objects that are part of a parent cycle
+	 */
+	public int cycles()
+	{
+		return cycles;
+	}
+	
+	//============================================================================================
+	//******************************************Building******************************************
+	//============================================================================================
+	
+	public SceneGraphBuilder build()
+	{
+		findCycles();
+		
+		for(Map.Entry<ResourceLocation, SpaceObjectRenderer<?>> spaceObjectEntry : spaceObjects.entrySet())
+		{
+			SpaceObjectRenderer<?> spaceObject = spaceObjectEntry.getValue();
+			Optional<ResourceLocation> parentLocation = spaceObject.renderedObject().getParentLocation();
+			
+			if(parentLocation.isEmpty())
+			{
+				roots.add(spaceObject);
+				continue;
+			}
+			
+			if(inCycle.contains(spaceObjectEntry.getKey()))
+			{
+				StellarView.LOGGER.error("Failed to add " + spaceObject.toString() + " to its parent " + parentLocation.get() + " because they orbit each other");
+				cycles++;
+				continue;
+			}
+			
+			SpaceObjectRenderer<?> parent = spaceObjects.get(parentLocation.get());
+			if(parent == null)
+			{
+				StellarView.LOGGER.error("Failed to find parent for " + spaceObject.toString());
+				missingParents++;
+				continue;
+			}
+			
+			parent.addChild(spaceObject);
+			linked++;
+		}
+		
+		return this;
+	}
+	
+	/**
+	 * Follows the parents of every object until reaching one without a parent or one that has already been reached.
+	 * If that happens during the same walk, the objects from there on orbit each other. Every object is only walked over once
+	 */
+	private void findCycles()
+	{
+		ArrayList<ResourceLocation> path = new ArrayList<ResourceLocation>();
+		int walk = 0;
+		
+		for(ResourceLocation start : spaceObjects.keySet())
+		{
+			if(walks.containsKey(start))
+				continue;
+			
+			path.clear();
+			ResourceLocation location = start;
+			while(location != null)
+			{
+				Integer reachedDuring = walks.get(location);
+				if(reachedDuring != null)
+				{
+					if(reachedDuring == walk)
+					{
+						for(int i = path.indexOf(location); i < path.size(); i++)
+						{
+							inCycle.add(path.get(i));
+						}
+					}
+					break;
+				}
+				
+				SpaceObjectRenderer<?> spaceObject = spaceObjects.get(location);
+				if(spaceObject == null)
+					break; // Missing parent, reported when linking
+				
+				walks.put(location, walk);
+				path.add(location);
+				location = spaceObject.renderedObject().getParentLocation().orElse(null);
+			}
+			
+			walk++;
+		}
+	}
+}
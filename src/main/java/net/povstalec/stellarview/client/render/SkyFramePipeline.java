@@ -0,0 +1,199 @@
+package net.povstalec.stellarview.client.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.api.common.SpaceRegion;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+/**
+ * Prepares the next frame of the sky while the current one is being rendered.
+ * With the pipelined sky enabled, the positions of all orbits and the Space Regions in range are found on a worker thread
+ * for the point in time the next frame is expected at, and that frame uses them instead of finding them on the render thread.
+ * Sky objects lag at most one frame behind that way, a frame whose preparation isn't done in time finds everything itself
+ */
+public final class SkyFramePipeline
+{
+	private static final double MAX_PREDICTED_TICKS = 20; // Frames further apart than this (times the tick multiplier) aren't used for predicting the next one
+	
+	private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, "Stellar View Sky Pipeline");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	@Nullable
+	private static CompletableFuture<PreparedFrame> pending;
+	// Prepared frame adopted by the current frame, its regions are used once the Space Renderer asks for them
+	@Nullable
+	private static PreparedFrame adopted;
+	
+	private static long frame = 0;
+	private static long ticks;
+	private static float partialTicks;
+	private static double lastTime = Double.NaN;
+	private static double advance = 0;
+	
+	private static long totalPrepared = 0;
+	private static long totalAdopted = 0;
+	
+	private static final class PreparedFrame
+	{
+		private final long frame;
+		private final OrbitEngine.Positions positions;
+		private final SpaceRegion.RegionPos regionPos;
+		private final int range;
+		private final ArrayList<SpaceRegionRenderer> regions = new ArrayList<SpaceRegionRenderer>();
+		
+		private PreparedFrame(long frame, OrbitEngine.Positions positions, SpaceRegion.RegionPos regionPos, int range)
+		{
+			this.frame = frame;
+			this.positions = positions;
+			this.regionPos = regionPos;
+			this.range = range;
+		}
+		
+		private PreparedFrame prepare(SpaceRegionIndex spaceRegions)
+		{
+			positions.evaluate();
+			spaceRegions.collectInRange(regionPos, range, regions);
+			
+			return this;
+		}
+	}
+	
+	public static boolean isEnabled()
+	{
+		return GeneralConfig.pipelined_sky.get();
+	}
+	
+	/**
+	 * Evaluates the orbits for the current frame, or adopts the ones prepared during the previous frame.
+	 * Has to be called once per frame, before anything asks for the position of an orbit
+	 */
+	public static void beginFrame(long ticks, float partialTicks)
+	{
+		SkyRenderStats.push(SkyRenderStats.Phase.VISIBILITY);
+		
+		frame++;
+		
+		// The next frame is expected to be as far ahead as this one was from the last one
+		double time = ticks + (double) partialTicks;
+		advance = time - lastTime;
+		if(Double.isNaN(advance) || advance < 0 || advance > MAX_PREDICTED_TICKS * GeneralConfig.tick_multiplier.get())
+			advance = 0;
+		lastTime = time;
+		
+		SkyFramePipeline.ticks = ticks;
+		SkyFramePipeline.partialTicks = partialTicks;
+		adopted = null;
+		
+		if(isEnabled())
+		{
+			PreparedFrame prepared = take();
+			if(prepared != null && OrbitEngine.adopt(prepared.positions, ticks, partialTicks))
+			{
+				adopted = prepared;
+				totalAdopted++;
+			}
+		}
+		else
+			clear();
+		
+		OrbitEngine.evaluateAll(ticks, partialTicks); // Orbits registered after the snapshot, or all of them if nothing was adopted
+		
+		SkyRenderStats.pop(SkyRenderStats.Phase.VISIBILITY);
+	}
+	
+	/**
+	 * Collects the Space Regions within range, using the ones prepared during the previous frame if they were prepared for the same position.
+	 * Afterwards the preparation of the next frame is started
+	 */
+	public static void collectRegions(SpaceRegionIndex spaceRegions, SpaceRegion.RegionPos pos, int range, List<SpaceRegionRenderer> output)
+	{
+		SkyRenderStats.push(SkyRenderStats.Phase.VISIBILITY);
+		
+		if(adopted != null && adopted.range == range && adopted.regionPos.equals(pos))
+			output.addAll(adopted.regions);
+		else
+			spaceRegions.collectInRange(pos, range, output);
+		
+		adopted = null;
+		
+		if(isEnabled())
+			prepareNextFrame(spaceRegions, pos, range);
+		
+		SkyRenderStats.pop(SkyRenderStats.Phase.VISIBILITY);
+	}
+	
+	/**
+	 * Waits for the frame that's being prepared and throws it away,
+	 * has to be called before the Space Regions or the orbits change so that the worker never sees them halfway through
+	 */
+	public static void clear()
+	{
+		if(pending != null)
+		{
+			pending.join();
+			pending = null;
+		}
+		
+		adopted = null;
+	}
+	
+	@Nullable
+	private static PreparedFrame take()
+	{
+		if(pending == null || !pending.isDone())
+			return null; // Not done yet, the frame after this one won't be prepared either
+		
+		PreparedFrame prepared = pending.join();
+		pending = null;
+		
+		return prepared != null && prepared.frame == frame ? prepared : null;
+	}
+	
+	private static void prepareNextFrame(SpaceRegionIndex spaceRegions, SpaceRegion.RegionPos pos, int range)
+	{
+		if(pending != null && !pending.isDone())
+			return;
+		
+		// The region of the next frame is assumed to stay the same, if it doesn't the regions are collected again
+		PreparedFrame prepared = new PreparedFrame(frame + 1, OrbitEngine.snapshot(ticks, (float) (partialTicks + advance)), pos, range);
+		
+		pending = CompletableFuture.supplyAsync(() -> prepared.prepare(spaceRegions), EXECUTOR).exceptionally(throwable ->
+		{
+			StellarView.LOGGER.error("Failed to prepare the next sky frame", throwable);
+			return null;
+		});
+		totalPrepared++;
+	}
+	
+	//============================================================================================
+	//******************************************Metrics*******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Number of frames prepared on the worker thread since the game started
+	 */
+	public static long totalPrepared()
+	{
+		return totalPrepared;
+	}
+	
+	/**
+	 * @return Number of frames that used the orbits prepared for them
+	 */
+	public static long totalAdopted()
+	{
+		return totalAdopted;
+	}
+}
@@ -0,0 +1,219 @@
+package net.povstalec.stellarview.client.render;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import net.povstalec.stellarview.api.common.SpaceRegion;
+
+/**
+ * Open addressing map of Space Region Renderers keyed by their Region Positions.
+ * Coordinates are stored in primitive arrays and hashed with {@link SpaceRegion.RegionPos#key(long, long, long)},
+ * which lets the regions around the View Center be looked up cell by cell without allocating anything
+ */
+public final class SpaceRegionIndex
+{
+	private static final int MIN_CAPACITY = 16;
+	
+	private long[] keysX;
+	private long[] keysY;
+	private long[] keysZ;
+	private SpaceRegionRenderer[] values;
+	private int mask;
+	private int size;
+	
+	public SpaceRegionIndex()
+	{
+		allocate(MIN_CAPACITY);
+	}
+	
+	private void allocate(int capacity)
+	{
+		this.keysX = new long[capacity];
+		this.keysY = new long[capacity];
+		this.keysZ = new long[capacity];
+		this.values = new SpaceRegionRenderer[capacity];
+		this.mask = capacity - 1;
+	}
+	
+	public int size()
+	{
+		return size;
+	}
+	
+	private int slot(long x, long y, long z)
+	{
+		return (int) SpaceRegion.RegionPos.key(x, y, z) & mask;
+	}
+	
+	/**
+	 * @return Index of the slot containing the position, or -1 if the position isn't in the index
+	 */
+	private int find(long x, long y, long z)
+	{
+		for(int i = slot(x, y, z); values[i] != null; i = (i + 1) & mask)
+		{
+			if(keysX[i] == x && keysY[i] == y && keysZ[i] == z)
+				return i;
+		}
+		
+		return -1;
+	}
+	
+	@Nullable
+	public SpaceRegionRenderer get(long x, long y, long z)
+	{
+		int i = find(x, y, z);
+		
+		return i < 0 ? null : values[i];
+	}
+	
+	@Nullable
+	public SpaceRegionRenderer get(SpaceRegion.RegionPos pos)
+	{
+		return get(pos.x(), pos.y(), pos.z());
+	}
+	
+	/**
+	 * @return The Space Region Renderer previously stored at the position, or null if there was none
+	 */
+	@Nullable
+	public SpaceRegionRenderer put(SpaceRegion.RegionPos pos, SpaceRegionRenderer spaceRegion)
+	{
+		int i = find(pos.x(), pos.y(), pos.z());
+		if(i >= 0)
+		{
+			SpaceRegionRenderer previous = values[i];
+			values[i] = spaceRegion;
+			return previous;
+		}
+		
+		// Load factor is kept at or below 0.5, which keeps the probe sequences short
+		if((size + 1) * 2 > values.length)
+			resize(values.length * 2);
+		
+		insert(pos.x(), pos.y(), pos.z(), spaceRegion);
+		size++;
+		
+		return null;
+	}
+	
+	private void insert(long x, long y, long z, SpaceRegionRenderer spaceRegion)
+	{
+		int i = slot(x, y, z);
+		while(values[i] != null)
+		{
+			i = (i + 1) & mask;
+		}
+		
+		keysX[i] = x;
+		keysY[i] = y;
+		keysZ[i] = z;
+		values[i] = spaceRegion;
+	}
+	
+	private void resize(int capacity)
+	{
+		long[] oldX = keysX;
+		long[] oldY = keysY;
+		long[] oldZ = keysZ;
+		SpaceRegionRenderer[] oldValues = values;
+		
+		allocate(capacity);
+		
+		for(int i = 0; i < oldValues.length; i++)
+		{
+			if(oldValues[i] != null)
+				insert(oldX[i], oldY[i], oldZ[i], oldValues[i]);
+		}
+	}
+	
+	/**
+	 * @return The removed Space Region Renderer, or null if there was nothing at the position
+	 */
+	@Nullable
+	public SpaceRegionRenderer remove(SpaceRegion.RegionPos pos)
+	{
+		int i = find(pos.x(), pos.y(), pos.z());
+		if(i < 0)
+			return null;
+		
+		SpaceRegionRenderer removed = values[i];
+		values[i] = null;
+		size--;
+		
+		// Entries after the removed one are shifted back, so that no probe sequence gets interrupted by the empty slot
+		int empty = i;
+		for(int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask)
+		{
+			int home = slot(keysX[j], keysY[j], keysZ[j]);
+			
+			// The entry can only be moved if its home slot isn't cyclically between the empty slot and its current slot
+			if(((j - home) & mask) >= ((j - empty) & mask))
+			{
+				keysX[empty] = keysX[j];
+				keysY[empty] = keysY[j];
+				keysZ[empty] = keysZ[j];
+				values[empty] = values[j];
+				values[j] = null;
+				empty = j;
+			}
+		}
+		
+		return removed;
+	}
+	
+	public void clear()
+	{
+		allocate(MIN_CAPACITY);
+		size = 0;
+	}
+	
+	public void forEach(Consumer<SpaceRegionRenderer> action)
+	{
+		for(SpaceRegionRenderer spaceRegion : values)
+		{
+			if(spaceRegion != null)
+				action.accept(spaceRegion);
+		}
+	}
+	
+	/**
+	 * Collects all Space Region Renderers within range of the center, which matches {@link SpaceRegion.RegionPos#isInRange(SpaceRegion.RegionPos, int)}.
+	 * When there are fewer regions than cells in range, it's cheaper to check every region instead of looking up every cell
+	 * @param center Position of the region in the center of the range
+	 * @param range Range in regions, regions whose distance along any axis reaches the range are left out
+	 * @param output List the Space Region Renderers are added to
+	 */
+	public void collectInRange(SpaceRegion.RegionPos center, int range, List<SpaceRegionRenderer> output)
+	{
+		if(range <= 0 || size == 0)
+			return;
+		
+		long width = 2L * range - 1;
+		
+		if(size < width * width * width)
+		{
+			for(SpaceRegionRenderer spaceRegion : values)
+			{
+				if(spaceRegion != null && spaceRegion.getRegionPos().isInRange(center, range))
+					output.add(spaceRegion);
+			}
+			return;
+		}
+		
+		for(long x = center.x() - range + 1; x < center.x() + range; x++)
+		{
+			for(long y = center.y() - range + 1; y < center.y() + range; y++)
+			{
+				for(long z = center.z() - range + 1; z < center.z() + range; z++)
+				{
+					SpaceRegionRenderer spaceRegion = get(x, y, z);
+					if(spaceRegion != null)
+						output.add(spaceRegion);
+				}
+			}
+		}
+	}
+}
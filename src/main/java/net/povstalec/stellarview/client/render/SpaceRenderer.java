@@ -1,7 +1,6 @@
 package net.povstalec.stellarview.client.render;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
 
 import javax.annotation.Nullable;
 
@@ -9,6 +8,7 @@ import com.mojang.blaze3d.vertex.Tesselator;
 import net.minecraft.client.Minecraft;
 import net.minecraft.resources.ResourceLocation;
 import net.povstalec.stellarview.api.common.SpaceRegion;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.client.resourcepack.effects.MeteorEffect;
@@ -31,10 +31,9 @@ public final class SpaceRenderer
 {
 	private static final Vector3f NULL_VECTOR = new Vector3f();
 	
-	private static final int STAR_LIMIT = 100000;
-	private static final int DUST_CLOUD_LIMIT = 50000;
-	
-	private static final HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer> SPACE_REGIONS = new HashMap<SpaceRegion.RegionPos, SpaceRegionRenderer>();
+	private static final SpaceRegionIndex SPACE_REGIONS = new SpaceRegionIndex();
+	// Reused every frame, holds the Space Regions within render distance of the View Center
+	private static final ArrayList<SpaceRegionRenderer> REGIONS_IN_RANGE = new ArrayList<SpaceRegionRenderer>();
 	
 	public static final Matrix3f IDENTITY_MATRIX = new Matrix3f();
 	
@@ -49,9 +48,6 @@ public final class SpaceRenderer
 	@Nullable
 	private static AxisRotation solAxisRotation = null;
 	
-	private static int starsPerTick = 0;
-	private static int dustCloudsPerTick = 0;
-	
 	public static void updateSpaceObjects()
 	{
 		if(Minecraft.getInstance().level == null)
@@ -61,42 +57,29 @@ public final class SpaceRenderer
 		SpaceRenderer.resetStarFields();
 	}
 	
-	public static boolean loadNewStars()
-	{
-		return starsPerTick < STAR_LIMIT;
-	}
-	
-	public static void loadedStars(int starCount)
-	{
-		starsPerTick += starCount;
-	}
-	
-	public static boolean loadNewDustClouds()
-	{
-		return dustCloudsPerTick < DUST_CLOUD_LIMIT;
-	}
-	
-	public static void loadedDustClouds(int dustCloudCount)
-	{
-		dustCloudsPerTick += dustCloudCount;
-	}
-	
 	public static void clear()
 	{
 		sol = null;
 		solCoords = null;
 		solAxisRotation = null;
 		
+		SkyFramePipeline.clear();
+		BufferUploadScheduler.clear();
+		OrbitEngine.clear();
+		SpriteBatcher.discard();
 		SPACE_REGIONS.clear();
+		REGIONS_IN_RANGE.clear();
 	}
 	
 	public static void addSpaceRegion(SpaceRegionRenderer spaceRegion)
 	{
+		SkyFramePipeline.clear();
 		SPACE_REGIONS.put(spaceRegion.getRegionPos(), spaceRegion);
 	}
 	
 	public static void removeSpaceRegion(SpaceRegion.RegionPos regionPos)
 	{
+		SkyFramePipeline.clear();
 		SPACE_REGIONS.remove(regionPos);
 	}
 	
@@ -109,55 +92,61 @@ public final class SpaceRenderer
 	
 	public static void setupSynodicOrbits()
 	{
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
-		{
-			spaceRegionEntry.getValue().setupSynodicOrbits();
-		}
+		SPACE_REGIONS.forEach(SpaceRegionRenderer::setupSynodicOrbits);
 	}
 	
 	public static void resetStarFields()
 	{
-		starsPerTick = 0;
-		dustCloudsPerTick = 0;
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
-		{
-			spaceRegionEntry.getValue().resetStarFields();
-		}
+		BufferUploadScheduler.clear();
+		SPACE_REGIONS.forEach(SpaceRegionRenderer::resetStarFields);
 	}
 	
 	public static void render(ViewCenter viewCenter, SpaceObjectRenderer masterParent, ClientLevel level, Camera camera, float partialTicks, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog, Tesselator tesselator)
 	{
-		starsPerTick = 0;
-		dustCloudsPerTick = 0;
-		setBestLensing();
+		// Buffers requested during the previous frame are uploaded first, so that they can be rendered right away
+		SkyRenderStats.push(SkyRenderStats.Phase.BUFFER_UPLOADS);
+		BufferUploadScheduler.processUploads();
+		BufferResidency.beginFrame();
+		SkyRenderStats.pop(SkyRenderStats.Phase.BUFFER_UPLOADS);
+		
+		SkyRenderStats.push(SkyRenderStats.Phase.SPACE);
 		
 		SpaceRegion.RegionPos pos = new SpaceRegion.RegionPos(viewCenter.getCoords());
 		
+		// Only the cells within render distance are looked at, so the cost doesn't grow with the number of regions in the universe
+		REGIONS_IN_RANGE.clear();
+		SkyFramePipeline.collectRegions(SPACE_REGIONS, pos, getRange(), REGIONS_IN_RANGE);
+		
+		setBestLensing();
+		
 		if(viewCenter.dustCloudBrightness() > 0)
 		{
-			for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+			SkyRenderStats.push(SkyRenderStats.Phase.DUST_CLOUDS);
+			for(SpaceRegionRenderer spaceRegion : REGIONS_IN_RANGE)
 			{
-				if(spaceRegionEntry.getKey().isInRange(pos, getRange()))
-					spaceRegionEntry.getValue().renderDustClouds(viewCenter, level, camera, partialTicks, modelViewMatrix, projectionMatrix, setupFog, viewCenter.dustCloudBrightness());
+				spaceRegion.renderDustClouds(viewCenter, level, camera, partialTicks, modelViewMatrix, projectionMatrix, setupFog, viewCenter.dustCloudBrightness());
 			}
+			SkyRenderStats.pop(SkyRenderStats.Phase.DUST_CLOUDS);
 		}
 		
 		SpaceRegionRenderer centerRegion = null;
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+		for(SpaceRegionRenderer spaceRegion : REGIONS_IN_RANGE)
 		{
-			if(!spaceRegionEntry.getKey().equals(pos))
-			{
-				if(spaceRegionEntry.getKey().isInRange(pos, getRange()))
-					spaceRegionEntry.getValue().render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
-			}
+			if(!spaceRegion.getRegionPos().equals(pos))
+				spaceRegion.render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
 			else
-				centerRegion = spaceRegionEntry.getValue();
+				centerRegion = spaceRegion;
 		}
 		
 		if(centerRegion != null)
 			centerRegion.render(viewCenter, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
 		
 		masterParent.render(viewCenter, level, partialTicks, modelViewMatrix, camera, projectionMatrix, isFoggy, setupFog, tesselator, NULL_VECTOR, new AxisRotation());
+		
+		SpriteBatcher.flush();
+		StarDrawBatch.end();
+		
+		SkyRenderStats.pop(SkyRenderStats.Phase.SPACE);
 	}
 	
 	
@@ -168,9 +157,9 @@ public final class SpaceRenderer
 		lensingMatrixInv = IDENTITY_MATRIX;
 		lensingIntensity = 0;
 		
-		for(Map.Entry<SpaceRegion.RegionPos, SpaceRegionRenderer> spaceRegionEntry : SPACE_REGIONS.entrySet())
+		for(SpaceRegionRenderer spaceRegion : REGIONS_IN_RANGE)
 		{
-			spaceRegionEntry.getValue().setBestLensing();
+			spaceRegion.setBestLensing();
 		}
 	}
 	
@@ -221,10 +210,7 @@ public final class SpaceRenderer
 	@Nullable
 	public static SpaceRegionRenderer getRegion(SpaceRegion.RegionPos pos)
 	{
-		if(SPACE_REGIONS.containsKey(pos))
-			return SPACE_REGIONS.get(pos);
-		
-		return null;
+		return SPACE_REGIONS.get(pos);
 	}
 	
 	@Nullable
@@ -235,7 +221,16 @@ public final class SpaceRenderer
 	
 	public static SpaceRegionRenderer getOrCreateRegion(SpaceRegion.RegionPos pos)
 	{
-		return SPACE_REGIONS.computeIfAbsent(pos, position -> new SpaceRegionRenderer(new SpaceRegion(pos)));
+		SpaceRegionRenderer region = SPACE_REGIONS.get(pos);
+		
+		if(region == null)
+		{
+			SkyFramePipeline.clear();
+			region = new SpaceRegionRenderer(new SpaceRegion(pos));
+			SPACE_REGIONS.put(pos, region);
+		}
+		
+		return region;
 	}
 	
 	public static SpaceRegionRenderer getOrCreateRegion(SpaceCoords coords)
@@ -0,0 +1,319 @@
+package net.povstalec.stellarview.client.render;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import javax.annotation.Nullable;
+
+import com.mojang.blaze3d.platform.GlStateManager;
+import com.mojang.blaze3d.systems.RenderSystem;
+import com.mojang.blaze3d.vertex.BufferBuilder;
+import com.mojang.blaze3d.vertex.ByteBufferBuilder;
+import com.mojang.blaze3d.vertex.DefaultVertexFormat;
+import com.mojang.blaze3d.vertex.MeshData;
+import com.mojang.blaze3d.vertex.VertexFormat;
+
+import net.minecraft.client.renderer.GameRenderer;
+import net.minecraft.client.renderer.ShaderInstance;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.Mth;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
+import net.povstalec.stellarview.client.util.StarBuffer;
+import net.povstalec.stellarview.common.util.AtlasSprite;
+import net.povstalec.stellarview.common.util.UV;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.opengl.GL15C;
+
+/**
+ * Collects the quads of all Texture Layers rendered during a frame and draws them from a single vertex buffer.
+ * Additive quads don't depend on the order they're drawn in, so every uninterrupted span of them is grouped by texture,
+ * while quads with regular alpha blending keep their exact place in the back-to-front order
+ */
+public final class SpriteBatcher
+{
+	private static final VertexFormat FORMAT = DefaultVertexFormat.POSITION_TEX_COLOR;
+	private static final int FLOATS_PER_VERTEX = 5; // Position and UV, the color is shared by the whole quad
+	private static final int FLOATS_PER_QUAD = FLOATS_PER_VERTEX * 4 + 4;
+	private static final int MIN_CAPACITY = 64;
+	
+	// Queued quads, positions are already transformed by the pose they were queued with
+	private static float[] quadData = new float[MIN_CAPACITY * FLOATS_PER_QUAD];
+	private static ResourceLocation[] quadTextures = new ResourceLocation[MIN_CAPACITY];
+	private static boolean[] quadAdditive = new boolean[MIN_CAPACITY];
+	private static int quads = 0;
+	
+	// Order the quads get written in
+	private static int[] order = new int[MIN_CAPACITY];
+	private static int[] textureIds = new int[MIN_CAPACITY];
+	private static int[] textureStart = new int[16];
+	private static final HashMap<ResourceLocation, Integer> SPAN_TEXTURES = new HashMap<ResourceLocation, Integer>();
+	
+	// Consecutive quads sharing their texture and blending, each run takes a single draw
+	private static ResourceLocation[] runTextures = new ResourceLocation[MIN_CAPACITY];
+	private static boolean[] runAdditive = new boolean[MIN_CAPACITY];
+	private static int[] runStart = new int[MIN_CAPACITY + 1];
+	private static int runs = 0;
+	
+	private static final Vector3f CORNER = new Vector3f();
+	private static final int[] RANGE = new int[2];
+	
+	@Nullable
+	private static ByteBufferBuilder byteBuffer;
+	@Nullable
+	private static StarBuffer buffer;
+	
+	/**
+	 * @return Number of quads waiting to be drawn
+	 */
+	public static int queued()
+	{
+		return quads;
+	}
+	
+	/**
+	 * @return Number of runs the last built batch was split into, which is the number of draws it takes
+	 */
+	public static int runs()
+	{
+		return runs;
+	}
+	
+	//============================================================================================
+	//******************************************Queueing******************************************
+	//============================================================================================
+	
+	/**
+	 * Queues a single quad, the corners are in the order of the UV corners top right, bottom right, bottom left and top left
+	 * @param sprite Sprite the UVs get mapped into
+	 * @param additive Whether the quad is blended additively, or with regular alpha blending
+	 */
+	public static void queue(AtlasSprite sprite, boolean additive, Matrix4f pose, Vector3f corner00, Vector3f corner10, Vector3f corner11, Vector3f corner01,
+							 UV.Quad uv, long ticks, float red, float green, float blue, float alpha)
+	{
+		if(quads == quadTextures.length)
+			grow(quads * 2);
+		
+		int offset = quads * FLOATS_PER_QUAD;
+		offset = putVertex(offset, pose, corner00, uv.topRight(), sprite, ticks);
+		offset = putVertex(offset, pose, corner10, uv.bottomRight(), sprite, ticks);
+		offset = putVertex(offset, pose, corner11, uv.bottomLeft(), sprite, ticks);
+		offset = putVertex(offset, pose, corner01, uv.topLeft(), sprite, ticks);
+		
+		// Vertex colors can't go past 1 the way the shader color could
+		quadData[offset] = Mth.clamp(red, 0.0F, 1.0F);
+		quadData[offset + 1] = Mth.clamp(green, 0.0F, 1.0F);
+		quadData[offset + 2] = Mth.clamp(blue, 0.0F, 1.0F);
+		quadData[offset + 3] = Mth.clamp(alpha, 0.0F, 1.0F);
+		
+		quadTextures[quads] = sprite.texture();
+		quadAdditive[quads] = additive;
+		quads++;
+	}
+	
+	private static int putVertex(int offset, Matrix4f pose, Vector3f corner, UV uv, AtlasSprite sprite, long ticks)
+	{
+		pose.transformPosition(corner.x, corner.y, corner.z, CORNER);
+		
+		quadData[offset] = CORNER.x;
+		quadData[offset + 1] = CORNER.y;
+		quadData[offset + 2] = CORNER.z;
+		quadData[offset + 3] = sprite.u(uv.u(ticks));
+		quadData[offset + 4] = sprite.v(uv.v(ticks));
+		
+		return offset + FLOATS_PER_VERTEX;
+	}
+	
+	private static void grow(int capacity)
+	{
+		quadData = Arrays.copyOf(quadData, capacity * FLOATS_PER_QUAD);
+		quadTextures = Arrays.copyOf(quadTextures, capacity);
+		quadAdditive = Arrays.copyOf(quadAdditive, capacity);
+		
+		order = new int[capacity];
+		textureIds = new int[capacity];
+		
+		runTextures = new ResourceLocation[capacity];
+		runAdditive = new boolean[capacity];
+		runStart = new int[capacity + 1];
+	}
+	
+	/**
+	 * Drops everything that was queued without drawing it
+	 */
+	public static void discard()
+	{
+		Arrays.fill(quadTextures, 0, quads, null);
+		quads = 0;
+	}
+	
+	//============================================================================================
+	//******************************************Batching******************************************
+	//============================================================================================
+	
+	/**
+	 * Writes the queued quads into a mesh in the order they'll be drawn in and splits them into runs, the queue is emptied afterwards
+	 * @return Mesh containing the quads, which needs to be closed once it's been uploaded, or null if nothing was queued
+	 */
+	@Nullable
+	public static MeshData build()
+	{
+		Arrays.fill(runTextures, 0, runs, null);
+		runs = 0;
+		
+		if(quads == 0)
+			return null;
+		
+		sort();
+		
+		if(byteBuffer == null)
+			byteBuffer = new ByteBufferBuilder(quads * 4 * FORMAT.getVertexSize());
+		
+		BufferBuilder builder = new BufferBuilder(byteBuffer, VertexFormat.Mode.QUADS, FORMAT);
+		
+		for(int i = 0; i < quads; i++)
+		{
+			int quad = order[i];
+			int offset = quad * FLOATS_PER_QUAD;
+			int colorOffset = offset + FLOATS_PER_VERTEX * 4;
+			
+			for(int vertex = 0; vertex < 4; vertex++, offset += FLOATS_PER_VERTEX)
+			{
+				builder.addVertex(quadData[offset], quadData[offset + 1], quadData[offset + 2])
+						.setUv(quadData[offset + 3], quadData[offset + 4])
+						.setColor(quadData[colorOffset], quadData[colorOffset + 1], quadData[colorOffset + 2], quadData[colorOffset + 3]);
+			}
+			
+			if(runs == 0 || quadAdditive[quad] != runAdditive[runs - 1] || !quadTextures[quad].equals(runTextures[runs - 1]))
+			{
+				runTextures[runs] = quadTextures[quad];
+				runAdditive[runs] = quadAdditive[quad];
+				runStart[runs] = i;
+				runs++;
+			}
+		}
+		runStart[runs] = quads;
+		
+		discard();
+		
+		return builder.buildOrThrow();
+	}
+	
+	private static void sort()
+	{
+		int start = 0;
+		while(start < quads)
+		{
+			int end = start + 1;
+			
+			if(quadAdditive[start])
+			{
+				while(end < quads && quadAdditive[end])
+				{
+					end++;
+				}
+				sortSpan(start, end);
+			}
+			else
+				order[start] = start;
+			
+			start = end;
+		}
+	}
+	
+	/**
+	 * Groups a span of additive quads by texture, the textures keep the order they first appear in and so do the quads sharing one
+	 */
+	private static void sortSpan(int start, int end)
+	{
+		SPAN_TEXTURES.clear();
+		for(int quad = start; quad < end; quad++)
+		{
+			Integer id = SPAN_TEXTURES.get(quadTextures[quad]);
+			if(id == null)
+			{
+				id = SPAN_TEXTURES.size();
+				SPAN_TEXTURES.put(quadTextures[quad], id);
+			}
+			textureIds[quad] = id;
+		}
+		
+		// Counting sort by texture
+		int textures = SPAN_TEXTURES.size();
+		if(textureStart.length < textures + 1)
+			textureStart = new int[Math.max(textures + 1, textureStart.length * 2)];
+		
+		Arrays.fill(textureStart, 0, textures + 1, 0);
+		for(int quad = start; quad < end; quad++)
+		{
+			textureStart[textureIds[quad] + 1]++;
+		}
+		
+		textureStart[0] = start;
+		for(int texture = 0; texture < textures; texture++)
+		{
+			textureStart[texture + 1] += textureStart[texture];
+		}
+		
+		for(int quad = start; quad < end; quad++)
+		{
+			order[textureStart[textureIds[quad]]++] = quad;
+		}
+	}
+	
+	//============================================================================================
+	//*****************************************Rendering******************************************
+	//============================================================================================
+	
+	/**
+	 * Draws everything queued so far, has to be called before anything that isn't batched gets drawn over the queued quads
+	 */
+	public static void flush()
+	{
+		if(quads == 0)
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		int batchedQuads = quads;
+		MeshData mesh = build();
+		
+		if(buffer == null || buffer.isInvalid())
+			buffer = new StarBuffer();
+		
+		try
+		{
+			buffer.bind();
+			buffer.upload(mesh.vertexBuffer(), FORMAT, VertexFormat.Mode.QUADS, batchedQuads * 4, GL15C.GL_DYNAMIC_DRAW);
+		}
+		finally
+		{
+			mesh.close();
+		}
+		
+		// The color of every quad is in its vertices
+		RenderSystem.setShaderColor(1.0F, 1.0F, 1.0F, 1.0F);
+		ShaderInstance shader = GameRenderer.getPositionTexColorShader();
+		
+		for(int run = 0; run < runs; run++)
+		{
+			if(runAdditive[run])
+				RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
+			else
+				RenderSystem.defaultBlendFunc();
+			
+			RenderSystem.setShaderTexture(0, runTextures[run]);
+			
+			RANGE[0] = runStart[run];
+			RANGE[1] = runStart[run + 1] - runStart[run];
+			buffer.setDrawRanges(RANGE, 1);
+			buffer.drawWithShader(RenderSystem.getModelViewMatrix(), RenderSystem.getProjectionMatrix(), shader);
+		}
+		
+		StarBuffer.unbind();
+		RenderSystem.defaultBlendFunc();
+		
+		SkyRenderStats.add(SkyRenderStats.Counter.SPRITES, batchedQuads);
+		SkyRenderStats.add(SkyRenderStats.Counter.SPRITE_BATCHES, runs);
+	}
+}
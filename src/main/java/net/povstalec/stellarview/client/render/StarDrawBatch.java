@@ -0,0 +1,107 @@
+package net.povstalec.stellarview.client.render;
+
+import com.mojang.blaze3d.platform.Window;
+import com.mojang.blaze3d.systems.RenderSystem;
+
+import net.minecraft.client.Minecraft;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
+import net.povstalec.stellarview.client.render.shader.StarShaderInstance;
+import net.povstalec.stellarview.client.util.StarBuffer;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+import org.joml.Matrix4f;
+
+/**
+ * Draws the Stars of consecutive Star Fields without setting the star shader up again for each of them.
+ * The first draw applies everything the Star Fields share, the following ones only update the uniforms that differ between them,
+ * which is the same way vanilla draws its chunk sections. The batch lasts until something else is drawn or the sky is done
+ */
+public final class StarDrawBatch
+{
+	private static final DrawBatch<StarShaderInstance> BATCH = new DrawBatch<StarShaderInstance>(StarShaderInstance::clear);
+	
+	/**
+	 * Draws the buffer with the shader, which stays applied for the following draws
+	 * @param relativeSpacePos Difference between the View Center and the Star Field
+	 */
+	public static void draw(StarBuffer buffer, Matrix4f modelViewMatrix, Matrix4f projectionMatrix, SpaceCoords relativeSpacePos, StarShaderInstance shaderInstance)
+	{
+		if(BATCH.draw(shaderInstance))
+			begin(shaderInstance, projectionMatrix);
+		
+		// Each Star Field has its own texture, brightness and position
+		shaderInstance.setSampler("Sampler0", RenderSystem.getShaderTexture(0));
+		
+		if(shaderInstance.MODEL_VIEW_MATRIX != null)
+			shaderInstance.MODEL_VIEW_MATRIX.set(modelViewMatrix);
+		
+		if(shaderInstance.COLOR_MODULATOR != null)
+			shaderInstance.COLOR_MODULATOR.set(RenderSystem.getShaderColor());
+		
+		if(shaderInstance.RELATIVE_SPACE_LY != null)
+			shaderInstance.RELATIVE_SPACE_LY.set((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
+		
+		if(shaderInstance.RELATIVE_SPACE_KM != null)
+			shaderInstance.RELATIVE_SPACE_KM.set((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
+		
+		// The program is only switched to if something else has been applied in the meantime, only the changed uniforms are uploaded
+		shaderInstance.apply();
+		buffer.draw();
+	}
+	
+	/**
+	 * Clears the shader, has to be called before anything other than Stars is drawn
+	 */
+	public static void end()
+	{
+		BATCH.end();
+	}
+	
+	private static void begin(StarShaderInstance shaderInstance, Matrix4f projectionMatrix)
+	{
+		SkyRenderStats.increment(SkyRenderStats.Counter.STAR_BATCHES);
+		
+		for(int i = 0; i < 12; ++i)
+		{
+			int j = RenderSystem.getShaderTexture(i);
+			shaderInstance.setSampler("Sampler" + i, j);
+		}
+		
+		if(shaderInstance.PROJECTION_MATRIX != null)
+			shaderInstance.PROJECTION_MATRIX.set(projectionMatrix);
+		
+		if(shaderInstance.FOG_START != null)
+			shaderInstance.FOG_START.set(RenderSystem.getShaderFogStart());
+		
+		if(shaderInstance.FOG_END != null)
+			shaderInstance.FOG_END.set(RenderSystem.getShaderFogEnd());
+		
+		if(shaderInstance.FOG_COLOR != null)
+			shaderInstance.FOG_COLOR.set(RenderSystem.getShaderFogColor());
+		
+		if(shaderInstance.FOG_SHAPE != null)
+			shaderInstance.FOG_SHAPE.set(RenderSystem.getShaderFogShape().getIndex());
+		
+		if(shaderInstance.TEXTURE_MATRIX != null)
+			shaderInstance.TEXTURE_MATRIX.set(RenderSystem.getTextureMatrix());
+		
+		if(shaderInstance.GAME_TIME != null)
+			shaderInstance.GAME_TIME.set(RenderSystem.getShaderGameTime());
+		
+		if(shaderInstance.SCREEN_SIZE != null)
+		{
+			Window window = Minecraft.getInstance().getWindow();
+			shaderInstance.SCREEN_SIZE.set((float)window.getWidth(), (float)window.getHeight());
+		}
+		
+		if(shaderInstance.LENSING_MAT != null)
+			shaderInstance.LENSING_MAT.set(SpaceRenderer.lensingMatrix);
+		
+		if(shaderInstance.LENSING_MAT_INV != null)
+			shaderInstance.LENSING_MAT_INV.set(SpaceRenderer.lensingMatrixInv);
+		
+		if(shaderInstance.LENSING_INTENSITY != null)
+			shaderInstance.LENSING_INTENSITY.set(SpaceRenderer.lensingIntensity);
+		
+		RenderSystem.setupShaderLights(shaderInstance);
+	}
+}
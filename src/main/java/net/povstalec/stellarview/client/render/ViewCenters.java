@@ -18,6 +18,10 @@ public final class ViewCenters
 	
 	public static void clear()
 	{
+		for(ViewCenter viewCenter : VIEW_CENTER_MAP.values())
+		{
+			viewCenter.close();
+		}
 		VIEW_CENTER_MAP.clear();
 	}
 	
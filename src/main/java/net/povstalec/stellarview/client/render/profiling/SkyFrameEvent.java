@@ -0,0 +1,78 @@
+package net.povstalec.stellarview.client.render.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event summarizing the sky rendering of a single frame
+ */
+@Name("stellarview.SkyFrame")
+@Label("Sky Frame")
+@Description("Counters and phase times of Stellar View sky rendering during a single frame")
+@Category({"Stellar View", "Rendering"})
+@StackTrace(false)
+public class SkyFrameEvent extends Event
+{
+	@Label("Draw Calls")
+	public long drawCalls;
+	
+	@Label("Vertices")
+	public long vertices;
+	
+	@Label("Buffers Built")
+	public long buffersBuilt;
+	
+	@Label("Objects Rendered")
+	public long objectsRendered;
+	
+	@Label("Objects Culled")
+	public long objectsCulled;
+	
+	@Label("Tiles Rendered")
+	public long tilesRendered;
+	
+	@Label("Tiles Culled")
+	public long tilesCulled;
+	
+	@Label("Sprites")
+	@Description("Texture Layer quads, each of which used to take its own draw call")
+	public long sprites;
+	
+	@Label("Sprite Batches")
+	@Description("Draw calls the Texture Layer quads were batched into")
+	public long spriteBatches;
+	
+	@Label("Star Batches")
+	@Description("Times the star shader was set up, consecutive Star Fields share one setup")
+	public long starBatches;
+	
+	@Label("Buffer Upload Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long bufferUploadNanos;
+	
+	@Label("Space Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long spaceNanos;
+	
+	@Label("Visibility Time")
+	@Description("Time the render thread spent evaluating orbits and finding the Space Regions in range, most of which the pipelined sky moves to a worker thread")
+	@Timespan(Timespan.NANOSECONDS)
+	public long visibilityNanos;
+	
+	@Label("Dust Cloud Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long dustCloudNanos;
+	
+	@Label("Star Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long starNanos;
+	
+	@Label("Textured Object Time")
+	@Timespan(Timespan.NANOSECONDS)
+	public long texturedObjectNanos;
+}
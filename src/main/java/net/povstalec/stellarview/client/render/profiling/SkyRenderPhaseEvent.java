@@ -0,0 +1,22 @@
+package net.povstalec.stellarview.client.render.profiling;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event covering a single phase of sky rendering, see {@link SkyRenderStats.Phase}
+ */
+@Name("stellarview.SkyRenderPhase")
+@Label("Sky Render Phase")
+@Description("Time spent in a single phase of Stellar View sky rendering")
+@Category({"Stellar View", "Rendering"})
+@StackTrace(false)
+public class SkyRenderPhaseEvent extends Event
+{
+	@Label("Phase")
+	public String phase;
+}
@@ -0,0 +1,237 @@
+package net.povstalec.stellarview.client.render.profiling;
+
+import jdk.jfr.EventType;
+import net.minecraft.client.Minecraft;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.povstalec.stellarview.StellarView;
+
+/**
+ * Keeps track of where the time of sky rendering goes.
+ * Every phase shows up as a section of the vanilla profiler (and with it the F3 pie chart) and as a Flight Recorder event,
+ * while the counters are collected for each frame and published as a single Flight Recorder event at the end of it
+ */
+public final class SkyRenderStats
+{
+	private static final int MAX_DEPTH = 16;
+	
+	private static final EventType PHASE_EVENT = EventType.getEventType(SkyRenderPhaseEvent.class);
+	private static final EventType FRAME_EVENT = EventType.getEventType(SkyFrameEvent.class);
+	
+	private static final Phase[] PHASE_STACK = new Phase[MAX_DEPTH];
+	private static final long[] PHASE_START = new long[MAX_DEPTH];
+	private static final SkyRenderPhaseEvent[] EVENT_STACK = new SkyRenderPhaseEvent[MAX_DEPTH];
+	private static int depth = 0;
+	
+	private static final long[] COUNTERS = new long[Counter.values().length];
+	private static final long[] LAST_COUNTERS = new long[Counter.values().length];
+	private static final long[] PHASE_NANOS = new long[Phase.values().length];
+	private static final long[] LAST_PHASE_NANOS = new long[Phase.values().length];
+	
+	public enum Phase
+	{
+		SKY("stellarview_sky"),
+		BUFFER_UPLOADS("buffer_uploads"),
+		SPACE("space"),
+		VISIBILITY("visibility"),
+		DUST_CLOUDS("dust_clouds"),
+		STARS("stars"),
+		TEXTURED_OBJECTS("textured_objects");
+		
+		private final String name;
+		
+		Phase(String name)
+		{
+			this.name = name;
+		}
+		
+		public String getName()
+		{
+			return name;
+		}
+	}
+	
+	public enum Counter
+	{
+		DRAW_CALLS("draw_calls"),
+		VERTICES("vertices"),
+		BUFFERS_BUILT("buffers_built"),
+		OBJECTS_RENDERED("objects_rendered"),
+		OBJECTS_CULLED("objects_culled"),
+		TILES_RENDERED("tiles_rendered"),
+		TILES_CULLED("tiles_culled"),
+		SPRITES("sprites"),
+		SPRITE_BATCHES("sprite_batches"),
+		STAR_BATCHES("star_batches");
+		
+		private final String name;
+		
+		Counter(String name)
+		{
+			this.name = name;
+		}
+		
+		public String getName()
+		{
+			return name;
+		}
+	}
+	
+	private static ProfilerFiller profiler()
+	{
+		return Minecraft.getInstance().getProfiler();
+	}
+	
+	//============================================================================================
+	//*******************************************Phases*******************************************
+	//============================================================================================
+	
+	/**
+	 * Starts a new phase, every push has to be followed by a {@link #pop(Phase)} of the same phase
+	 */
+	public static void push(Phase phase)
+	{
+		profiler().push(phase.getName());
+		
+		if(depth >= MAX_DEPTH)
+		{
+			depth++; // Still counted so that the pops match, but too deep to be timed
+			return;
+		}
+		
+		PHASE_STACK[depth] = phase;
+		PHASE_START[depth] = System.nanoTime();
+		
+		if(PHASE_EVENT.isEnabled())
+		{
+			SkyRenderPhaseEvent event = new SkyRenderPhaseEvent();
+			event.phase = phase.getName();
+			event.begin();
+			EVENT_STACK[depth] = event;
+		}
+		
+		depth++;
+	}
+	
+	public static void pop(Phase phase)
+	{
+		if(depth <= 0)
+			return;
+		
+		depth--;
+		profiler().pop();
+		
+		if(depth >= MAX_DEPTH)
+			return;
+		
+		if(PHASE_STACK[depth] != phase)
+			StellarView.LOGGER.warn("Sky render phase " + phase.getName() + " was popped while " + PHASE_STACK[depth].getName() + " was active");
+		
+		PHASE_NANOS[phase.ordinal()] += System.nanoTime() - PHASE_START[depth];
+		
+		SkyRenderPhaseEvent event = EVENT_STACK[depth];
+		if(event != null)
+		{
+			EVENT_STACK[depth] = null;
+			event.commit();
+		}
+	}
+	
+	//============================================================================================
+	//******************************************Counters******************************************
+	//============================================================================================
+	
+	public static void add(Counter counter, long amount)
+	{
+		COUNTERS[counter.ordinal()] += amount;
+	}
+	
+	public static void increment(Counter counter)
+	{
+		COUNTERS[counter.ordinal()]++;
+	}
+	
+	/**
+	 * Counts a single draw call
+	 * @param vertices Number of vertices processed by the draw call
+	 */
+	public static void draw(long vertices)
+	{
+		COUNTERS[Counter.DRAW_CALLS.ordinal()]++;
+		COUNTERS[Counter.VERTICES.ordinal()] += vertices;
+	}
+	
+	//============================================================================================
+	//*******************************************Frames*******************************************
+	//============================================================================================
+	
+	/**
+	 * Starts collecting the counters of a new frame
+	 */
+	public static void beginFrame()
+	{
+		for(int i = 0; i < COUNTERS.length; i++)
+		{
+			COUNTERS[i] = 0;
+		}
+		
+		for(int i = 0; i < PHASE_NANOS.length; i++)
+		{
+			PHASE_NANOS[i] = 0;
+		}
+	}
+	
+	/**
+	 * Publishes the counters of the current frame, the vanilla profiler shows them in the section that is active at the time
+	 */
+	public static void endFrame()
+	{
+		System.arraycopy(COUNTERS, 0, LAST_COUNTERS, 0, COUNTERS.length);
+		System.arraycopy(PHASE_NANOS, 0, LAST_PHASE_NANOS, 0, PHASE_NANOS.length);
+		
+		ProfilerFiller profiler = profiler();
+		for(Counter counter : Counter.values())
+		{
+			long value = COUNTERS[counter.ordinal()];
+			if(value > 0)
+				profiler.incrementCounter(counter.getName(), (int) Math.min(value, Integer.MAX_VALUE));
+		}
+		
+		if(FRAME_EVENT.isEnabled())
+		{
+			SkyFrameEvent event = new SkyFrameEvent();
+			event.drawCalls = COUNTERS[Counter.DRAW_CALLS.ordinal()];
+			event.vertices = COUNTERS[Counter.VERTICES.ordinal()];
+			event.buffersBuilt = COUNTERS[Counter.BUFFERS_BUILT.ordinal()];
+			event.objectsRendered = COUNTERS[Counter.OBJECTS_RENDERED.ordinal()];
+			event.objectsCulled = COUNTERS[Counter.OBJECTS_CULLED.ordinal()];
+			event.tilesRendered = COUNTERS[Counter.TILES_RENDERED.ordinal()];
+			event.tilesCulled = COUNTERS[Counter.TILES_CULLED.ordinal()];
+			event.sprites = COUNTERS[Counter.SPRITES.ordinal()];
+			event.spriteBatches = COUNTERS[Counter.SPRITE_BATCHES.ordinal()];
+			event.starBatches = COUNTERS[Counter.STAR_BATCHES.ordinal()];
+			event.bufferUploadNanos = PHASE_NANOS[Phase.BUFFER_UPLOADS.ordinal()];
+			event.spaceNanos = PHASE_NANOS[Phase.SPACE.ordinal()];
+			event.visibilityNanos = PHASE_NANOS[Phase.VISIBILITY.ordinal()];
+			event.dustCloudNanos = PHASE_NANOS[Phase.DUST_CLOUDS.ordinal()];
+			event.starNanos = PHASE_NANOS[Phase.STARS.ordinal()];
+			event.texturedObjectNanos = PHASE_NANOS[Phase.TEXTURED_OBJECTS.ordinal()];
+			event.commit();
+		}
+	}
+	
+	/**
+	 * @return Value the counter reached during the last finished frame
+	 */
+	public static long last(Counter counter)
+	{
+		return LAST_COUNTERS[counter.ordinal()];
+	}
+	
+	/**
+	 * @return Time spent in the phase during the last finished frame in nanoseconds, nested phases are included in the time of their parent
+	 */
+	public static long lastNanos(Phase phase)
+	{
+		return LAST_PHASE_NANOS[phase.ordinal()];
+	}
+}
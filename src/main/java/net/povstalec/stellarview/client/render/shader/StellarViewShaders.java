@@ -17,6 +17,10 @@ public class StellarViewShaders
 	private static StarShaderInstance rendertypeStarTexShader;
 	private static DustCloudShaderInstance rendertypeDustCloudShader;
 	
+	private static StarShaderInstance rendertypeStarInstancedShader;
+	private static StarShaderInstance rendertypeStarTexInstancedShader;
+	private static DustCloudShaderInstance rendertypeDustCloudInstancedShader;
+	
 	@EventBusSubscriber(modid = StellarView.MODID, value = Dist.CLIENT, bus= EventBusSubscriber.Bus.MOD)
     public static class ShaderInit
     {
@@ -40,6 +44,24 @@ public class StellarViewShaders
 					{
 						rendertypeDustCloudShader = (DustCloudShaderInstance) shaderInstance;
 					});
+			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_star_instanced"), StellarViewVertexFormat.STAR_INSTANCE.get()),
+					(shaderInstance) ->
+					{
+						rendertypeStarInstancedShader = (StarShaderInstance) shaderInstance;
+					});
+			
+			event.registerShader(new StarShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_star_tex_instanced"), StellarViewVertexFormat.STAR_INSTANCE.get()),
+					(shaderInstance) ->
+					{
+						rendertypeStarTexInstancedShader = (StarShaderInstance) shaderInstance;
+					});
+			
+			event.registerShader(new DustCloudShaderInstance(event.getResourceProvider(), ResourceLocation.fromNamespaceAndPath(StellarView.MODID,"rendertype_dust_cloud_instanced"), StellarViewVertexFormat.STAR_INSTANCE.get()),
+					(shaderInstance) ->
+					{
+						rendertypeDustCloudInstancedShader = (DustCloudShaderInstance) shaderInstance;
+					});
         }
     }
 	
@@ -57,4 +79,19 @@ public class StellarViewShaders
 	{
 		return rendertypeDustCloudShader;
 	}
+	
+	public static StarShaderInstance starInstancedShader()
+	{
+		return rendertypeStarInstancedShader;
+	}
+	
+	public static StarShaderInstance starTexInstancedShader()
+	{
+		return rendertypeStarTexInstancedShader;
+	}
+	
+	public static DustCloudShaderInstance dustCloudInstancedShader()
+	{
+		return rendertypeDustCloudInstancedShader;
+	}
 }
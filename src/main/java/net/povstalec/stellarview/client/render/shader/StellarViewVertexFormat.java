@@ -13,6 +13,7 @@ import net.povstalec.stellarview.StellarView;
 public class StellarViewVertexFormat
 {
 	public static final Lazy<VertexFormatElement> ELEMENT_HEIGHT_WIDTH_SIZE = register(VertexFormatElement.Type.FLOAT, VertexFormatElement.Usage.GENERIC, 3);
+	public static final Lazy<VertexFormatElement> ELEMENT_ROTATION_SIZE = register(VertexFormatElement.Type.FLOAT, VertexFormatElement.Usage.GENERIC, 2);
 	
 	// NOTE: The order of elements very much MATTERS!!!
 	public static final Lazy<VertexFormat> STAR_POS_COLOR_LY = Lazy.of(() -> VertexFormat.builder()
@@ -27,6 +28,13 @@ public class StellarViewVertexFormat
 			.add("HeightWidthSize", ELEMENT_HEIGHT_WIDTH_SIZE.get())
 			.add("UV0", VertexFormatElement.UV0)
 			.build());
+	
+	// Per-instance format, the corners of the quad are created in the shader
+	public static final Lazy<VertexFormat> STAR_INSTANCE = Lazy.of(() -> VertexFormat.builder()
+			.add("StarPos", VertexFormatElement.POSITION)
+			.add("Color", VertexFormatElement.COLOR)
+			.add("RotationSize", ELEMENT_ROTATION_SIZE.get())
+			.build());
 
 	// NOTE: VertexFormatElements now require an ID, and this ID can only be between 0 and 31. The ELEMENTS list here is AT-ed to be public
 	// so this method can access the size. What this means though is that if enough mods add VertexFormatElements the game will not be able to
@@ -47,8 +55,10 @@ public class StellarViewVertexFormat
 		// The registering of VertexFormatElements is not threadsafe so it needs to be done later
 		event.enqueueWork(() -> {
 			ELEMENT_HEIGHT_WIDTH_SIZE.get();
+			ELEMENT_ROTATION_SIZE.get();
 			STAR_POS_COLOR_LY.get();
 			STAR_POS_COLOR_LY_TEX.get();
+			STAR_INSTANCE.get();
 		});
 	}
 
@@ -4,7 +4,6 @@ import com.mojang.blaze3d.vertex.Tesselator;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.povstalec.stellarview.api.common.space_objects.GravityLense;
-import net.povstalec.stellarview.client.render.LightEffects;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.*;
@@ -83,9 +82,9 @@ public abstract class GravityLenseRenderer<T extends GravityLense> extends StarL
 				return;
 		}
 		
-		renderOnSphere(textureLayer.rgba(), Color.FloatRGBA.DEFAULT, textureLayer.texture(), textureLayer.uv(),
+		renderOnSphere(textureLayer.rgba(), Color.FloatRGBA.DEFAULT, textureLayer.sprite(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
-				ticks, distance, partialTicks, LightEffects.dayBrightness(viewCenter, size, ticks, level, camera, partialTicks) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
+				ticks, distance, partialTicks, viewCenter.lighting().dayBrightness(size) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
 	}
 	
 	@Override
@@ -96,11 +95,11 @@ public abstract class GravityLenseRenderer<T extends GravityLense> extends StarL
 		Vector3f positionVector = getPosition(viewCenter, parentRotation, viewCenter.ticks(), partialTicks).add(parentVector); // Handles orbits 'n stuff
 		
 		// Add parent vector to current coords
-		SpaceCoords coords = renderedObject.getCoords().add(positionVector);
+		COORDS.set(renderedObject.getCoords()).add(positionVector);
 		
 		// Subtract coords of this from View Center coords to get relative coords
-		sphericalCoords = coords.skyPosition(level, viewCenter, partialTicks, false);
-		SphericalCoords sphericalCoords = coords.skyPosition(level, viewCenter, partialTicks, true);
+		this.sphericalCoords.set(COORDS.skyPosition(viewCenter, false, SKY_POSITION));
+		SphericalCoords sphericalCoords = skyPosition.set(COORDS.skyPosition(viewCenter, true, SKY_POSITION));
 		
 		lastDistance = sphericalCoords.r;
 		sphericalCoords.r = DEFAULT_DISTANCE;
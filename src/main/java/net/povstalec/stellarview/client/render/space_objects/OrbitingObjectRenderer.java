@@ -1,6 +1,7 @@
 package net.povstalec.stellarview.client.render.space_objects;
 
 import net.povstalec.stellarview.api.common.space_objects.OrbitingObject;
+import net.povstalec.stellarview.client.render.OrbitEngine;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.AxisRotation;
 import org.joml.Vector3f;
@@ -9,6 +10,8 @@ import javax.annotation.Nullable;
 
 public abstract class OrbitingObjectRenderer<T extends OrbitingObject> extends TexturedObjectRenderer<T>
 {
+	protected int orbitId = -1;
+	
 	public OrbitingObjectRenderer(T orbitingObject)
 	{
 		super(orbitingObject);
@@ -36,10 +39,14 @@ public abstract class OrbitingObjectRenderer<T extends OrbitingObject> extends T
 	{
 		if(orbitInfo() != null)
 		{
+			// Registered lazily, since the engine is cleared after the renderers are created
+			orbitId = OrbitEngine.register(orbitInfo(), orbitId);
+			Vector3f orbitVector = OrbitEngine.getOrbitVector(orbitId, ticks, partialTicks, new Vector3f());
+			
 			if(!viewCenter.objectEquals(this) && orbitInfo().orbitClampNumber() > 0 && parent != null)
-				return orbitInfo().getOrbitVector(ticks, partialTicks, parent.lastDistance);
+				return orbitInfo().clampOrbitVector(orbitVector, parent.lastDistance);
 			else
-				return orbitInfo().getOrbitVector(ticks, partialTicks);
+				return orbitVector;
 		}
 		else
 			return super.getPosition(viewCenter, ticks, partialTicks);
@@ -1,6 +1,5 @@
 package net.povstalec.stellarview.client.render.space_objects;
 
-import com.mojang.blaze3d.platform.GlStateManager;
 import com.mojang.blaze3d.systems.RenderSystem;
 import com.mojang.blaze3d.vertex.*;
 import net.minecraft.client.Camera;
@@ -8,17 +7,27 @@ import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.resources.ResourceLocation;
 import net.povstalec.stellarview.api.common.space_objects.TexturedObject;
-import net.povstalec.stellarview.client.render.LightEffects;
+import net.povstalec.stellarview.client.render.CelestialAtlas;
+import net.povstalec.stellarview.client.render.SpriteBatcher;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.*;
 import org.joml.Matrix4f;
 import org.joml.Quaterniond;
+import org.joml.Vector3d;
 import org.joml.Vector3f;
 
 public abstract class TexturedObjectRenderer<T extends TexturedObject> extends SpaceObjectRenderer<T>
 {
 	public static final float DEFAULT_DISTANCE = 100.0F;
 	
+	// Scratch space for the coordinate math, only used on the render thread and never across a call to the children
+	protected static final MutableSpaceCoords COORDS = new MutableSpaceCoords();
+	protected static final Vector3d SKY_POSITION = new Vector3d();
+	
+	// Each object keeps its own Spherical Coords, since its children render before it's done with them
+	protected final SphericalCoords skyPosition = new SphericalCoords();
+	
 	public TexturedObjectRenderer(T texturedObject)
 	{
 		super(texturedObject);
@@ -36,10 +45,10 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 		Vector3f positionVector = getPosition(viewCenter, parentRotation, viewCenter.ticks(), partialTicks).add(parentVector); // Handles orbits 'n stuff
 		
 		// Add parent vector to current coords
-		SpaceCoords coords = renderedObject.getCoords().add(positionVector);
+		COORDS.set(renderedObject.getCoords()).add(positionVector);
 		
 		// Subtract coords of this from View Center coords to get relative coords
-		SphericalCoords sphericalCoords = coords.skyPosition(level, viewCenter, partialTicks, true);
+		SphericalCoords sphericalCoords = skyPosition.set(COORDS.skyPosition(viewCenter, true, SKY_POSITION));
 		
 		lastDistance = sphericalCoords.r;
 		sphericalCoords.r = DEFAULT_DISTANCE;
@@ -57,7 +66,13 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 		
 		// If the object isn't the same we're viewing everything from and it isn't too far away, render it
 		if(!viewCenter.objectEquals(this) && renderedObject.getFadeOutHandler().getFadeOutEndDistance().toKm() > lastDistance)
+		{
+			SkyRenderStats.push(SkyRenderStats.Phase.TEXTURED_OBJECTS);
 			renderTextureLayers(viewCenter, level, camera, tesselator, modelViewMatrix, sphericalCoords, viewCenter.ticks(), lastDistance, partialTicks);
+			SkyRenderStats.pop(SkyRenderStats.Phase.TEXTURED_OBJECTS);
+		}
+		else
+			SkyRenderStats.increment(SkyRenderStats.Counter.OBJECTS_CULLED);
 		
 		if(childRenderDistance > lastDistance)
 		{
@@ -74,6 +89,14 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 	public static void renderOnSphere(Color.FloatRGBA rgba, Color.FloatRGBA secondaryRGBA, ResourceLocation texture, UV.Quad uv,
 									  ClientLevel level, Camera camera, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords,
 									  long ticks, double distance, float partialTicks, float brightness, float size, float rotation, boolean shouldBlend)
+	{
+		renderOnSphere(rgba, secondaryRGBA, CelestialAtlas.sprite(texture), uv, level, camera, tesselator, lastMatrix, sphericalCoords,
+				ticks, distance, partialTicks, brightness, size, rotation, shouldBlend);
+	}
+	
+	public static void renderOnSphere(Color.FloatRGBA rgba, Color.FloatRGBA secondaryRGBA, AtlasSprite sprite, UV.Quad uv,
+									  ClientLevel level, Camera camera, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords,
+									  long ticks, double distance, float partialTicks, float brightness, float size, float rotation, boolean shouldBlend)
 	{
 		Vector3f corner00 = new Vector3f(size, DEFAULT_DISTANCE, size);
 		Vector3f corner10 = new Vector3f(-size, DEFAULT_DISTANCE, size);
@@ -89,24 +112,9 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 		quaternionX.transform(corner11);
 		quaternionX.transform(corner01);
 		
-		if(shouldBlend)
-			RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
-		else
-			RenderSystem.defaultBlendFunc();
-		
-		RenderSystem.setShaderColor(rgba.red() * secondaryRGBA.red(), rgba.green() * secondaryRGBA.green(), rgba.blue() * secondaryRGBA.blue(), brightness * rgba.alpha() * secondaryRGBA.alpha());
-		
-		RenderSystem.setShaderTexture(0, texture);
-		final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
-		
-		bufferbuilder.addVertex(lastMatrix, corner00.x, corner00.y, corner00.z).setUv(uv.topRight().u(ticks), uv.topRight().v(ticks));
-		bufferbuilder.addVertex(lastMatrix, corner10.x, corner10.y, corner10.z).setUv(uv.bottomRight().u(ticks), uv.bottomRight().v(ticks));
-		bufferbuilder.addVertex(lastMatrix, corner11.x, corner11.y, corner11.z).setUv(uv.bottomLeft().u(ticks), uv.bottomLeft().v(ticks));
-		bufferbuilder.addVertex(lastMatrix, corner01.x, corner01.y, corner01.z).setUv(uv.topLeft().u(ticks), uv.topLeft().v(ticks));
-		
-		BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
-		
-		RenderSystem.defaultBlendFunc();
+		// Drawn together with all the other layers of the frame once the batch is flushed
+		SpriteBatcher.queue(sprite, shouldBlend, lastMatrix, corner00, corner10, corner11, corner01, uv, ticks,
+				rgba.red() * secondaryRGBA.red(), rgba.green() * secondaryRGBA.green(), rgba.blue() * secondaryRGBA.blue(), brightness * rgba.alpha() * secondaryRGBA.alpha());
 	}
 	
 	/**
@@ -136,9 +144,9 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 				return;
 		}
 		
-		renderOnSphere(textureLayer.rgba(), Color.FloatRGBA.DEFAULT, textureLayer.texture(), textureLayer.uv(),
+		renderOnSphere(textureLayer.rgba(), Color.FloatRGBA.DEFAULT, textureLayer.sprite(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
-				ticks, distance, partialTicks, LightEffects.dayBrightness(viewCenter, size, ticks, level, camera, partialTicks) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
+				ticks, distance, partialTicks, viewCenter.lighting().dayBrightness(size) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
 	}
 	
 	protected void renderTextureLayers(ViewCenter viewCenter, ClientLevel level, Camera camera, Tesselator tesselator, Matrix4f lastMatrix, SphericalCoords sphericalCoords, long ticks, double distance, float partialTicks)
@@ -146,7 +154,12 @@ public abstract class TexturedObjectRenderer<T extends TexturedObject> extends S
 		double fade = renderedObject.fadeOut(distance);
 		
 		if(fade <= 0)
+		{
+			SkyRenderStats.increment(SkyRenderStats.Counter.OBJECTS_CULLED);
 			return;
+		}
+		
+		SkyRenderStats.increment(SkyRenderStats.Counter.OBJECTS_RENDERED);
 		
 		RenderSystem.setShader(GameRenderer::getPositionTexShader);
 		
@@ -10,7 +10,6 @@ import net.minecraft.resources.ResourceLocation;
 import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.api.common.space_objects.distinct.Luna;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.Moon;
-import net.povstalec.stellarview.client.render.LightEffects;
 import net.povstalec.stellarview.client.render.space_objects.resourcepack.MoonRenderer;
 import net.povstalec.stellarview.client.render.space_objects.resourcepack.PlanetRenderer;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
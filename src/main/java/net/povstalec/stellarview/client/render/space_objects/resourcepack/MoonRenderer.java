@@ -6,7 +6,6 @@ import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.Moon;
-import net.povstalec.stellarview.client.render.LightEffects;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.SphericalCoords;
@@ -51,8 +50,8 @@ public class MoonRenderer<T extends Moon> extends PlanetRenderer<T>
 		
 		size *= renderedObject.sizeMultiplier(level);
 		
-		renderOnSphere(textureLayer.rgba(), moonRGBA, textureLayer.texture(), textureLayer.uv(),
+		renderOnSphere(textureLayer.rgba(), moonRGBA, textureLayer.sprite(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
-				ticks, distance, partialTicks, LightEffects.dayBrightness(viewCenter, size, ticks, level, camera, partialTicks) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
+				ticks, distance, partialTicks, viewCenter.lighting().dayBrightness(size) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
 	}
 }
@@ -5,7 +5,6 @@ import com.mojang.blaze3d.vertex.Tesselator;
 import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.Nebula;
-import net.povstalec.stellarview.client.render.LightEffects;
 import net.povstalec.stellarview.client.render.space_objects.TexturedObjectRenderer;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.Color;
@@ -51,8 +50,8 @@ public class NebulaRenderer<T extends Nebula> extends TexturedObjectRenderer<T>
 				return;
 		}
 		
-		renderOnSphere(textureLayer.rgba(), nebulaRGBA, textureLayer.texture(), textureLayer.uv(),
+		renderOnSphere(textureLayer.rgba(), nebulaRGBA, textureLayer.sprite(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
-				ticks, distance, partialTicks, LightEffects.nebulaBrightness(viewCenter, size, ticks, level, camera, partialTicks) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
+				ticks, distance, partialTicks, viewCenter.lighting().nebulaBrightness(size) * (float) fade, size, (float) textureLayer.rotation(), textureLayer.shoulBlend());
 	}
 }
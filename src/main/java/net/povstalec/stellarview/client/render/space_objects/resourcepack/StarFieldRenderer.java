@@ -8,14 +8,19 @@ import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.FogRenderer;
 import net.minecraft.resources.ResourceLocation;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
-import net.povstalec.stellarview.client.render.LightEffects;
+import net.povstalec.stellarview.client.render.SpriteBatcher;
 import net.povstalec.stellarview.client.render.StellarViewEffects;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
 import net.povstalec.stellarview.client.util.StarData;
+import net.povstalec.stellarview.client.util.StarDataCache;
+import net.povstalec.stellarview.client.util.StarGenerator;
 import net.povstalec.stellarview.common.util.DustCloudInfo;
 import net.povstalec.stellarview.common.util.StarInfo;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.client.util.DustCloudData;
+import net.povstalec.stellarview.client.util.LevelOfDetailController;
+import net.povstalec.stellarview.client.util.SkyCulling;
 import net.povstalec.stellarview.common.config.GeneralConfig;
 import net.povstalec.stellarview.common.util.*;
 import org.joml.Matrix4f;
@@ -24,7 +29,7 @@ import org.joml.Vector3d;
 import org.joml.Vector3f;
 
 import javax.annotation.Nullable;
-import java.util.Random;
+import java.util.Arrays;
 
 public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<T>
 {
@@ -49,6 +54,12 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	protected DustCloudData dustCloudData;
 	protected int totalDustClouds;
 	
+	@Nullable
+	protected byte[] cacheKey;
+	
+	protected final SkyCulling skyCulling = new SkyCulling();
+	protected final LevelOfDetailController lodController = new LevelOfDetailController();
+	
 	public StarFieldRenderer(T starField)
 	{
 		super(starField);
@@ -99,6 +110,40 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			dustCloudData.reset();
 	}
 	
+	/**
+	 * Takes over the Stars and Dust Clouds of a Star Field from before a reload, as long as they were generated from the same definition.
+	 * Their buffers stay on the GPU, so the Star Field doesn't need to be generated or uploaded again
+	 * @return True if the data was taken over, in which case the previous Star Field is left without any
+	 */
+	public boolean reuseData(StarFieldRenderer<?> previous)
+	{
+		if(cacheKey == null || !Arrays.equals(cacheKey, previous.cacheKey) || hasTexture != previous.hasTexture)
+			return false;
+		
+		this.starData = previous.starData;
+		this.dustCloudData = previous.dustCloudData;
+		
+		// LODs that haven't been generated yet are generated from this Star Field from now on, which also lets go of the previous one
+		if(starData instanceof FieldStarData fieldStarData)
+			fieldStarData.bind(this);
+		if(dustCloudData instanceof FieldDustCloudData fieldDustCloudData)
+			fieldDustCloudData.bind(this);
+		
+		previous.starData = null;
+		previous.dustCloudData = null;
+		
+		return true;
+	}
+	
+	/**
+	 * @return Key describing everything the Stars and Dust Clouds are generated from, or null if it couldn't be created
+	 */
+	@Nullable
+	public byte[] cacheKey()
+	{
+		return cacheKey;
+	}
+	
 	public void setStarInfo(StarInfo starInfo)
 	{
 		this.starInfo = starInfo;
@@ -134,7 +179,7 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			location = renderedObject.getSpiralArms().get(i).dustCloudInfo();
 			if(location != null && StellarViewEffects.hasDustCloudInfo(location))
 				setArmDustCloudInfo(StellarViewEffects.getDustCloudInfo(location), i);
-				
+			
 		}
 	}
 	
@@ -174,13 +219,15 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 		setupLOD(getStarInfo());
 		
 		setupDustCloudInfo();
+		
+		cacheKey = StarDataCache.key(renderedObject, getStarInfo(), getDustCloudInfo(), armDustCloudInfo);
 	}
 	
 	//============================================================================================
 	//*******************************************Stars********************************************
 	//============================================================================================
 	
-	protected void generateStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, Random random)
+	protected void generateStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, StarGenerator generator)
 	{
 		int stars;
 		
@@ -196,7 +243,8 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 				stars = renderedObject.getStars() - lod1stars - lod2stars;
 		}
 		
-		for(int i = 0; i < stars; i++)
+		int start = lod.reserve(stars);
+		generator.generate(0, stars, (i, random) ->
 		{
 			// This generates random coordinates for the Star close to the camera
 			double distance = renderedObject.clumpStarsInCenter() ? random.nextDouble() : Math.cbrt(Math.abs(random.nextDouble()));
@@ -214,18 +262,18 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			switch(levelOfDetail)
 			{
 				case LOD1:
-					lod.newStar(getStarInfo().randomLOD1StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
+					lod.setStar(start + i, getStarInfo().randomLOD1StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
 					break;
 				case LOD2:
-					lod.newStar(getStarInfo().randomLOD2StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
+					lod.setStar(start + i, getStarInfo().randomLOD2StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
 					break;
 				default:
-					lod.newStar(getStarInfo().randomLOD3StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
+					lod.setStar(start + i, getStarInfo().randomLOD3StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
 			}
-		}
+		});
 	}
 	
-	protected void generateArmStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, AxisRotation axisRotation, StarInfo starInfo, Random random, double sizeMultiplier, boolean hasTexture, StarField.SpiralArm arm, int armIndex)
+	protected void generateArmStars(StarData.LOD lod, StarField.LevelOfDetail levelOfDetail, AxisRotation axisRotation, StarInfo starInfo, StarGenerator generator, double sizeMultiplier, boolean hasTexture, StarField.SpiralArm arm, int armIndex)
 	{
 		int stars;
 		
@@ -241,7 +289,8 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 				stars = arm.armStars() - armLod1stars[armIndex] - armLod2stars[armIndex];
 		}
 		
-		for(int i = 0; i < stars; i++)
+		int start = lod.reserve(stars);
+		generator.generate(armIndex + 1, stars, (i, random) ->
 		{
 			// Milky Way is 90 000 ly across
 			
@@ -270,66 +319,74 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			switch(levelOfDetail)
 			{
 				case LOD1:
-					lod.newStar(starInfo.randomLOD1StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
+					lod.setStar(start + i, starInfo.randomLOD1StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
 					break;
 				case LOD2:
-					lod.newStar(starInfo.randomLOD2StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
+					lod.setStar(start + i, starInfo.randomLOD2StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
 					break;
 				default:
-					lod.newStar(starInfo.randomLOD3StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
+					lod.setStar(start + i, starInfo.randomLOD3StarType(random), random, cartesian.x, cartesian.y, cartesian.z);
 			}
-		}
+		});
 	}
 	
 	protected void setStars()
 	{
+		starData = new FieldStarData(this);
+	}
+	
+	/**
+	 * Generates the Stars of a LOD, or loads them from the cache.
+	 * Called from one of the worker threads, so it must not touch anything that belongs to the render thread
+	 */
+	protected StarData.LOD newStars(StarField.LevelOfDetail levelOfDetail)
+	{
+		StarData.LOD cachedLOD = StarDataCache.loadStars(cacheKey, levelOfDetail);
+		if(cachedLOD != null)
+			return cachedLOD;
+		
 		double sizeMultiplier = renderedObject.getDiameter() / 30D;
+		StarGenerator generator;
+		int stars;
 		
-		starData = new StarData()
+		switch(levelOfDetail)
 		{
-			@Override
-			protected LOD newStars(StarField.LevelOfDetail levelOfDetail)
-			{
-				Random random;
-				int stars;
-				
-				switch(levelOfDetail)
-				{
-					case LOD1:
-						random = new Random(renderedObject.getSeed());
-						stars = totalLOD1stars;
-						break;
-					case LOD2:
-						random = new Random(renderedObject.getSeed() + 1);
-						stars = totalLOD2stars;
-						break;
-					default:
-						random = new Random(renderedObject.getSeed() + 2);
-						stars = totalStars - totalLOD1stars - totalLOD2stars;
-				}
-				LOD lod = new LOD(stars);
-				
-				generateStars(lod, levelOfDetail, random);
-				
-				int i = 0;
-				for(StarField.SpiralArm arm : renderedObject.getSpiralArms()) //Draw each arm
-				{
-					generateArmStars(lod, levelOfDetail, renderedObject.getAxisRotation(), getStarInfo(), random, sizeMultiplier, hasTexture, arm, i);
-					i++;
-				}
-				
-				return lod;
-			}
-		};
+			case LOD1:
+				generator = StarGenerator.create(renderedObject.getSeed());
+				stars = totalLOD1stars;
+				break;
+			case LOD2:
+				generator = StarGenerator.create(renderedObject.getSeed() + 1);
+				stars = totalLOD2stars;
+				break;
+			default:
+				generator = StarGenerator.create(renderedObject.getSeed() + 2);
+				stars = totalStars - totalLOD1stars - totalLOD2stars;
+		}
+		StarData.LOD lod = new StarData.LOD(stars);
+		
+		generateStars(lod, levelOfDetail, generator);
+		
+		int i = 0;
+		for(StarField.SpiralArm arm : renderedObject.getSpiralArms()) //Draw each arm
+		{
+			generateArmStars(lod, levelOfDetail, renderedObject.getAxisRotation(), getStarInfo(), generator, sizeMultiplier, hasTexture, arm, i);
+			i++;
+		}
+		
+		StarDataCache.saveStars(cacheKey, levelOfDetail, lod);
+		
+		return lod;
 	}
 	
 	//============================================================================================
 	//****************************************Dust Clouds*****************************************
 	//============================================================================================
 	
-	protected void generateDustClouds(DustCloudData.LOD lod, Random random)
+	protected void generateDustClouds(DustCloudData.LOD lod, StarGenerator generator)
 	{
-		for(int i = 0; i < renderedObject.getDustClouds(); i++)
+		int start = lod.reserve(renderedObject.getDustClouds());
+		generator.generate(0, renderedObject.getDustClouds(), (i, random) ->
 		{
 			// This generates random coordinates for the Star close to the camera
 			double distance = renderedObject.clumpDustCloudsInCenter() ? random.nextDouble() : Math.cbrt(random.nextDouble());
@@ -344,13 +401,14 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			
 			renderedObject.getAxisRotation().quaterniond().transform(cartesian);
 			
-			lod.newDustCloud(getDustCloudInfo().getRandomDustCloudType(random), random, cartesian.x, cartesian.y, cartesian.z, 1);
-		}
+			lod.setDustCloud(start + i, getDustCloudInfo().getRandomDustCloudType(random), random, cartesian.x, cartesian.y, cartesian.z, 1);
+		});
 	}
 	
-	protected void generateArmDustClouds(DustCloudData.LOD lod, AxisRotation axisRotation, DustCloudInfo dustCloudInfo, Random random, double sizeMultiplier, StarField.SpiralArm arm, int armIndex)
+	protected void generateArmDustClouds(DustCloudData.LOD lod, AxisRotation axisRotation, DustCloudInfo dustCloudInfo, StarGenerator generator, double sizeMultiplier, StarField.SpiralArm arm, int armIndex)
 	{
-		for(int i = 0; i < arm.armDustClouds(); i++)
+		int start = lod.reserve(arm.armDustClouds());
+		generator.generate(armIndex + 1, arm.armDustClouds(), (i, random) ->
 		{
 			// Milky Way is 90 000 ly across
 			
@@ -377,34 +435,40 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			
 			axisRotation.quaterniond().transform(cartesian);
 			
-			lod.newDustCloud(getArmDustCloudInfo(armIndex) == null ? dustCloudInfo.getRandomDustCloudType(random) : getArmDustCloudInfo(armIndex).getRandomDustCloudType(random), random, cartesian.x, cartesian.y, cartesian.z, (1 / progress) + 0.2);
-		}
+			lod.setDustCloud(start + i, getArmDustCloudInfo(armIndex) == null ? dustCloudInfo.getRandomDustCloudType(random) : getArmDustCloudInfo(armIndex).getRandomDustCloudType(random), random, cartesian.x, cartesian.y, cartesian.z, (1 / progress) + 0.2);
+		});
 	}
 	
 	protected void setDustClouds()
 	{
+		dustCloudData = new FieldDustCloudData(this);
+	}
+	
+	/**
+	 * Generates the Dust Clouds, or loads them from the cache.
+	 * Called from one of the worker threads, so it must not touch anything that belongs to the render thread
+	 */
+	protected DustCloudData.LOD newDustClouds()
+	{
+		DustCloudData.LOD cachedLOD = StarDataCache.loadDustClouds(cacheKey);
+		if(cachedLOD != null)
+			return cachedLOD;
+		
 		double sizeMultiplier = renderedObject.getDiameter() / 30D;
+		StarGenerator generator = StarGenerator.create(renderedObject.getSeed());
+		
+		DustCloudData.LOD lod = new DustCloudData.LOD(totalDustClouds);
+		
+		generateDustClouds(lod, generator);
 		
-		dustCloudData = new DustCloudData()
+		for(int i = 0; i < renderedObject.getSpiralArms().size(); i++) //Draw each arm
 		{
-			@Override
-			protected LOD newDustClouds()
-			{
-				Random random;
-				random = new Random(renderedObject.getSeed());
-				
-				LOD lod = new LOD(totalDustClouds);
-				
-				generateDustClouds(lod, random);
-				
-				for(int i = 0; i < renderedObject.getSpiralArms().size(); i++) //Draw each arm
-				{
-					generateArmDustClouds(lod, renderedObject.getAxisRotation(), getDustCloudInfo(), random, sizeMultiplier, renderedObject.getSpiralArm(i), i);
-				}
-				
-				return lod;
-			}
-		};
+			generateArmDustClouds(lod, renderedObject.getAxisRotation(), getDustCloudInfo(), generator, sizeMultiplier, renderedObject.getSpiralArm(i), i);
+		}
+		
+		StarDataCache.saveDustClouds(cacheKey, lod);
+		
+		return lod;
 	}
 	
 	//============================================================================================
@@ -426,10 +490,13 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			starData.reset();
 		}
 		
-		float starBrightness = LightEffects.starBrightness(viewCenter, level, camera, partialTicks);
+		float starBrightness = viewCenter.lighting().starBrightness();
 		
 		if(!GeneralConfig.disable_stars.get() && starBrightness > 0.0F && totalStars > 0)
 		{
+			// Layers queued by the objects behind the Star Field have to be drawn before its Stars
+			SpriteBatcher.flush();
+			
 			final var transformedModelView = new Matrix4f(modelViewMatrix);
 			
 			//stack.translate(0, 0, 0);
@@ -443,7 +510,14 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			Quaternionf q = SpaceCoords.getQuaternionf(level, viewCenter, partialTicks);
 			
 			transformedModelView.rotate(q);
-			this.starData.renderStars(StarField.LevelOfDetail.fromDistance(difference), transformedModelView, projectionMatrix, difference, viewCenter.isStatic(), hasTexture);
+			SkyRenderStats.push(SkyRenderStats.Phase.STARS);
+			skyCulling.update(transformedModelView, projectionMatrix, camera, viewCenter.isStatic(), viewCenter.createHorizon);
+			this.starData.renderStars(lodController.update(difference, starData), transformedModelView, projectionMatrix, difference, skyCulling, viewCenter.isStatic(), hasTexture);
+			
+			// Static buffers are baked for the current position, so there's nothing to gain from preparing them early
+			if(lodController.prefetched() != null && !viewCenter.isStatic())
+				this.starData.prefetch(lodController.prefetched(), difference, false, hasTexture);
+			SkyRenderStats.pop(SkyRenderStats.Phase.STARS);
 			
 			setupFog.run();
 		}
@@ -459,7 +533,7 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 	{
 		SpaceCoords difference = viewCenter.getCoords().sub(spaceCoords());
 		
-		if(StarField.LevelOfDetail.fromDistance(difference) == StarField.LevelOfDetail.LOD1)
+		if(lodController.current(difference) == StarField.LevelOfDetail.LOD1)
 			return;
 		
 		if(dustCloudData == null)
@@ -469,6 +543,8 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 		
 		if(brightness > 0.0F && totalDustClouds > 0)
 		{
+			SpriteBatcher.flush();
+			
 			final var transformedModelView = new Matrix4f(modelViewMatrix);
 			
 			RenderSystem.blendFuncSeparate(GlStateManager.SourceFactor.SRC_ALPHA, GlStateManager.DestFactor.ONE, GlStateManager.SourceFactor.ONE, GlStateManager.DestFactor.ZERO);
@@ -479,9 +555,63 @@ public class StarFieldRenderer<T extends StarField> extends SpaceObjectRenderer<
 			Quaternionf q = SpaceCoords.getQuaternionf(level, viewCenter, partialTicks);
 			
 			transformedModelView.rotate(q);
-			this.dustCloudData.renderDustClouds(transformedModelView, projectionMatrix, difference, viewCenter.isStatic());
+			skyCulling.update(transformedModelView, projectionMatrix, camera, viewCenter.isStatic(), viewCenter.createHorizon);
+			this.dustCloudData.renderDustClouds(transformedModelView, projectionMatrix, difference, skyCulling, viewCenter.isStatic());
 			
 			setupFog.run();
 		}
 	}
+	
+	//============================================================================================
+	//*****************************************Field Data*****************************************
+	//============================================================================================
+	
+	/**
+	 * Stars of a Star Field, generated by whichever Star Field they're bound to.
+	 * Only the bound Star Field is referenced, so once the Stars are taken over after a reload the previous one can be collected
+	 */
+	protected static class FieldStarData extends StarData
+	{
+		private volatile StarFieldRenderer<?> starField;
+		
+		protected FieldStarData(StarFieldRenderer<?> starField)
+		{
+			this.starField = starField;
+		}
+		
+		protected void bind(StarFieldRenderer<?> starField)
+		{
+			this.starField = starField;
+		}
+		
+		@Override
+		protected LOD newStars(StarField.LevelOfDetail levelOfDetail)
+		{
+			return starField.newStars(levelOfDetail);
+		}
+	}
+	
+	/**
+	 * Dust Clouds of a Star Field, generated by whichever Star Field they're bound to
+	 */
+	protected static class FieldDustCloudData extends DustCloudData
+	{
+		private volatile StarFieldRenderer<?> starField;
+		
+		protected FieldDustCloudData(StarFieldRenderer<?> starField)
+		{
+			this.starField = starField;
+		}
+		
+		protected void bind(StarFieldRenderer<?> starField)
+		{
+			this.starField = starField;
+		}
+		
+		@Override
+		protected LOD newDustClouds()
+		{
+			return starField.newDustClouds();
+		}
+	}
 }
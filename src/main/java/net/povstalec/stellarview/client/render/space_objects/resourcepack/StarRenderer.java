@@ -7,7 +7,6 @@ import net.minecraft.client.Camera;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.GameRenderer;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.Star;
-import net.povstalec.stellarview.client.render.LightEffects;
 import net.povstalec.stellarview.client.render.space_objects.StarLikeRenderer;
 import net.povstalec.stellarview.client.resourcepack.ViewCenter;
 import net.povstalec.stellarview.common.util.Color;
@@ -56,9 +55,9 @@ public class StarRenderer<T extends Star> extends StarLikeRenderer<T>
 		if(renderedObject.isSupernova())
 			size = renderedObject.supernovaSize(size, ticks, lyDistance);
 		
-		renderOnSphere(textureLayer.rgba(), starRGBA, textureLayer.texture(), textureLayer.uv(),
+		renderOnSphere(textureLayer.rgba(), starRGBA, textureLayer.sprite(), textureLayer.uv(),
 				level, camera, tesselator, lastMatrix, sphericalCoords,
-				ticks, distance, partialTicks, LightEffects.starDayBrightness(viewCenter, size, ticks, level, camera, partialTicks) * (float) fade, size, (float) textureLayer.rotation() + renderedObject.rotation(ticks), textureLayer.shoulBlend());
+				ticks, distance, partialTicks, viewCenter.lighting().starDayBrightness(size) * (float) fade, size, (float) textureLayer.rotation() + renderedObject.rotation(ticks), textureLayer.shoulBlend());
 	}
 	
 	@Override
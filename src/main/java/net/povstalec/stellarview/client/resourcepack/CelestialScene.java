@@ -0,0 +1,113 @@
+package net.povstalec.stellarview.client.resourcepack;
+
+import com.google.gson.JsonElement;
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
+import net.povstalec.stellarview.common.util.DustCloudInfo;
+import net.povstalec.stellarview.common.util.StarInfo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Everything decoded from the resourcepacks during a reload, before any of it is handed to the renderers.
+ * It's built off the render thread and doesn't change afterwards, so it can be passed between the reload stages freely
+ */
+public final class CelestialScene
+{
+	private final Map<ResourceLocation, JsonElement> jsonMap;
+	
+	private final Map<ResourceLocation, ViewCenter> viewCenters;
+	private final Map<ResourceLocation, SpaceObject> spaceObjects;
+	
+	private final Map<ResourceLocation, StarInfo> starTypes;
+	private final Map<ResourceLocation, DustCloudInfo> dustCloudTypes;
+	
+	private CelestialScene(Map<ResourceLocation, JsonElement> jsonMap, Builder builder)
+	{
+		this.jsonMap = Collections.unmodifiableMap(jsonMap);
+		
+		this.viewCenters = Collections.unmodifiableMap(builder.viewCenters);
+		this.spaceObjects = Collections.unmodifiableMap(builder.spaceObjects);
+		
+		this.starTypes = Collections.unmodifiableMap(builder.starTypes);
+		this.dustCloudTypes = Collections.unmodifiableMap(builder.dustCloudTypes);
+	}
+	
+	/**
+	 * @return JSON files the scene was decoded from
+	 */
+	public Map<ResourceLocation, JsonElement> jsonMap()
+	{
+		return jsonMap;
+	}
+	
+	public Map<ResourceLocation, ViewCenter> viewCenters()
+	{
+		return viewCenters;
+	}
+	
+	public Map<ResourceLocation, SpaceObject> spaceObjects()
+	{
+		return spaceObjects;
+	}
+	
+	public Map<ResourceLocation, StarInfo> starTypes()
+	{
+		return starTypes;
+	}
+	
+	public Map<ResourceLocation, DustCloudInfo> dustCloudTypes()
+	{
+		return dustCloudTypes;
+	}
+	
+	/**
+	 * Collects the decoded definitions of a part of the JSON files, the parts decoded in parallel get merged once they're all done
+	 */
+	public static class Builder
+	{
+		private final HashMap<ResourceLocation, ViewCenter> viewCenters = new HashMap<>();
+		private final HashMap<ResourceLocation, SpaceObject> spaceObjects = new HashMap<>();
+		
+		private final HashMap<ResourceLocation, StarInfo> starTypes = new HashMap<>();
+		private final HashMap<ResourceLocation, DustCloudInfo> dustCloudTypes = new HashMap<>();
+		
+		public HashMap<ResourceLocation, ViewCenter> viewCenters()
+		{
+			return viewCenters;
+		}
+		
+		public HashMap<ResourceLocation, SpaceObject> spaceObjects()
+		{
+			return spaceObjects;
+		}
+		
+		public HashMap<ResourceLocation, StarInfo> starTypes()
+		{
+			return starTypes;
+		}
+		
+		public HashMap<ResourceLocation, DustCloudInfo> dustCloudTypes()
+		{
+			return dustCloudTypes;
+		}
+		
+		public Builder merge(Builder other)
+		{
+			viewCenters.putAll(other.viewCenters);
+			spaceObjects.putAll(other.spaceObjects);
+			
+			starTypes.putAll(other.starTypes);
+			dustCloudTypes.putAll(other.dustCloudTypes);
+			
+			return this;
+		}
+		
+		public CelestialScene build(Map<ResourceLocation, JsonElement> jsonMap)
+		{
+			return new CelestialScene(jsonMap, this);
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package net.povstalec.stellarview.client.resourcepack;
 
+import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.mojang.serialization.JsonOps;
+import net.minecraft.Util;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.packs.resources.PreparableReloadListener;
 import net.minecraft.server.packs.resources.ResourceManager;
 import net.minecraft.server.packs.resources.SimpleJsonResourceReloadListener;
 import net.minecraft.util.GsonHelper;
@@ -18,6 +21,9 @@ import net.povstalec.stellarview.api.client.events.StellarViewEvents;
 import net.povstalec.stellarview.api.common.space_objects.distinct.Sol;
 import net.povstalec.stellarview.api.common.space_objects.distinct.Luna;
 import net.povstalec.stellarview.client.SpaceObjectRenderers;
+import net.povstalec.stellarview.client.render.BufferResidency;
+import net.povstalec.stellarview.client.render.CelestialAtlas;
+import net.povstalec.stellarview.client.render.SceneGraphBuilder;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
 import net.povstalec.stellarview.client.render.StellarViewEffects;
 import net.povstalec.stellarview.client.render.ViewCenters;
@@ -32,12 +38,20 @@ import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.Star;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.render.space_objects.resourcepack.StarFieldRenderer;
 import net.povstalec.stellarview.client.resourcepack.effects.MeteorEffect;
+import net.povstalec.stellarview.client.util.StarDataCache;
 import net.povstalec.stellarview.common.util.DustCloudInfo;
 import net.povstalec.stellarview.common.util.StarInfo;
 
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 public class ResourcepackReloadListener
@@ -68,43 +82,97 @@ public class ResourcepackReloadListener
 	private static HashMap<ResourceLocation, StarInfo> starTypes;
 	private static HashMap<ResourceLocation, DustCloudInfo> dustCloudTypes;
 	
+	// Files the current Space Objects were loaded from, compared with the ones of the next reload
+	private static Map<ResourceLocation, JsonElement> definitions;
+	
 	@EventBusSubscriber(modid = StellarView.MODID, bus = EventBusSubscriber.Bus.MOD, value = Dist.CLIENT)
-	public static class ReloadListener extends SimpleJsonResourceReloadListener
+	public static class ReloadListener implements PreparableReloadListener
 	{
-		public ReloadListener()
+		private static final Gson GSON = new GsonBuilder().create();
+		// Files decoded by a single task, small enough to spread a large pack over all workers without scheduling every file on its own
+		private static final int FILES_PER_TASK = 32;
+		
+		/**
+		 * Scans and decodes the files on the background executor, the decoding is split into tasks which run in parallel.
+		 * The reload event is posted on the game thread in between, so that addons can still change the scanned files before they're decoded.
+		 * Only handing the decoded scene to the renderers is left for the game thread
+		 */
+		@Override
+		public CompletableFuture<Void> reload(PreparableReloadListener.PreparationBarrier barrier, ResourceManager manager, ProfilerFiller prepareProfiler, ProfilerFiller applyProfiler,
+				Executor backgroundExecutor, Executor gameExecutor)
 		{
-			super(new GsonBuilder().create(), PATH);
+			return CompletableFuture.supplyAsync(() -> scan(manager), backgroundExecutor)
+					.thenApplyAsync(jsonMap -> StellarViewEvents.onReload(jsonMap, manager, applyProfiler) ? null : jsonMap, gameExecutor)
+					.thenCompose(jsonMap -> jsonMap == null ? CompletableFuture.<CelestialScene>completedFuture(null) : decode(jsonMap, backgroundExecutor)) // Nothing is decoded for a cancelled reload
+					.thenCompose(barrier::wait)
+					.thenAcceptAsync(scene ->
+					{
+						if(scene != null)
+							apply(scene, manager, applyProfiler);
+					}, gameExecutor);
 		}
 		
-		@Override
-		protected void apply(Map<ResourceLocation, JsonElement> jsonMap, ResourceManager manager, ProfilerFiller filler)
+		private static Map<ResourceLocation, JsonElement> scan(ResourceManager manager)
 		{
-			if(StellarViewEvents.onReload(jsonMap, manager, filler))
-				return;
+			long start = System.nanoTime();
 			
-			viewCenters = new HashMap<>();
-			spaceObjects = new HashMap<>();
+			HashMap<ResourceLocation, JsonElement> jsonMap = new HashMap<>();
+			SimpleJsonResourceReloadListener.scanDirectory(manager, PATH, GSON, jsonMap);
+			
+			StellarView.LOGGER.info("Scanned " + jsonMap.size() + " Stellar View files, took " + millis(start) + " ms");
+			return jsonMap;
+		}
+		
+		private static CompletableFuture<CelestialScene> decode(Map<ResourceLocation, JsonElement> jsonMap, Executor executor)
+		{
+			long start = System.nanoTime();
+			
+			ArrayList<Map.Entry<ResourceLocation, JsonElement>> entries = new ArrayList<>(jsonMap.entrySet());
+			ArrayList<CompletableFuture<CelestialScene.Builder>> tasks = new ArrayList<>();
+			for(int from = 0; from < entries.size(); from += FILES_PER_TASK)
+			{
+				List<Map.Entry<ResourceLocation, JsonElement>> part = entries.subList(from, Math.min(from + FILES_PER_TASK, entries.size()));
+				tasks.add(CompletableFuture.supplyAsync(() -> decode(part), executor));
+			}
 			
-			starTypes = new HashMap<>();
-			dustCloudTypes = new HashMap<>();
+			return Util.sequence(tasks).thenApply(parts ->
+			{
+				CelestialScene.Builder builder = new CelestialScene.Builder();
+				for(CelestialScene.Builder part : parts)
+				{
+					builder.merge(part);
+				}
+				
+				CelestialScene scene = builder.build(jsonMap);
+				StellarView.LOGGER.info("Decoded " + scene.spaceObjects().size() + " Space Objects and " + scene.viewCenters().size() + " View Centers in " + tasks.size() + " tasks, took " + millis(start) + " ms");
+				return scene;
+			});
+		}
+		
+		/**
+		 * Decodes a part of the files, runs on a worker thread so it may not touch anything outside of the builder it returns
+		 */
+		private static CelestialScene.Builder decode(List<Map.Entry<ResourceLocation, JsonElement>> entries)
+		{
+			CelestialScene.Builder builder = new CelestialScene.Builder();
 			
-    		for(Map.Entry<ResourceLocation, JsonElement> jsonEntry : jsonMap.entrySet())
+			for(Map.Entry<ResourceLocation, JsonElement> jsonEntry : entries)
 			{
 				ResourceLocation location = jsonEntry.getKey();
 				JsonElement element = jsonEntry.getValue();
 				
 				// Add View Center
 				if(canShortenPath(location, VIEW_CENTERS))
-					addViewCenter(viewCenters, shortenPath(location, VIEW_CENTERS), element);
+					addViewCenter(builder.viewCenters(), shortenPath(location, VIEW_CENTERS), element);
 				else if(canShortenPath(location, EFFECTS))
 				{
 					location = shortenPath(location, EFFECTS);
 					
 					if(canShortenPath(location, STAR_INFO))
-						addStarType(starTypes, shortenPath(location, STAR_INFO), element);
+						addStarType(builder.starTypes(), shortenPath(location, STAR_INFO), element);
 					
 					else if(canShortenPath(location, DUST_CLOUD_INFO))
-						addDustCloudType(dustCloudTypes, shortenPath(location, DUST_CLOUD_INFO), element);
+						addDustCloudType(builder.dustCloudTypes(), shortenPath(location, DUST_CLOUD_INFO), element);
 				}
 				else if(canShortenPath(location, CELESTIALS))
 				{
@@ -130,33 +198,77 @@ public class ResourcepackReloadListener
 						spaceObject = makeNebula(location, element);
 					
 					if(spaceObject != null)
-					{
-						SpaceObjectRenderer renderer = SpaceObjectRenderers.constructObjectRenderer(spaceObject);
-						
-						if(renderer != null)
-							spaceObjects.put(location, renderer);
-					}
+						builder.spaceObjects().put(location, spaceObject);
 				}
 			}
 			
+			return builder;
+		}
+		
+		protected void apply(CelestialScene scene, ResourceManager manager, ProfilerFiller filler)
+		{
+			long start = System.nanoTime();
+			
+			HashMap<ResourceLocation, SpaceObjectRenderer<?>> previousObjects = spaceObjects;
+			Map<ResourceLocation, JsonElement> previousDefinitions = definitions;
+			definitions = scene.jsonMap();
+			
+			viewCenters = new HashMap<>(scene.viewCenters());
+			spaceObjects = new HashMap<>();
+			
+			starTypes = new HashMap<>(scene.starTypes());
+			dustCloudTypes = new HashMap<>(scene.dustCloudTypes());
+			
+			for(Map.Entry<ResourceLocation, SpaceObject> spaceObjectEntry : scene.spaceObjects().entrySet())
+			{
+				SpaceObjectRenderer renderer = SpaceObjectRenderers.constructObjectRenderer(spaceObjectEntry.getValue());
+				
+				if(renderer != null)
+					spaceObjects.put(spaceObjectEntry.getKey(), renderer);
+			}
+			
+			long effectsStart = System.nanoTime();
 			if(!StellarViewEvents.onEffectsReload(starTypes, dustCloudTypes))
 			{
 				StellarViewEffects.reset();
 				StellarViewEffects.setupEffects(starTypes, dustCloudTypes);
 			}
 			
-			if(!StellarViewEvents.onSpaceRendererReload(spaceObjects))
+			long spaceObjectsStart = System.nanoTime();
+			boolean spaceRendererReloaded = !StellarViewEvents.onSpaceRendererReload(spaceObjects);
+			if(spaceRendererReloaded)
 			{
 				SpaceRenderer.clear();
 				setSpaceObjects(spaceObjects);
 				SpaceRenderer.setupSynodicOrbits();
 			}
 			
+			// Runs whatever the event outcome, otherwise the buffers of the previous Star Fields would stay on the GPU until they're evicted.
+			// When the event was cancelled the new Star Fields haven't been set up, so none of the previous ones are taken over
+			int reusedStarFields = reuseStarFields(previousObjects, spaceObjects);
+			if(spaceRendererReloaded)
+			{
+				logReuse(previousDefinitions, definitions, reusedStarFields);
+				pruneStarDataCache(spaceObjects);
+			}
+			
+			long viewCentersStart = System.nanoTime();
 			if(!StellarViewEvents.onViewCenterReload(spaceObjects, viewCenters))
 			{
 				ViewCenters.clear();
 				setViewCenters(spaceObjects, viewCenters);
 			}
+			
+			long atlasStart = System.nanoTime();
+			CelestialAtlas.build(manager, spaceObjects.values(), viewCenters.values());
+			
+			StellarView.LOGGER.info("Applied Stellar View resources, took " + millis(start) + " ms (renderers " + (effectsStart - start) / 1000000 + " ms, effects " + (spaceObjectsStart - effectsStart) / 1000000
+					+ " ms, space objects " + (viewCentersStart - spaceObjectsStart) / 1000000 + " ms, view centers " + (atlasStart - viewCentersStart) / 1000000 + " ms, atlas " + millis(atlasStart) + " ms)");
+		}
+		
+		private static long millis(long start)
+		{
+			return (System.nanoTime() - start) / 1000000;
 		}
 		
 		//============================================================================================
@@ -264,8 +376,8 @@ public class ResourcepackReloadListener
 				{
 					JsonObject json = GsonHelper.convertToJsonObject(element, "star");
 					Sol sol = Sol.CODEC.parse(JsonOps.INSTANCE, json).getOrThrow(loggedExceptionProvider("Failed to parse Sol"));
-					SpaceRenderer.addSol(sol);
 					
+					// Sol is only made distinct in setSpaceObjects, this runs off the render thread
 					return sol;
 				}
 				else
@@ -378,6 +490,84 @@ public class ResourcepackReloadListener
 			return null;
 		}
 		
+		/**
+		 * Lets the new Star Fields take over the Stars and Dust Clouds of previous ones that were generated from the same definition,
+		 * the buffers of those that weren't taken over are released
+		 * @return Number of Star Fields that took over the data of a previous one
+		 */
+		public static int reuseStarFields(@Nullable HashMap<ResourceLocation, SpaceObjectRenderer<?>> previousObjects, HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects)
+		{
+			if(previousObjects == null)
+				return 0;
+			
+			HashMap<ByteBuffer, StarFieldRenderer<?>> previousStarFields = new HashMap<>();
+			for(SpaceObjectRenderer<?> previous : previousObjects.values())
+			{
+				if(previous instanceof StarFieldRenderer<?> starField && starField.cacheKey() != null)
+					previousStarFields.put(ByteBuffer.wrap(starField.cacheKey()), starField);
+			}
+			
+			int reused = 0;
+			for(SpaceObjectRenderer<?> spaceObject : spaceObjects.values())
+			{
+				if(spaceObject instanceof StarFieldRenderer<?> starField && starField.cacheKey() != null)
+				{
+					StarFieldRenderer<?> previous = previousStarFields.remove(ByteBuffer.wrap(starField.cacheKey()));
+					
+					if(previous != null && starField.reuseData(previous))
+						reused++;
+				}
+			}
+			
+			// Star Fields that were taken over don't have anything left to release
+			for(SpaceObjectRenderer<?> previous : previousObjects.values())
+			{
+				if(previous instanceof StarFieldRenderer<?> starField)
+					starField.reset();
+			}
+			
+			return reused;
+		}
+		
+		/**
+		 * Prunes the cached Stars and Dust Clouds of Star Fields that aren't part of the new scene on the IO pool, the scene's own files are kept
+		 */
+		private static void pruneStarDataCache(HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects)
+		{
+			ArrayList<byte[]> keys = new ArrayList<>();
+			for(SpaceObjectRenderer<?> spaceObject : spaceObjects.values())
+			{
+				if(spaceObject instanceof StarFieldRenderer<?> starField && starField.cacheKey() != null)
+					keys.add(starField.cacheKey());
+			}
+			
+			CompletableFuture.runAsync(() -> StarDataCache.prune(keys), Util.ioPool());
+		}
+		
+		private static void logReuse(@Nullable Map<ResourceLocation, JsonElement> previousDefinitions, Map<ResourceLocation, JsonElement> definitions, int reusedStarFields)
+		{
+			int unchanged = 0;
+			if(previousDefinitions != null)
+			{
+				for(Map.Entry<ResourceLocation, JsonElement> definition : definitions.entrySet())
+				{
+					if(definition.getValue().equals(previousDefinitions.get(definition.getKey())))
+						unchanged++;
+				}
+			}
+			
+			int starFields = 0;
+			for(SpaceObjectRenderer<?> spaceObject : spaceObjects.values())
+			{
+				if(spaceObject instanceof StarFieldRenderer<?>)
+					starFields++;
+			}
+			
+			StellarView.LOGGER.info(unchanged + " of " + definitions.size() + " Stellar View definitions are unchanged, "
+					+ reusedStarFields + " Star Fields reused their Stars and Dust Clouds and " + (starFields - reusedStarFields) + " were rebuilt, "
+					+ BufferResidency.liveBuffers() + " buffers stay on the GPU");
+		}
+		
 		public static void setSpaceObjects(HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects)
 		{
 			for(Map.Entry<ResourceLocation, SpaceObjectRenderer<?>> spaceObjectEntry : spaceObjects.entrySet())
@@ -389,25 +579,17 @@ public class ResourcepackReloadListener
 
 				// Setup object
 				spaceObject.setupSpaceObject(spaceObjectEntry.getKey());
-				
-				// Handle parents
-				if(spaceObject.renderedObject().getParentLocation().isPresent())
-				{
-					for(Map.Entry<ResourceLocation, SpaceObjectRenderer<?>> parentEntry : spaceObjects.entrySet())
-					{
-						if(parentEntry.getKey().equals(spaceObject.renderedObject().getParentLocation().get()))
-						{
-							parentEntry.getValue().addChild(spaceObject);
-							break;
-						}
-					}
-					
-					if(!spaceObject.renderedObject().getParent().isPresent())
-						StellarView.LOGGER.error("Failed to find parent for " + spaceObject.toString());
-				}
-				else
-					SpaceRenderer.addSpaceObjectRenderer(spaceObjectEntry.getValue());
 			}
+			
+			// Handle parents
+			SceneGraphBuilder sceneGraph = new SceneGraphBuilder(spaceObjects).build();
+			for(SpaceObjectRenderer<?> root : sceneGraph.roots())
+			{
+				SpaceRenderer.addSpaceObjectRenderer(root);
+			}
+			
+			StellarView.LOGGER.debug("Linked " + sceneGraph.linked() + " Space Objects to their parents, " + sceneGraph.roots().size() + " without a parent, "
+					+ sceneGraph.missingParents() + " with a missing parent and " + sceneGraph.cycles() + " in parent cycles");
 		}
 		
 		
@@ -10,11 +10,14 @@ import com.mojang.serialization.codecs.RecordCodecBuilder;
 import net.minecraft.client.multiplayer.ClientLevel;
 import net.minecraft.client.renderer.GameRenderer;
 import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.common.util.AtlasSprite;
 import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.UV;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
+import javax.annotation.Nullable;
+
 public class Skybox
 {
 	public static final float DEFAULT_DISTANCE = 150.0F;
@@ -137,12 +140,14 @@ public class Skybox
 		UV.Quad uv = facade.uv();
 		Color.IntRGBA rgba = facade.rgba();
 		
-		RenderSystem.setShaderTexture(0, facade.texture());
+		AtlasSprite sprite = facade.sprite();
+		
+		RenderSystem.setShaderTexture(0, sprite.texture());
         final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX_COLOR);
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][0].x, BOX_COORDS[i][0].y, BOX_COORDS[i][0].z).setUv(uv.topLeft().u(), uv.topLeft().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][1].x, BOX_COORDS[i][1].y, BOX_COORDS[i][1].z).setUv(uv.bottomLeft().u(), uv.bottomLeft().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][2].x, BOX_COORDS[i][2].y, BOX_COORDS[i][2].z).setUv(uv.bottomRight().u(), uv.bottomRight().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
-        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][3].x, BOX_COORDS[i][3].y, BOX_COORDS[i][3].z).setUv(uv.topRight().u(), uv.topRight().v()).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][0].x, BOX_COORDS[i][0].y, BOX_COORDS[i][0].z).setUv(sprite.u(uv.topLeft().u()), sprite.v(uv.topLeft().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][1].x, BOX_COORDS[i][1].y, BOX_COORDS[i][1].z).setUv(sprite.u(uv.bottomLeft().u()), sprite.v(uv.bottomLeft().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][2].x, BOX_COORDS[i][2].y, BOX_COORDS[i][2].z).setUv(sprite.u(uv.bottomRight().u()), sprite.v(uv.bottomRight().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
+        bufferbuilder.addVertex(lastMatrix, BOX_COORDS[i][3].x, BOX_COORDS[i][3].y, BOX_COORDS[i][3].z).setUv(sprite.u(uv.topRight().u()), sprite.v(uv.topRight().v())).setColor(rgba.red(), rgba.green(), rgba.blue(), rgba.alpha());
         BufferUploader.drawWithShader(bufferbuilder.build());
 	}
 	
@@ -153,6 +158,9 @@ public class Skybox
 		private final ResourceLocation texture;
 		private final UV.Quad uv;
 		private final Color.IntRGBA rgba;
+		
+		@Nullable
+		private AtlasSprite sprite;
 	    
 	    public static final Codec<SkyboxFacade> CODEC = RecordCodecBuilder.create(instance -> instance.group(
 				ResourceLocation.CODEC.fieldOf("texture").forGetter(SkyboxFacade::texture),
@@ -181,5 +189,21 @@ public class Skybox
 		{
 			return rgba;
 		}
+		
+		/**
+		 * @return Sprite the texture was stitched into, or the whole texture if it isn't part of an atlas
+		 */
+		public AtlasSprite sprite()
+		{
+			if(sprite == null)
+				sprite = AtlasSprite.whole(texture);
+			
+			return sprite;
+		}
+		
+		public void setSprite(@Nullable AtlasSprite sprite)
+		{
+			this.sprite = sprite;
+		}
 	}
 }
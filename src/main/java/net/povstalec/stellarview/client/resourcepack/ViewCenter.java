@@ -10,8 +10,10 @@ import net.povstalec.stellarview.api.common.space_objects.SpaceObject;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
 import net.povstalec.stellarview.api.common.space_objects.StarLike;
 import net.povstalec.stellarview.api.common.space_objects.ViewObject;
-import net.povstalec.stellarview.client.render.LightEffects;
+import net.povstalec.stellarview.client.render.LightingContext;
+import net.povstalec.stellarview.client.render.SkyFramePipeline;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
 import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
 import net.povstalec.stellarview.client.render.space_objects.ViewObjectRenderer;
 import org.joml.Matrix4f;
@@ -33,11 +35,11 @@ import net.minecraft.resources.ResourceLocation;
 import net.minecraft.util.Mth;
 import net.minecraft.world.phys.Vec3;
 import net.povstalec.stellarview.StellarView;
-import net.povstalec.stellarview.client.render.level.util.StellarViewFogEffects;
 import net.povstalec.stellarview.client.render.level.util.StellarViewSkyEffects;
 import net.povstalec.stellarview.client.resourcepack.effects.MeteorEffect;
 import net.povstalec.stellarview.common.config.GeneralConfig;
 import net.povstalec.stellarview.common.util.AxisRotation;
+import net.povstalec.stellarview.common.util.MutableSpaceCoords;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
@@ -65,6 +67,9 @@ public class ViewCenter
 	protected float starBrightness;
 	protected float dustCloudBrightness;
 	
+	// Taken once at the start of every frame
+	protected final LightingContext lighting = new LightingContext();
+	
 	@Nullable
 	protected ResourceKey<SpaceObject> viewCenterKey;
 	@Nullable
@@ -82,7 +87,10 @@ public class ViewCenter
 	@Nullable
 	protected VertexBuffer darkBuffer;
 	
-	protected SpaceCoords coords;
+	// Changed in place while the chain of parents is walked every frame, the immutable copy is only made when it's asked for
+	protected final MutableSpaceCoords coords = new MutableSpaceCoords();
+	@Nullable
+	private SpaceCoords immutableCoords;
 	protected AxisRotation axisRotation;
 	protected long rotationPeriod;
 	
@@ -154,11 +162,6 @@ public class ViewCenter
 		this.createHorizon = createHorizon;
 		this.createVoid = createVoid;
 		
-		if(createHorizon)
-			skyBuffer = StellarViewSkyEffects.createLightSky();
-		if(createVoid)
-			darkBuffer = StellarViewSkyEffects.createDarkSky();
-		
 		this.starsAlwaysVisible = starsAlwaysVisible;
 		this.starsIgnoreFog = starsIgnoreFog;
 		this.starsIgnoreRain = starsIgnoreRain;
@@ -220,6 +223,14 @@ public class ViewCenter
 		return starBrightness;
 	}
 	
+	/**
+	 * @return Lighting of the frame that's currently being rendered
+	 */
+	public LightingContext lighting()
+	{
+		return lighting;
+	}
+	
 	public float dustCloudBrightness()
 	{
 		return dustCloudBrightness;
@@ -260,23 +271,43 @@ public class ViewCenter
 	}
 	
 	public SpaceCoords getCoords()
+	{
+		if(immutableCoords == null)
+			immutableCoords = coords.toSpaceCoords();
+		
+		return immutableCoords;
+	}
+	
+	/**
+	 * @return Coordinates of the View Center, which must not be modified by the caller
+	 */
+	public MutableSpaceCoords getMutableCoords()
 	{
 		return coords;
 	}
 	
+	public void setCoords(SpaceCoords coords)
+	{
+		this.coords.set(coords);
+		this.immutableCoords = coords;
+	}
+	
 	public void addCoords(SpaceCoords other)
 	{
-		this.coords = this.coords.add(other);
+		this.coords.add(other);
+		this.immutableCoords = null;
 	}
 	
 	public void addCoords(Vector3f vector)
 	{
-		this.coords = this.coords.add(vector);
+		this.coords.add(vector);
+		this.immutableCoords = null;
 	}
 	
 	public void subCoords(SpaceCoords other)
 	{
-		this.coords = this.coords.sub(other);
+		this.coords.sub(other);
+		this.immutableCoords = null;
 	}
 	
 	public AxisRotation getAxisRotation()
@@ -394,7 +425,7 @@ public class ViewCenter
 		if(viewObject == null)
 			return false;
 		
-		coords = viewObject.spaceCoords();
+		setCoords(viewObject.spaceCoords());
 		
 		final var transformedModelView = new Matrix4f(modelViewMatrix);
 		
@@ -403,8 +434,8 @@ public class ViewCenter
 			this.oldTicks = this.ticks;
 			this.ticks = GeneralConfig.tick_multiplier.get() * (GeneralConfig.use_game_ticks.get() ? level.getGameTime() : level.getDayTime());
 		}
-		this.starBrightness = LightEffects.starBrightness(this, level, camera, partialTicks);
-		this.dustCloudBrightness = GeneralConfig.dust_clouds.get() ? LightEffects.dustCloudBrightness(this, level, camera, partialTicks) : 0;
+		this.starBrightness = lighting.starBrightness();
+		this.dustCloudBrightness = GeneralConfig.dust_clouds.get() ? lighting.dustCloudBrightness() : 0;
 		
 		if(!GeneralConfig.disable_view_center_rotation.get())
 		{
@@ -426,7 +457,8 @@ public class ViewCenter
 			transformedModelView.rotate(Axis.ZP.rotation((float) getZRotation(level, camera, partialTicks)));
 		}
 		
-		viewObject.renderFrom(this, level, tickDifference() * partialTicks, transformedModelView, camera, projectionMatrix, StellarViewFogEffects.isFoggy(minecraft, camera), setupFog, tesselator);
+		SkyFramePipeline.beginFrame(this.ticks, tickDifference() * partialTicks);
+		viewObject.renderFrom(this, level, tickDifference() * partialTicks, transformedModelView, camera, projectionMatrix, lighting.isFoggy(), setupFog, tesselator);
 
 		RenderSystem.setShader(GameRenderer::getPositionTexShader);
 		renderSkyEvents(level, camera, partialTicks, modelViewMatrix, tesselator);
@@ -439,20 +471,55 @@ public class ViewCenter
 		SpaceRenderer.render(this, masterParent, level, camera, partialTicks, modelViewMatrix, projectionMatrix, isFoggy, setupFog, tesselator);
 	}
 	
+	/**
+	 * Creates the sky and void buffers, which is left to the first frame because View Centers are decoded off the render thread
+	 */
+	private void setupSkyBuffers()
+	{
+		if(createHorizon && skyBuffer == null)
+			skyBuffer = StellarViewSkyEffects.createLightSky();
+		if(createVoid && darkBuffer == null)
+			darkBuffer = StellarViewSkyEffects.createDarkSky();
+	}
+	
+	/**
+	 * Releases the sky and void buffers, called once the View Center is no longer used
+	 */
+	public void close()
+	{
+		if(skyBuffer != null)
+		{
+			skyBuffer.close();
+			skyBuffer = null;
+		}
+		if(darkBuffer != null)
+		{
+			darkBuffer.close();
+			darkBuffer = null;
+		}
+	}
+	
 	public boolean renderSky(ClientLevel level, int ticks, float partialTicks, Matrix4f modelViewMatrix, Camera camera, Matrix4f projectionMatrix, boolean isFoggy, Runnable setupFog)
 	{
 		if(viewObject == null && skyboxes == null)
 			return false;
 		
+		setupSkyBuffers();
+		
 		if(this.levelTicks != ticks)
 		{
 			this.updateTicks = true;
 			this.levelTicks = ticks;
 		}
 		
+		SkyRenderStats.beginFrame();
+		SkyRenderStats.push(SkyRenderStats.Phase.SKY);
+		
+		lighting.update(this, level, camera, partialTicks);
+		
 		setupFog.run();
 		
-		if(starsIgnoreFog() || !StellarViewFogEffects.isFoggy(this.minecraft, camera))
+		if(starsIgnoreFog() || !lighting.isFoggy())
 		{
 			//RenderSystem.disableTexture();
 			Vec3 skyColor = level.getSkyColor(this.minecraft.gameRenderer.getMainCamera().getPosition(), partialTicks);
@@ -518,6 +585,9 @@ public class ViewCenter
 		if(this.updateTicks)
 			this.updateTicks = false;
 		
+		SkyRenderStats.pop(SkyRenderStats.Phase.SKY);
+		SkyRenderStats.endFrame();
+		
 		return true;
 	}
 	
@@ -4,7 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
-import net.povstalec.stellarview.client.render.LightEffects;
+import javax.annotation.Nullable;
+
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
@@ -31,6 +32,8 @@ public abstract class MeteorEffect
 	
 	protected final ArrayList<MeteorType> meteorTypes;
 	protected int totalWeight = 0;
+	@Nullable
+	protected final WeightedSampler<MeteorType> sampler; // Null if there are no types to pick from
 	
 	protected double rarity;
 	
@@ -43,6 +46,8 @@ public abstract class MeteorEffect
 		{
 			this.totalWeight += meteorType.getWeight();
 		}
+		
+		this.sampler = meteorTypes.isEmpty() ? null : new WeightedSampler<MeteorType>(this.meteorTypes, MeteorType::getWeight, totalWeight);
 	}
 	
 	public List<MeteorType> getMeteorTypes()
@@ -71,26 +76,14 @@ public abstract class MeteorEffect
 	
 	protected MeteorType getRandomMeteorType(long seed)
 	{
-		Random random = new Random(seed);
-		
-		int i = 0;
-		
-		for(int weight = random.nextInt(0, totalWeight); i < meteorTypes.size() - 1; i++)
-		{
-			weight -= meteorTypes.get(i).getWeight();
-			
-			if(weight <= 0)
-				break;
-		}
-		
-		return meteorTypes.get(i);
+		return sampler.sample(new Random(seed));
 	}
 	
 	public Color.FloatRGBA rgba(ViewCenter viewCenter, ClientLevel level, Camera camera, long ticks, float partialTicks)
 	{
-		float brightness = LightEffects.getStarBrightness(viewCenter, level, camera, partialTicks) / 2F;
+		float brightness = viewCenter.lighting().baseStarBrightness() / 2F;
 		
-		brightness *= LightEffects.rainDimming(level, partialTicks);
+		brightness *= viewCenter.lighting().rainDimming();
 		
 		return new Color.FloatRGBA(1, 1, 1, brightness);
 	}
@@ -164,13 +157,16 @@ public abstract class MeteorEffect
 			
 			RenderSystem.setShaderColor(rgba.red() * textureLayer.rgba().red(), rgba.green() * textureLayer.rgba().green(), rgba.blue() * textureLayer.rgba().blue(), rgba.alpha() * textureLayer.rgba().alpha());
 			
-			RenderSystem.setShaderTexture(0, textureLayer.texture());
+			AtlasSprite sprite = textureLayer.sprite();
+			UV.Quad uv = textureLayer.uv();
+			
+			RenderSystem.setShaderTexture(0, sprite.texture());
 	        final var bufferbuilder = tesselator.begin(VertexFormat.Mode.QUADS, DefaultVertexFormat.POSITION_TEX);
 	        
-	        bufferbuilder.addVertex(lastMatrix, corner00.x, corner00.y, corner00.z).setUv(textureLayer.uv().topRight().u(ticks), textureLayer.uv().topRight().v(ticks));
-	        bufferbuilder.addVertex(lastMatrix, corner10.x, corner10.y, corner10.z).setUv(textureLayer.uv().bottomRight().u(ticks), textureLayer.uv().bottomRight().v(ticks));
-	        bufferbuilder.addVertex(lastMatrix, corner11.x, corner11.y, corner11.z).setUv(textureLayer.uv().bottomLeft().u(ticks), textureLayer.uv().bottomLeft().v(ticks));
-	        bufferbuilder.addVertex(lastMatrix, corner01.x, corner01.y, corner01.z).setUv(textureLayer.uv().topLeft().u(ticks), textureLayer.uv().topLeft().v(ticks));
+	        bufferbuilder.addVertex(lastMatrix, corner00.x, corner00.y, corner00.z).setUv(sprite.u(uv.topRight().u(ticks)), sprite.v(uv.topRight().v(ticks)));
+	        bufferbuilder.addVertex(lastMatrix, corner10.x, corner10.y, corner10.z).setUv(sprite.u(uv.bottomRight().u(ticks)), sprite.v(uv.bottomRight().v(ticks)));
+	        bufferbuilder.addVertex(lastMatrix, corner11.x, corner11.y, corner11.z).setUv(sprite.u(uv.bottomLeft().u(ticks)), sprite.v(uv.bottomLeft().v(ticks)));
+	        bufferbuilder.addVertex(lastMatrix, corner01.x, corner01.y, corner01.z).setUv(sprite.u(uv.topLeft().u(ticks)), sprite.v(uv.topLeft().v(ticks)));
 	        
 	        BufferUploader.drawWithShader(bufferbuilder.buildOrThrow());
 	        
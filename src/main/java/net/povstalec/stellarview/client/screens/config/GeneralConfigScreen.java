@@ -64,6 +64,26 @@ public class GeneralConfigScreen extends Screen
 				this.width, GeneralConfig.disable_stars));
 		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.textured_stars"),
 				this.width, GeneralConfig.textured_stars));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.instanced_stars"),
+				this.width, GeneralConfig.instanced_stars));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.upload_budget").append(Component.literal(": ")),
+				Component.literal("µs"),
+				this.width, GeneralConfig.upload_budget));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.buffer_memory_budget").append(Component.literal(": ")),
+				Component.literal("MB"),
+				this.width, GeneralConfig.buffer_memory_budget));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.lod_hysteresis").append(Component.literal(": ")),
+				Component.literal("%"),
+				this.width, GeneralConfig.lod_hysteresis));
+		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.lod_prefetch_time").append(Component.literal(": ")),
+				Component.literal("s"),
+				this.width, GeneralConfig.lod_prefetch_time));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.pipelined_sky"),
+				this.width, GeneralConfig.pipelined_sky));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.legacy_star_generation"),
+				this.width, GeneralConfig.legacy_star_generation));
+		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.horizon_culling"),
+				this.width, GeneralConfig.horizon_culling));
 		this.configList.add(new BooleanConfigEntry(Component.translatable("gui.stellarview.light_pollution"),
 				this.width, GeneralConfig.light_pollution));
 		this.configList.add(new ConfigList.SliderConfigEntry(Component.translatable("gui.stellarview.star_brightness").append(Component.literal(": ")),
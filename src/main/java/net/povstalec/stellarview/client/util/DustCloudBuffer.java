@@ -11,10 +11,13 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.renderer.ShaderInstance;
 import net.povstalec.stellarview.client.render.shader.DustCloudShaderInstance;
 import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
+import org.lwjgl.opengl.GL11C;
 import org.lwjgl.opengl.GL15C;
+import org.lwjgl.opengl.GL31C;
 
 import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
@@ -31,6 +34,12 @@ public class DustCloudBuffer implements AutoCloseable
 	private VertexFormat.IndexType indexType;
 	private int indexCount;
 	private VertexFormat.Mode mode;
+	private boolean instanced;
+	private int instanceCount;
+	@Nullable
+	private int[] drawRanges;
+	private int drawRangeCount;
+	private long byteSize;
 	
 	public DustCloudBuffer()
 	{
@@ -48,11 +57,13 @@ public class DustCloudBuffer implements AutoCloseable
 			try
 			{
 				final var drawState = mesh.drawState();
+				this.byteSize = 0;
 				this.format = this.uploadVertexBuffer(mesh, mesh.vertexBuffer());
 				this.sequentialIndices = this.uploadIndexBuffer(mesh, mesh.indexBuffer());
 				this.indexCount = drawState.indexCount();
 				this.indexType = drawState.indexType();
 				this.mode = drawState.mode();
+				this.instanced = false;
 			}
 			finally
 			{
@@ -61,6 +72,78 @@ public class DustCloudBuffer implements AutoCloseable
 		}
 	}
 	
+	/**
+	 * Uploads vertices that were written without a BufferBuilder, indices are provided by the sequential index buffer of the mode
+	 * @param vertexBuffer Buffer containing the vertices, the caller remains responsible for freeing it
+	 */
+	public void upload(ByteBuffer vertexBuffer, VertexFormat format, VertexFormat.Mode mode, int vertexCount)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!format.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			format.setupBufferState();
+			if(this.instanced)
+				StarBuffer.resetVertexAttribDivisors(format);
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, vertexBuffer, GL15C.GL_STATIC_DRAW);
+		this.byteSize = vertexBuffer.remaining();
+		
+		this.format = format;
+		this.mode = mode;
+		this.instanced = false;
+		this.indexCount = mode.indexCount(vertexCount);
+		
+		RenderSystem.AutoStorageIndexBuffer sequentialBuffer = RenderSystem.getSequentialBuffer(mode);
+		if(sequentialBuffer != this.sequentialIndices || !sequentialBuffer.hasStorage(this.indexCount))
+			sequentialBuffer.bind(this.indexCount);
+		
+		this.sequentialIndices = sequentialBuffer;
+		this.indexType = sequentialBuffer.type();
+	}
+	
+	/**
+	 * Uploads one record per instance, every instance is drawn as a triangle strip quad whose corners are created by the shader
+	 * @param instanceBuffer Buffer containing the instances, the caller remains responsible for freeing it
+	 */
+	public void uploadInstances(ByteBuffer instanceBuffer, VertexFormat format, int instanceCount)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!format.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			format.setupBufferState();
+			// Attributes advance once per instance rather than once per vertex
+			for(int i = 0; i < format.getElements().size(); i++)
+			{
+				StarBuffer.vertexAttribDivisor(i, 1);
+			}
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, instanceBuffer, GL15C.GL_STATIC_DRAW);
+		this.byteSize = instanceBuffer.remaining();
+		
+		this.format = format;
+		this.mode = VertexFormat.Mode.TRIANGLE_STRIP;
+		this.instanced = true;
+		this.instanceCount = instanceCount;
+		this.indexCount = 0;
+		this.sequentialIndices = null;
+	}
+	
 	private VertexFormat uploadVertexBuffer(MeshData mesh, ByteBuffer vertexBuffer)
 	{
 		final var drawState = mesh.drawState();
@@ -72,6 +155,8 @@ public class DustCloudBuffer implements AutoCloseable
 			
 			GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
 			drawState.format().setupBufferState();
+			if(this.instanced)
+				StarBuffer.resetVertexAttribDivisors(drawState.format());
 			formatEquals = true;
 		}
 		
@@ -81,6 +166,7 @@ public class DustCloudBuffer implements AutoCloseable
 				GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
 			
 			RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, vertexBuffer, 35044);
+			this.byteSize += vertexBuffer.remaining();
 		}
 		
 		return drawState.format();
@@ -94,6 +180,7 @@ public class DustCloudBuffer implements AutoCloseable
 		{
 			GlStateManager._glBindBuffer(GL15C.GL_ELEMENT_ARRAY_BUFFER, this.indexBufferId);
 			RenderSystem.glBufferData(GL15C.GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL15C.GL_STATIC_DRAW);
+			this.byteSize += indexBuffer.remaining();
 			return null;
 		}
 		else
@@ -118,9 +205,43 @@ public class DustCloudBuffer implements AutoCloseable
 		GlStateManager._glBindVertexArray(0);
 	}
 	
+	/**
+	 * Limits the next draw to the specified ranges of quads, everything is drawn again afterwards
+	 * @param ranges Ranges stored as the first quad followed by the number of quads, or null to draw everything
+	 * @param rangeCount Number of ranges in the array
+	 */
+	public void setDrawRanges(@Nullable int[] ranges, int rangeCount)
+	{
+		this.drawRanges = ranges;
+		this.drawRangeCount = rangeCount;
+	}
+	
 	public void draw()
 	{
-		RenderSystem.drawElements(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType);
+		int[] ranges = this.drawRanges;
+		this.drawRanges = null;
+		
+		if(ranges == null)
+		{
+			if(this.instanced)
+			{
+				GL31C.glDrawArraysInstanced(GL11C.GL_TRIANGLE_STRIP, 0, 4, this.instanceCount);
+				SkyRenderStats.draw(this.instanceCount * 4L);
+			}
+			else
+			{
+				RenderSystem.drawElements(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType);
+				SkyRenderStats.draw(this.indexCount / 6 * 4L);
+			}
+			return;
+		}
+		
+		StarBuffer.drawRanges(this.instanced, this.mode, this.getIndexType(), ranges, this.drawRangeCount);
+	}
+	
+	public boolean isInstanced()
+	{
+		return this.instanced;
 	}
 	
 	private VertexFormat.IndexType getIndexType()
@@ -293,6 +414,16 @@ public class DustCloudBuffer implements AutoCloseable
 			RenderSystem.glDeleteVertexArrays(this.arrayObjectId);
 			this.arrayObjectId = -1;
 		}
+		
+		this.byteSize = 0;
+	}
+	
+	/**
+	 * @return Size of the data uploaded to the buffer in bytes, the shared sequential index buffers aren't included
+	 */
+	public long byteSize()
+	{
+		return this.byteSize;
 	}
 	
 	public VertexFormat getFormat()
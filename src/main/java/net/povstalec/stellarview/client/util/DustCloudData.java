@@ -5,16 +5,18 @@ import com.mojang.blaze3d.vertex.*;
 import net.minecraft.client.renderer.GameRenderer;
 import net.povstalec.stellarview.api.common.space_objects.StarLike;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
-import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.client.render.BufferResidency;
+import net.povstalec.stellarview.client.render.BufferUploadScheduler;
 import net.povstalec.stellarview.client.render.shader.StellarViewShaders;
-import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
 import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.DustCloudInfo;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class DustCloudData
 {
@@ -22,23 +24,49 @@ public abstract class DustCloudData
 	public static final float MAX_SIZE = 50;
 	public static final float MAX_ALPHA = 0.025F;
 	
+	@Nullable
 	private LOD lod1;
+	@Nullable
+	private CompletableFuture<LOD> pendingLod1;
 	
 	public DustCloudData() {}
 	
 	public void reset()
 	{
+		// Generation still in progress is thrown away, whatever it produces is never picked up
+		if(pendingLod1 != null)
+		{
+			pendingLod1.cancel(false);
+			pendingLod1 = null;
+		}
+		
 		if(lod1 != null)
 			lod1.reset();
 	}
 	
-	public void renderDustClouds(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean isStatic)
+	public void renderDustClouds(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, SkyCulling culling, boolean isStatic)
 	{
 		if(lod1 == null)
-			lod1 = newDustClouds();
-		lod1.renderDustCloudBuffer(pose, projectionMatrix, difference, isStatic);
+		{
+			// Dust Clouds are generated on a worker thread and skipped until they're ready
+			if(pendingLod1 == null)
+				pendingLod1 = StarGenerationService.submit("Dust Clouds", () -> newDustClouds().sortIntoTiles(), () -> new LOD(0));
+			
+			if(!pendingLod1.isDone())
+				return;
+			
+			lod1 = pendingLod1.join();
+			pendingLod1 = null;
+		}
+		
+		lod1.renderDustCloudBuffer(pose, projectionMatrix, difference, culling, isStatic);
 	}
 	
+	/**
+	 * Generates Dust Clouds.
+	 * This is called from one of the {@link StarGenerationService} worker threads, so it must not touch anything that belongs to the render thread
+	 * @return LOD containing the generated Dust Clouds
+	 */
 	protected abstract DustCloudData.LOD newDustClouds();
 	
 	
@@ -47,33 +75,128 @@ public abstract class DustCloudData
 	{
 		@Nullable
 		protected DustCloudBuffer dustCloudBuffer;
+		private final BufferUploadScheduler.Ticket uploadTicket = new BufferUploadScheduler.Ticket();
+		private final BufferResidency.Handle residency = new BufferResidency.Handle();
 		
-		private double[][] dustCloudCoords;
-		private double[] dustCloudSizes;
+		// Same flat layout as the Stars, see StarData.LOD
+		private final double[] dustCloudX;
+		private final double[] dustCloudY;
+		private final double[] dustCloudZ;
+		private final float[] dustCloudSizes;
 		
-		private short[][] dustCloudRGBA;
+		private final int[] dustCloudRGBA; // Packed as 0xRRGGBBAA
 		
-		private double[][] randoms;
+		private final float[] dustCloudRotations; // Rotation angle in radians
 		
 		private int dustClouds;
 		
+		private SkyTiles tiles = SkyTiles.EMPTY;
+		private int[] visibleRanges = new int[0];
+		private float quadExtent; // How far the corners of the largest Dust Cloud can reach from its center
+		
 		public LOD(int dustClouds)
 		{
-			this.dustCloudCoords = new double[dustClouds][3];
-			this.dustCloudSizes = new double[dustClouds];
+			this.dustCloudX = new double[dustClouds];
+			this.dustCloudY = new double[dustClouds];
+			this.dustCloudZ = new double[dustClouds];
+			this.dustCloudSizes = new float[dustClouds];
 			
-			this.randoms = new double[dustClouds][2];
+			this.dustCloudRotations = new float[dustClouds];
 			
-			this.dustCloudRGBA = new short[dustClouds][4];
+			this.dustCloudRGBA = new int[dustClouds];
 			
 			this.dustClouds = 0;
 		}
 		
+		public int dustClouds()
+		{
+			return dustClouds;
+		}
+		
+		/**
+		 * Sorts the Dust Clouds into sky tiles, see {@link StarData.LOD#sortIntoTiles()}
+		 * @return This LOD
+		 */
+		public LOD sortIntoTiles()
+		{
+			tiles = SkyTiles.sort(dustClouds, dustCloudX, dustCloudY, dustCloudZ, dustCloudSizes, dustCloudRGBA, dustCloudRotations);
+			visibleRanges = new int[tiles.tiles() * 2];
+			
+			float maxSize = 0;
+			for(int i = 0; i < dustClouds; i++)
+			{
+				maxSize = Math.max(maxSize, dustCloudSizes[i]);
+			}
+			// Dust Clouds are clamped to MAX_SIZE, unless their minimum size is even larger than that
+			quadExtent = Math.max(MAX_SIZE, maxSize * 4 * 0.04F) * (float) Math.sqrt(2);
+			
+			return this;
+		}
+		
+		//============================================================================================
+		//*******************************************Caching******************************************
+		//============================================================================================
+		
+		/**
+		 * @return Number of bytes needed to write this LOD into a buffer
+		 */
+		public int byteSize()
+		{
+			return Integer.BYTES + dustClouds * (Double.BYTES * 3 + Float.BYTES * 3 + Integer.BYTES);
+		}
+		
+		public void write(ByteBuffer buffer)
+		{
+			buffer.putInt(dustClouds);
+			
+			StarDataCache.putDoubles(buffer, dustCloudX, dustClouds);
+			StarDataCache.putDoubles(buffer, dustCloudY, dustClouds);
+			StarDataCache.putDoubles(buffer, dustCloudZ, dustClouds);
+			StarDataCache.putFloats(buffer, dustCloudSizes, dustClouds);
+			StarDataCache.putInts(buffer, dustCloudRGBA, dustClouds);
+			StarDataCache.putFloats(buffer, dustCloudRotations, dustClouds);
+		}
+		
+		/**
+		 * Reads a LOD previously written with {@link #write(ByteBuffer)}
+		 * @return LOD read from the buffer, or null if the buffer doesn't contain a valid LOD
+		 */
+		@Nullable
+		public static LOD read(ByteBuffer buffer)
+		{
+			if(buffer.remaining() < Integer.BYTES)
+				return null;
+			
+			int dustClouds = buffer.getInt();
+			if(dustClouds < 0 || buffer.remaining() != (long) dustClouds * (Double.BYTES * 3 + Float.BYTES * 3 + Integer.BYTES))
+				return null;
+			
+			LOD lod = new LOD(dustClouds);
+			
+			StarDataCache.getDoubles(buffer, lod.dustCloudX, dustClouds);
+			StarDataCache.getDoubles(buffer, lod.dustCloudY, dustClouds);
+			StarDataCache.getDoubles(buffer, lod.dustCloudZ, dustClouds);
+			StarDataCache.getFloats(buffer, lod.dustCloudSizes, dustClouds);
+			StarDataCache.getInts(buffer, lod.dustCloudRGBA, dustClouds);
+			StarDataCache.getFloats(buffer, lod.dustCloudRotations, dustClouds);
+			
+			lod.dustClouds = dustClouds;
+			
+			return lod;
+		}
+		
+		//============================================================================================
+		//*******************************************Buffers******************************************
+		//============================================================================================
+		
 		public void reset()
 		{
+			uploadTicket.cancel();
+			
 			if(dustCloudBuffer == null)
 				return;
 			
+			BufferResidency.untrack(residency);
 			dustCloudBuffer.close();
 			dustCloudBuffer = null;
 		}
@@ -89,148 +212,137 @@ public abstract class DustCloudData
 		 * @param i Index of the star
 		 */
 		public void newDustCloud(DustCloudInfo.DustCloudType dustCloudType, Random random, double x, double y, double z, double sizeMultiplier)
+		{
+			setDustCloud(dustClouds, dustCloudType, random, x, y, z, sizeMultiplier);
+			
+			dustClouds++;
+		}
+		
+		/**
+		 * Makes room for Dust Clouds that are going to be created with {@link #setDustCloud(int, DustCloudInfo.DustCloudType, Random, double, double, double, double)}
+		 * @param count Number of Dust Clouds
+		 * @return Index of the first Dust Cloud
+		 */
+		public int reserve(int count)
+		{
+			int start = dustClouds;
+			dustClouds += count;
+			
+			return start;
+		}
+		
+		/**
+		 * Same as {@link #newDustCloud(DustCloudInfo.DustCloudType, Random, double, double, double, double)}, but for a Dust Cloud that has already been reserved.
+		 * Different Dust Clouds can be set from different threads at once
+		 * @param index Index of the Dust Cloud
+		 */
+		public void setDustCloud(int index, DustCloudInfo.DustCloudType dustCloudType, Random random, double x, double y, double z, double sizeMultiplier)
 		{
 			// Set up position
 			
-			dustCloudCoords[dustClouds][0] = x;
-			dustCloudCoords[dustClouds][1] = y;
-			dustCloudCoords[dustClouds][2] = z;
+			dustCloudX[index] = x;
+			dustCloudY[index] = y;
+			dustCloudZ[index] = z;
 			
 			Color.IntRGB rgb = dustCloudType.getRGB();
 			
 			// Set up size
 			
-			dustCloudSizes[dustClouds] = dustCloudType.randomSize(random) * sizeMultiplier; // This randomizes the Star size
+			dustCloudSizes[index] = (float) (dustCloudType.randomSize(random) * sizeMultiplier); // This randomizes the Star size
 			
 			// Set up color and alpha
 			
 			short alpha = dustCloudType.randomBrightness(random); // 0xAA is the default
 			
-			this.dustCloudRGBA[dustClouds] = new short[] {(short) rgb.red(), (short) rgb.green(), (short) rgb.blue(), alpha};
-			
-			// sin and cos are used to effectively clamp the random number between two values without actually clamping it,
-			// wwhich would result in some awkward lines as Stars would be brought to the clamped values
-			// Both affect Star size and rotation
-			double randomValue = random.nextDouble() * Math.PI * 2.0D;
-			randoms[dustClouds][0] = Math.sin(randomValue); // sin random
-			randoms[dustClouds][1] = Math.cos(randomValue); // cos random
+			this.dustCloudRGBA[index] = StarData.packRGBA(rgb.red(), rgb.green(), rgb.blue(), alpha);
 			
-			dustClouds++;
+			// Only the angle is stored, its sin and cos are calculated when the buffer is created
+			dustCloudRotations[index] = (float) (random.nextDouble() * Math.PI * 2.0D);
+		}
+		
+		public void createDustCloud(StarMeshWriter writer, int i)
+		{
+			writer.quad((float) dustCloudX[i], (float) dustCloudY[i], (float) dustCloudZ[i], dustCloudRGBA[i], dustCloudRotations[i], dustCloudSizes[i]);
 		}
 		
-		public void createDustCloud(BufferBuilder builder, int i)
+		/**
+		 * Writes all Dust Clouds into a new mesh, which needs to be closed once it's been uploaded
+		 * @param instanced Whether each Dust Cloud should be written as a single instance
+		 * @return Mesh containing all Dust Clouds of this LOD
+		 */
+		public StarMeshWriter getDustCloudMesh(boolean instanced)
 		{
-			double sinRandom = randoms[i][0];
-			double cosRandom = randoms[i][1];
+			StarMeshWriter writer = new StarMeshWriter(dustClouds, true, instanced);
 			
-			// This loop creates the 4 corners of a Star
-			for(int j = 0; j < 4; ++j)
+			for(int i = 0; i < dustClouds; i++)
 			{
-				/* Bitwise AND is there to multiply the size by either 1 or -1 to reach this effect:
-				 * Where a coordinate is written as (A,B)
-				 * 		(-1,1)		(1,1)
-				 * 		x-----------x
-				 * 		|			|
-				 * 		|			|
-				 * 		|			|
-				 * 		|			|
-				 * 		x-----------x
-				 * 		(-1,-1)		(1,-1)
-				 * 								|	A	B
-				 * 0 & 2 = 000 & 010 = 000 = 0	|	x
-				 * 1 & 2 = 001 & 010 = 000 = 0	|	x	x
-				 * 2 & 2 = 010 & 010 = 010 = 2	|	x	x
-				 * 3 & 2 = 011 & 010 = 010 = 2	|	x	x
-				 * 4 & 2 = 100 & 000 = 000 = 0	|		x
-				 *
-				 * After you subtract 1 one from each of them, you get this:
-				 * j:	0	1	2	3
-				 * --------------------
-				 * A:	-1	-1	1	1
-				 * B:	-1	1	1	-1
-				 * Which corresponds to:
-				 * UV:	00	01	11	10
-				 */
-				double aLocation = (j & 2) - 1;
-				double bLocation = (j + 1 & 2) - 1;
-				
-				/* These are the values for cos(random) = sin(random)
-				 * (random is simply there to randomize the star rotation)
-				 * j:	0	1	2	3
-				 * -------------------
-				 * A:	0	-2	0	2
-				 * B:	-2	0	2	0
-				 *
-				 * A and B are there to create a diamond effect on the Y-axis and X-axis respectively
-				 * (Pretend it's not as stretched as the slashes make it look)
-				 * Where a coordinate is written as (B,A)
-				 *
-				 *           (0,2)
-				 *          /\
-				 *   (-2,0)/  \(2,0)
-				 *         \  /
-				 *          \/
-				 *           (0,-2)
-				 *
-				 */
-				double height = aLocation * cosRandom - bLocation * sinRandom;
-				double width = bLocation * cosRandom + aLocation * sinRandom;
-				
-				builder.addVertex((float) dustCloudCoords[i][0], (float) dustCloudCoords[i][1], (float) dustCloudCoords[i][2])
-						.setColor((byte) dustCloudRGBA[i][0], (byte) dustCloudRGBA[i][1], (byte) dustCloudRGBA[i][2], (byte) dustCloudRGBA[i][3]);
-				
-				StarData.addStarHeightWidthSize(builder, (float) height, (float) width, (float) dustCloudSizes[i]);
-				
-				builder.setUv( (float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F);
+				createDustCloud(writer, i);
 			}
+			return writer;
 		}
 		
-		public MeshData getDustCloudBuffer(Tesselator tesselator)
+		public void renderDustCloudBuffer(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, SkyCulling culling, boolean isStatic)
 		{
-			final var bufferBuilder = tesselator.begin(VertexFormat.Mode.QUADS, StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get());
+			if(dustClouds == 0)
+				return;
 			
-			for(int i = 0; i < dustClouds; i++)
+			boolean instanced = !isStatic && StarBuffer.useInstancing() && StellarViewShaders.dustCloudInstancedShader() != null;
+			
+			if(dustCloudBuffer != null && !isStatic && dustCloudBuffer.isInstanced() != instanced) // Instancing has been toggled
+				reset();
+			
+			if(dustCloudBuffer == null) // Buffer requires setup, which is left to the scheduler
 			{
-				createDustCloud(bufferBuilder, i);
+				// Dust Clouds are uploaded after the Stars of Star Fields at the same distance
+				BufferUploadScheduler.request(uploadTicket, Math.sqrt(difference.lyDistanceSquared()), StarField.LevelOfDetail.values().length,
+						() -> createDustCloudBuffer(difference, isStatic, instanced));
+				return;
 			}
-			return bufferBuilder.build();
+			
+			BufferResidency.drawn(residency);
+			
+			// Only the tiles in the visible part of the sky are drawn
+			int rangeCount = -1;
+			if(!dustCloudBuffer.isInstanced() || StarBuffer.supportsBaseInstance())
+				rangeCount = tiles.visibleRanges(culling, difference.x().toLy(), difference.y().toLy(), difference.z().toLy(), quadExtent, visibleRanges);
+			
+			if(rangeCount == 0)
+				return;
+			
+			dustCloudBuffer.bind();
+			dustCloudBuffer.setDrawRanges(rangeCount < 0 ? null : visibleRanges, rangeCount);
+			if(isStatic)
+				dustCloudBuffer.drawWithShader(pose, projectionMatrix, GameRenderer.getPositionTexColorShader());
+			else
+				dustCloudBuffer.drawWithShader(pose, projectionMatrix, difference, instanced ? StellarViewShaders.dustCloudInstancedShader() : StellarViewShaders.starDustCloudShader());
+			VertexBuffer.unbind();
 		}
 		
-		public void renderDustCloudBuffer(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean isStatic)
+		private void createDustCloudBuffer(SpaceCoords difference, boolean isStatic, boolean instanced)
 		{
-			if(dustClouds == 0)
+			if(dustCloudBuffer != null)
 				return;
 			
-			if(dustCloudBuffer == null) // Buffer requires setup
+			dustCloudBuffer = new DustCloudBuffer();
+			
+			RenderSystem.setShader(GameRenderer::getPositionShader);
+			if(isStatic)
 			{
-				if(!SpaceRenderer.loadNewDustClouds())
-					return;
-				
-				dustCloudBuffer = new DustCloudBuffer();
-				
-				Tesselator tesselator = Tesselator.getInstance();
-				RenderSystem.setShader(GameRenderer::getPositionShader);
-				MeshData mesh = isStatic ? getStaticDustCloudBuffer(tesselator, difference) : getDustCloudBuffer(tesselator);
-				
+				MeshData mesh = getStaticDustCloudBuffer(Tesselator.getInstance(), difference);
 				dustCloudBuffer.bind();
 				dustCloudBuffer.upload(mesh);
-				if(isStatic)
-					dustCloudBuffer.drawWithShader(pose, projectionMatrix, GameRenderer.getPositionTexColorShader());
-				else
-					dustCloudBuffer.drawWithShader(pose, projectionMatrix, difference, StellarViewShaders.starDustCloudShader());
-				VertexBuffer.unbind();
-				
-				SpaceRenderer.loadedDustClouds(dustClouds);
 			}
 			else
 			{
-				dustCloudBuffer.bind();
-				if(isStatic)
-					dustCloudBuffer.drawWithShader(pose, projectionMatrix, GameRenderer.getPositionTexColorShader());
-				else
-					dustCloudBuffer.drawWithShader(pose, projectionMatrix, difference, StellarViewShaders.starDustCloudShader());
-				VertexBuffer.unbind();
+				try(StarMeshWriter mesh = getDustCloudMesh(instanced))
+				{
+					dustCloudBuffer.bind();
+					mesh.upload(dustCloudBuffer);
+				}
 			}
+			VertexBuffer.unbind();
+			
+			BufferResidency.track(residency, dustCloudBuffer.byteSize(), this::reset);
 		}
 		
 		//============================================================================================
@@ -276,15 +388,17 @@ public abstract class DustCloudData
 		
 		private void createStaticDustCloud(BufferBuilder builder, int i, SpaceCoords difference)
 		{
-			double x = dustCloudCoords[i][0] - difference.x().toLy();
-			double y = dustCloudCoords[i][1] - difference.y().toLy();
-			double z = dustCloudCoords[i][2] - difference.z().toLy();
+			double x = dustCloudX[i] - difference.x().toLy();
+			double y = dustCloudY[i] - difference.y().toLy();
+			double z = dustCloudZ[i] - difference.z().toLy();
 			
 			double distance = Math.sqrt(x * x + y * y + z * z); // Distance squared
 			
 			// COLOR START - Adjusts the brightness (alpha) of the star based on its distance
 			
-			short alpha = dustCloudRGBA[i][3];
+			int rgba = dustCloudRGBA[i];
+			
+			short alpha = StarData.alpha(rgba);
 			alpha = (short) (255 * clampAlpha(alpha / 255D, distance));
 			
 			//if(alpha < 26)
@@ -330,8 +444,8 @@ public abstract class DustCloudData
 			double sinPhi = Math.sin(sphericalPhi);
 			double cosPhi = Math.cos(sphericalPhi);
 			
-			double sinRandom = randoms[i][0];
-			double cosRandom = randoms[i][1];
+			double sinRandom = Math.sin(dustCloudRotations[i]);
+			double cosRandom = Math.cos(dustCloudRotations[i]);
 			
 			// This loop creates the 4 corners of a Star
 			for(int j = 0; j < 4; ++j)
@@ -405,7 +519,7 @@ public abstract class DustCloudData
 				
 				builder.addVertex((float) (starX + projectedX), (float) (starY + heightProjectionY), (float) (starZ + projectedZ))
 						.setUv( (float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F)
-						.setColor((byte) dustCloudRGBA[i][0], (byte) dustCloudRGBA[i][1], (byte) dustCloudRGBA[i][2], alpha);
+						.setColor(StarData.red(rgba), StarData.green(rgba), StarData.blue(rgba), alpha);
 			}
 		}
 	}
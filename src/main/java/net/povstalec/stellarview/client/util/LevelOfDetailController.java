@@ -0,0 +1,159 @@
+package net.povstalec.stellarview.client.util;
+
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.SpaceCoords;
+
+import javax.annotation.Nullable;
+
+/**
+ * Picks the Level of Detail a Star Field is rendered with.
+ * The distance thresholds are widened into bands and the current LOD is only left once the View Center is past the band,
+ * so moving along a threshold doesn't keep switching between two LODs.
+ * It also keeps track of how fast the View Center approaches the Star Field, which lets the closer LOD be generated and uploaded before it's reached
+ */
+public final class LevelOfDetailController
+{
+	private static final double NANOS_PER_SECOND = 1000000000D;
+	private static final long MAX_UPDATE_NANOS = 1000000000L; // Anything longer is a pause or a teleport, which says nothing about the speed
+	private static final double SPEED_SMOOTHING = 0.25D;
+	
+	private static final StarField.LevelOfDetail[] LEVELS = StarField.LevelOfDetail.values();
+	
+	private static long totalTransitions = 0;
+	private static long totalPrefetches = 0;
+	private static long totalPrefetchHits = 0;
+	
+	@Nullable
+	private StarField.LevelOfDetail current;
+	@Nullable
+	private StarField.LevelOfDetail prefetched;
+	
+	private double lastDistance;
+	private long lastUpdate;
+	private double speed; // Light years per second, negative while approaching
+	
+	/**
+	 * Picks the LOD for the current frame and decides whether a closer one should be prefetched, has to be called once per frame
+	 * @param difference Difference between the View Center and the Star Field
+	 * @param starData Stars of the Star Field, used to tell if a prefetched LOD was ready in time
+	 * @return LOD the Star Field should be rendered with
+	 */
+	public StarField.LevelOfDetail update(SpaceCoords difference, StarData starData)
+	{
+		double distance = Math.sqrt(difference.lyDistanceSquared());
+		double hysteresis = GeneralConfig.lod_hysteresis.get() / 100D;
+		long now = System.nanoTime();
+		
+		if(current == null)
+		{
+			current = StarField.LevelOfDetail.fromDistance(difference);
+			speed = 0;
+		}
+		else
+		{
+			long elapsed = now - lastUpdate;
+			if(elapsed > 0 && elapsed < MAX_UPDATE_NANOS)
+				speed += ((distance - lastDistance) * NANOS_PER_SECOND / elapsed - speed) * SPEED_SMOOTHING;
+			else
+				speed = 0;
+			
+			StarField.LevelOfDetail levelOfDetail = fromDistance(distance, hysteresis);
+			if(levelOfDetail != current)
+			{
+				totalTransitions++;
+				if(levelOfDetail == prefetched && starData.isReady(levelOfDetail))
+					totalPrefetchHits++;
+				
+				current = levelOfDetail;
+			}
+		}
+		
+		lastDistance = distance;
+		lastUpdate = now;
+		
+		StarField.LevelOfDetail predicted = predict(distance, hysteresis);
+		if(predicted != prefetched && predicted != null)
+			totalPrefetches++;
+		prefetched = predicted;
+		
+		return current;
+	}
+	
+	/**
+	 * @return LOD picked during the last update, or the one without any hysteresis if there hasn't been one yet
+	 */
+	public StarField.LevelOfDetail current(SpaceCoords difference)
+	{
+		return current != null ? current : StarField.LevelOfDetail.fromDistance(difference);
+	}
+	
+	/**
+	 * @return Closer LOD the View Center is about to reach, which should be prepared ahead of time
+	 */
+	@Nullable
+	public StarField.LevelOfDetail prefetched()
+	{
+		return prefetched;
+	}
+	
+	/**
+	 * Same as {@link StarField.LevelOfDetail#fromDistance(long)}, except that every threshold is moved away from the current LOD by the hysteresis
+	 */
+	private StarField.LevelOfDetail fromDistance(double distance, double hysteresis)
+	{
+		// The closest LOD has no threshold of its own
+		for(int i = 0; i < LEVELS.length - 1; i++)
+		{
+			double band = LEVELS[i].minDistance() * hysteresis;
+			double threshold = current.ordinal() <= i ? LEVELS[i].minDistance() - band : LEVELS[i].minDistance() + band;
+			
+			if(distance >= threshold)
+				return LEVELS[i];
+		}
+		
+		return LEVELS[LEVELS.length - 1];
+	}
+	
+	/**
+	 * Only closer LODs are predicted, the farther ones are rendered alongside the closer ones and are always ready
+	 */
+	@Nullable
+	private StarField.LevelOfDetail predict(double distance, double hysteresis)
+	{
+		if(speed >= 0)
+			return null;
+		
+		StarField.LevelOfDetail predicted = fromDistance(distance + speed * GeneralConfig.lod_prefetch_time.get(), hysteresis);
+		
+		return predicted.ordinal() > current.ordinal() ? predicted : null;
+	}
+	
+	//============================================================================================
+	//******************************************Metrics*******************************************
+	//============================================================================================
+	
+	/**
+	 * @return Number of times a Star Field switched to a different LOD since the game started
+	 */
+	public static long totalTransitions()
+	{
+		return totalTransitions;
+	}
+	
+	/**
+	 * @return Number of times a closer LOD started being prefetched
+	 */
+	public static long totalPrefetches()
+	{
+		return totalPrefetches;
+	}
+	
+	/**
+	 * @return Number of switches to a prefetched LOD that was already generated and uploaded by the time it was needed
+	 */
+	public static long totalPrefetchHits()
+	{
+		return totalPrefetchHits;
+	}
+}
@@ -0,0 +1,87 @@
+package net.povstalec.stellarview.client.util;
+
+import net.minecraft.client.Camera;
+import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix3f;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * Decides which parts of the sky sphere can be seen during the current frame.
+ * Positions are tested in the same space the Star shaders work in, which is the sky sphere with the radius of {@link StarData#DEFAULT_DISTANCE}
+ */
+public final class SkyCulling
+{
+	// Roughly 10 degrees, leaves some room for mountains and for looking down from high places
+	private static final float HORIZON_MARGIN = 0.17F * StarData.DEFAULT_DISTANCE;
+	
+	private final Matrix4f matrix = new Matrix4f();
+	private final Matrix3f rotation = new Matrix3f();
+	private final Matrix3f lensing = new Matrix3f();
+	private final FrustumIntersection frustum = new FrustumIntersection();
+	private final Vector3f up = new Vector3f();
+	private final Vector3f position = new Vector3f();
+	
+	private boolean enabled;
+	private boolean lensed;
+	private boolean horizon;
+	
+	/**
+	 * Sets the culling up for the current frame
+	 * @param modelViewMatrix Model View Matrix used for rendering the Stars, including the rotation of the View Center
+	 * @param isStatic Whether the Stars are rendered without shaders, in which case they aren't affected by lensing
+	 * @param hasHorizon Whether the View Center creates a horizon, without one there's no ground that could hide the Stars below it
+	 */
+	public SkyCulling update(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, Camera camera, boolean isStatic, boolean hasHorizon)
+	{
+		// Strong lensing moves Stars around the sky, so there's no telling where they end up
+		enabled = isStatic || SpaceRenderer.lensingIntensity <= 1.0F;
+		if(!enabled)
+			return this;
+		
+		lensed = !isStatic && SpaceRenderer.lensingIntensity > 0.0F;
+		if(lensed)
+			lensing.set(SpaceRenderer.lensingMatrixInv);
+		
+		frustum.set(matrix.set(projectionMatrix).mul(modelViewMatrix), true);
+		
+		horizon = hasHorizon && GeneralConfig.horizon_culling.get();
+		if(horizon)
+		{
+			// World up is moved into the view space first, then back into the rotated space of the Stars
+			camera.rotation().transformInverse(up.set(0, 1, 0));
+			rotation.set(modelViewMatrix).transformTranspose(up).normalize();
+		}
+		
+		return this;
+	}
+	
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+	
+	/**
+	 * @param x X coordinate of the center of the sphere on the sky sphere
+	 * @param y Y coordinate of the center of the sphere on the sky sphere
+	 * @param z Z coordinate of the center of the sphere on the sky sphere
+	 * @param radius Radius of the sphere
+	 * @return True if some part of the sphere may be visible
+	 */
+	public boolean isVisible(float x, float y, float z, float radius)
+	{
+		if(!enabled)
+			return true;
+		
+		position.set(x, y, z);
+		if(lensed)
+			lensing.transform(position);
+		
+		if(horizon && position.dot(up) + radius < -HORIZON_MARGIN)
+			return false;
+		
+		return frustum.testSphere(position.x, position.y, position.z, radius);
+	}
+}
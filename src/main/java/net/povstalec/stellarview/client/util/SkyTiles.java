@@ -0,0 +1,291 @@
+package net.povstalec.stellarview.client.util;
+
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
+
+/**
+ * Groups the Stars or Dust Clouds of a single LOD into spatial tiles, each of which occupies a contiguous range of its buffer.
+ * Every tile keeps a bounding sphere, which lets the renderer figure out which part of the sky the tile covers
+ * and skip the ranges that can't be seen
+ */
+public final class SkyTiles
+{
+	public static final SkyTiles EMPTY = new SkyTiles(new int[] {0}, new float[0], new float[0], new float[0], new float[0]);
+	
+	private static final int TARGET_PER_TILE = 512;
+	private static final int MAX_TILES = 512;
+	private static final int MAX_TILES_PER_AXIS = 16;
+	
+	private final int tiles;
+	private final int[] tileStart; // Tile i spans from tileStart[i] to tileStart[i + 1]
+	
+	private final float[] centerX;
+	private final float[] centerY;
+	private final float[] centerZ;
+	private final float[] radius;
+	
+	private SkyTiles(int[] tileStart, float[] centerX, float[] centerY, float[] centerZ, float[] radius)
+	{
+		this.tiles = tileStart.length - 1;
+		this.tileStart = tileStart;
+		
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.centerZ = centerZ;
+		this.radius = radius;
+	}
+	
+	public int tiles()
+	{
+		return tiles;
+	}
+	
+	/**
+	 * Sorts the elements into tiles, all the arrays are reordered in place
+	 * @param count Number of elements in the arrays
+	 * @return Tiles the elements were sorted into
+	 */
+	public static SkyTiles sort(int count, double[] x, double[] y, double[] z, float[] sizes, int[] rgba, float[] rotations)
+	{
+		if(count == 0)
+			return EMPTY;
+		
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		
+		for(int i = 0; i < count; i++)
+		{
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			minZ = Math.min(minZ, z[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+			maxZ = Math.max(maxZ, z[i]);
+		}
+		
+		// Cells are roughly cubic, so flat Star Fields end up with a single layer of tiles
+		double extentX = Math.max(maxX - minX, 1E-3);
+		double extentY = Math.max(maxY - minY, 1E-3);
+		double extentZ = Math.max(maxZ - minZ, 1E-3);
+		int targetTiles = Math.max(1, Math.min(MAX_TILES, count / TARGET_PER_TILE));
+		double cellSize = Math.cbrt(extentX * extentY * extentZ / targetTiles);
+		
+		int tilesX = tilesPerAxis(extentX, cellSize);
+		int tilesY = tilesPerAxis(extentY, cellSize);
+		int tilesZ = tilesPerAxis(extentZ, cellSize);
+		
+		// Counting sort by cell
+		int cells = tilesX * tilesY * tilesZ;
+		int[] cellOf = new int[count];
+		int[] cellStart = new int[cells + 1];
+		
+		for(int i = 0; i < count; i++)
+		{
+			int cellX = cell(x[i], minX, extentX, tilesX);
+			int cellY = cell(y[i], minY, extentY, tilesY);
+			int cellZ = cell(z[i], minZ, extentZ, tilesZ);
+			
+			// X changes the fastest, which keeps neighbouring tiles next to each other in the buffer
+			cellOf[i] = (cellY * tilesZ + cellZ) * tilesX + cellX;
+			cellStart[cellOf[i] + 1]++;
+		}
+		
+		int nonEmpty = 0;
+		for(int cell = 0; cell < cells; cell++)
+		{
+			if(cellStart[cell + 1] > 0)
+				nonEmpty++;
+			cellStart[cell + 1] += cellStart[cell];
+		}
+		
+		int[] order = new int[count];
+		int[] next = new int[cells];
+		System.arraycopy(cellStart, 0, next, 0, cells);
+		for(int i = 0; i < count; i++)
+		{
+			order[next[cellOf[i]]++] = i;
+		}
+		
+		double[] doubleTemp = new double[count];
+		reorder(x, order, count, doubleTemp);
+		reorder(y, order, count, doubleTemp);
+		reorder(z, order, count, doubleTemp);
+		
+		float[] floatTemp = new float[count];
+		reorder(sizes, order, count, floatTemp);
+		reorder(rotations, order, count, floatTemp);
+		reorder(rgba, order, count, new int[count]);
+		
+		// Only the tiles that contain something are kept
+		int[] tileStart = new int[nonEmpty + 1];
+		float[] centerX = new float[nonEmpty];
+		float[] centerY = new float[nonEmpty];
+		float[] centerZ = new float[nonEmpty];
+		float[] radius = new float[nonEmpty];
+		
+		int tile = 0;
+		for(int cell = 0; cell < cells; cell++)
+		{
+			int start = cellStart[cell];
+			int end = cellStart[cell + 1];
+			if(start == end)
+				continue;
+			
+			tileStart[tile] = start;
+			boundingSphere(x, y, z, start, end, tile, centerX, centerY, centerZ, radius);
+			tile++;
+		}
+		tileStart[nonEmpty] = count;
+		
+		return new SkyTiles(tileStart, centerX, centerY, centerZ, radius);
+	}
+	
+	private static int tilesPerAxis(double extent, double cellSize)
+	{
+		return Math.max(1, Math.min(MAX_TILES_PER_AXIS, (int) Math.round(extent / cellSize)));
+	}
+	
+	private static int cell(double value, double min, double extent, int tiles)
+	{
+		return Math.min(tiles - 1, (int) ((value - min) / extent * tiles));
+	}
+	
+	private static void boundingSphere(double[] x, double[] y, double[] z, int start, int end, int tile, float[] centerX, float[] centerY, float[] centerZ, float[] radius)
+	{
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY, minZ = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY, maxZ = Double.NEGATIVE_INFINITY;
+		
+		for(int i = start; i < end; i++)
+		{
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			minZ = Math.min(minZ, z[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+			maxZ = Math.max(maxZ, z[i]);
+		}
+		
+		float cX = (float) ((minX + maxX) / 2);
+		float cY = (float) ((minY + maxY) / 2);
+		float cZ = (float) ((minZ + maxZ) / 2);
+		
+		double radiusSquared = 0;
+		for(int i = start; i < end; i++)
+		{
+			double dX = x[i] - cX;
+			double dY = y[i] - cY;
+			double dZ = z[i] - cZ;
+			radiusSquared = Math.max(radiusSquared, dX * dX + dY * dY + dZ * dZ);
+		}
+		
+		centerX[tile] = cX;
+		centerY[tile] = cY;
+		centerZ[tile] = cZ;
+		radius[tile] = (float) Math.sqrt(radiusSquared) * 1.0001F; // Makes sure float rounding can't leave anything outside
+	}
+	
+	private static void reorder(double[] array, int[] order, int count, double[] temp)
+	{
+		System.arraycopy(array, 0, temp, 0, count);
+		for(int i = 0; i < count; i++)
+		{
+			array[i] = temp[order[i]];
+		}
+	}
+	
+	private static void reorder(float[] array, int[] order, int count, float[] temp)
+	{
+		System.arraycopy(array, 0, temp, 0, count);
+		for(int i = 0; i < count; i++)
+		{
+			array[i] = temp[order[i]];
+		}
+	}
+	
+	private static void reorder(int[] array, int[] order, int count, int[] temp)
+	{
+		System.arraycopy(array, 0, temp, 0, count);
+		for(int i = 0; i < count; i++)
+		{
+			array[i] = temp[order[i]];
+		}
+	}
+	
+	//============================================================================================
+	//******************************************Culling*******************************************
+	//============================================================================================
+	
+	/**
+	 * Finds the ranges of elements that may be visible, neighbouring visible tiles are merged into a single range
+	 * @param culling Culling context of the current frame
+	 * @param viewX X coordinate of the viewer relative to the Star Field in light years
+	 * @param viewY Y coordinate of the viewer relative to the Star Field in light years
+	 * @param viewZ Z coordinate of the viewer relative to the Star Field in light years
+	 * @param margin How far the quads of the elements may reach past their centers on the sky sphere
+	 * @param ranges Output array with room for 2 ints per tile, each range is stored as its first element followed by the number of elements
+	 * @return Number of visible ranges, or -1 if everything is visible
+	 */
+	public int visibleRanges(SkyCulling culling, double viewX, double viewY, double viewZ, float margin, int[] ranges)
+	{
+		if(!culling.isEnabled())
+		{
+			SkyRenderStats.add(SkyRenderStats.Counter.TILES_RENDERED, tiles);
+			return -1;
+		}
+		
+		int rangeCount = 0;
+		boolean allVisible = true;
+		
+		for(int tile = 0; tile < tiles; tile++)
+		{
+			if(!isVisible(culling, tile, viewX, viewY, viewZ, margin))
+			{
+				SkyRenderStats.increment(SkyRenderStats.Counter.TILES_CULLED);
+				allVisible = false;
+				continue;
+			}
+			
+			SkyRenderStats.increment(SkyRenderStats.Counter.TILES_RENDERED);
+			
+			int start = tileStart[tile];
+			int count = tileStart[tile + 1] - start;
+			
+			if(rangeCount > 0 && ranges[rangeCount * 2 - 2] + ranges[rangeCount * 2 - 1] == start)
+				ranges[rangeCount * 2 - 1] += count;
+			else
+			{
+				ranges[rangeCount * 2] = start;
+				ranges[rangeCount * 2 + 1] = count;
+				rangeCount++;
+			}
+		}
+		
+		return allVisible ? -1 : rangeCount;
+	}
+	
+	private boolean isVisible(SkyCulling culling, int tile, double viewX, double viewY, double viewZ, float margin)
+	{
+		double x = centerX[tile] - viewX;
+		double y = centerY[tile] - viewY;
+		double z = centerZ[tile] - viewZ;
+		double r = radius[tile];
+		
+		double distanceSquared = x * x + y * y + z * z;
+		
+		// The tile surrounds the viewer, so it covers the whole sky
+		if(distanceSquared <= r * r)
+			return true;
+		
+		double distance = Math.sqrt(distanceSquared);
+		
+		/* All elements of the tile lie within a cone whose angle a satisfies sin(a) = r / distance.
+		 * On the sky sphere that cone becomes a circle, which is fully enclosed by a sphere with the radius equal to the chord
+		 * 2 * DEFAULT_DISTANCE * sin(a / 2), where sin(a / 2) = sqrt((1 - cos(a)) / 2)
+		 */
+		double cos = Math.sqrt(1 - r * r / distanceSquared);
+		double chord = 2 * StarData.DEFAULT_DISTANCE * Math.sqrt((1 - cos) / 2);
+		
+		double scale = StarData.DEFAULT_DISTANCE / distance;
+		
+		return culling.isVisible((float) (x * scale), (float) (y * scale), (float) (z * scale), (float) chord + margin);
+	}
+}
@@ -7,20 +7,37 @@ import com.mojang.blaze3d.vertex.BufferUploader;
 import com.mojang.blaze3d.vertex.MeshData;
 import com.mojang.blaze3d.vertex.VertexFormat;
 import net.minecraft.client.Minecraft;
+import net.povstalec.stellarview.StellarView;
 import net.povstalec.stellarview.client.render.shader.StarShaderInstance;
 import java.nio.ByteBuffer;
 
 import javax.annotation.Nullable;
 
 import net.minecraft.client.renderer.ShaderInstance;
-import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.client.render.StarDrawBatch;
+import net.povstalec.stellarview.client.render.profiling.SkyRenderStats;
+import net.povstalec.stellarview.common.config.GeneralConfig;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
-import org.joml.Vector3f;
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.opengl.ARBBaseInstance;
+import org.lwjgl.opengl.ARBInstancedArrays;
+import org.lwjgl.opengl.ARBMultiDrawIndirect;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11C;
+import org.lwjgl.opengl.GL14C;
 import org.lwjgl.opengl.GL15C;
+import org.lwjgl.opengl.GL31C;
+import org.lwjgl.opengl.GL33C;
+import org.lwjgl.opengl.GL40C;
+import org.lwjgl.opengl.GL42C;
+import org.lwjgl.opengl.GL43C;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryStack;
 
 import javax.annotation.Nullable;
 import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
 
 public class StarBuffer implements AutoCloseable
 {
@@ -34,6 +51,20 @@ public class StarBuffer implements AutoCloseable
 	private VertexFormat.IndexType indexType;
 	private int indexCount;
 	private VertexFormat.Mode mode;
+	private boolean instanced;
+	private int instanceCount;
+	@Nullable
+	private int[] drawRanges;
+	private int drawRangeCount;
+	private long byteSize;
+	
+	@Nullable
+	private static Boolean supportsInstancing;
+	@Nullable
+	private static Boolean supportsMultiDrawIndirect;
+	private static int indirectBufferId = -1;
+	@Nullable
+	private static Boolean supportsBaseInstance;
 	
 	public StarBuffer()
 	{
@@ -51,11 +82,13 @@ public class StarBuffer implements AutoCloseable
 			try
 			{
 				final var drawState = mesh.drawState();
+				this.byteSize = 0;
 				this.format = this.uploadVertexBuffer(mesh, mesh.vertexBuffer());
 				this.sequentialIndices = this.uploadIndexBuffer(mesh, mesh.indexBuffer());
 				this.indexCount = drawState.indexCount();
 				this.indexType = drawState.indexType();
 				this.mode = drawState.mode();
+				this.instanced = false;
 			}
 			finally
 			{
@@ -64,6 +97,88 @@ public class StarBuffer implements AutoCloseable
 		}
 	}
 	
+	/**
+	 * Uploads vertices that were written without a BufferBuilder, indices are provided by the sequential index buffer of the mode
+	 * @param vertexBuffer Buffer containing the vertices, the caller remains responsible for freeing it
+	 */
+	public void upload(ByteBuffer vertexBuffer, VertexFormat format, VertexFormat.Mode mode, int vertexCount)
+	{
+		upload(vertexBuffer, format, mode, vertexCount, GL15C.GL_STATIC_DRAW);
+	}
+	
+	/**
+	 * Uploads vertices that were written without a BufferBuilder, indices are provided by the sequential index buffer of the mode
+	 * @param vertexBuffer Buffer containing the vertices, the caller remains responsible for freeing it
+	 * @param usage Usage hint of the buffer, GL_DYNAMIC_DRAW for buffers that get replaced every frame
+	 */
+	public void upload(ByteBuffer vertexBuffer, VertexFormat format, VertexFormat.Mode mode, int vertexCount, int usage)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!format.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			format.setupBufferState();
+			if(this.instanced)
+				StarBuffer.resetVertexAttribDivisors(format);
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, vertexBuffer, usage);
+		this.byteSize = vertexBuffer.remaining();
+		
+		this.format = format;
+		this.mode = mode;
+		this.instanced = false;
+		this.indexCount = mode.indexCount(vertexCount);
+		
+		RenderSystem.AutoStorageIndexBuffer sequentialBuffer = RenderSystem.getSequentialBuffer(mode);
+		if(sequentialBuffer != this.sequentialIndices || !sequentialBuffer.hasStorage(this.indexCount))
+			sequentialBuffer.bind(this.indexCount);
+		
+		this.sequentialIndices = sequentialBuffer;
+		this.indexType = sequentialBuffer.type();
+	}
+	
+	/**
+	 * Uploads one record per instance, every instance is drawn as a triangle strip quad whose corners are created by the shader
+	 * @param instanceBuffer Buffer containing the instances, the caller remains responsible for freeing it
+	 */
+	public void uploadInstances(ByteBuffer instanceBuffer, VertexFormat format, int instanceCount)
+	{
+		if(this.isInvalid())
+			return;
+		
+		RenderSystem.assertOnRenderThread();
+		
+		GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
+		if(!format.equals(this.format))
+		{
+			if(this.format != null)
+				this.format.clearBufferState();
+			
+			format.setupBufferState();
+			// Attributes advance once per instance rather than once per vertex
+			for(int i = 0; i < format.getElements().size(); i++)
+			{
+				StarBuffer.vertexAttribDivisor(i, 1);
+			}
+		}
+		RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, instanceBuffer, GL15C.GL_STATIC_DRAW);
+		this.byteSize = instanceBuffer.remaining();
+		
+		this.format = format;
+		this.mode = VertexFormat.Mode.TRIANGLE_STRIP;
+		this.instanced = true;
+		this.instanceCount = instanceCount;
+		this.indexCount = 0;
+		this.sequentialIndices = null;
+	}
+	
 	private VertexFormat uploadVertexBuffer(MeshData mesh, ByteBuffer vertexBuffer)
 	{
 		final var drawState = mesh.drawState();
@@ -75,6 +190,8 @@ public class StarBuffer implements AutoCloseable
 			
 			GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
 			drawState.format().setupBufferState();
+			if(this.instanced)
+				StarBuffer.resetVertexAttribDivisors(drawState.format());
 			formatEquals = true;
 		}
 		
@@ -84,6 +201,7 @@ public class StarBuffer implements AutoCloseable
 				GlStateManager._glBindBuffer(GL15C.GL_ARRAY_BUFFER, this.vertexBufferId);
 			
 			RenderSystem.glBufferData(GL15C.GL_ARRAY_BUFFER, vertexBuffer, 35044);
+			this.byteSize += vertexBuffer.remaining();
 		}
 		
 		return drawState.format();
@@ -97,6 +215,7 @@ public class StarBuffer implements AutoCloseable
 		{
 			GlStateManager._glBindBuffer(GL15C.GL_ELEMENT_ARRAY_BUFFER, this.indexBufferId);
 			RenderSystem.glBufferData(GL15C.GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL15C.GL_STATIC_DRAW);
+			this.byteSize += indexBuffer.remaining();
 			return null;
 		}
 		else
@@ -121,96 +240,158 @@ public class StarBuffer implements AutoCloseable
 		GlStateManager._glBindVertexArray(0);
 	}
 	
-	public void draw()
+	/**
+	 * Limits the next draw to the specified ranges of quads, everything is drawn again afterwards
+	 * @param ranges Ranges stored as the first quad followed by the number of quads, or null to draw everything
+	 * @param rangeCount Number of ranges in the array
+	 */
+	public void setDrawRanges(@Nullable int[] ranges, int rangeCount)
 	{
-		RenderSystem.drawElements(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType);
+		this.drawRanges = ranges;
+		this.drawRangeCount = rangeCount;
 	}
 	
-	private VertexFormat.IndexType getIndexType()
+	public void draw()
 	{
-		RenderSystem.AutoStorageIndexBuffer rendersystem$autostorageindexbuffer = this.sequentialIndices;
-		return rendersystem$autostorageindexbuffer != null ? rendersystem$autostorageindexbuffer.type() : this.indexType;
+		int[] ranges = this.drawRanges;
+		this.drawRanges = null;
+		
+		if(ranges == null)
+		{
+			if(this.instanced)
+			{
+				GL31C.glDrawArraysInstanced(GL11C.GL_TRIANGLE_STRIP, 0, 4, this.instanceCount);
+				SkyRenderStats.draw(this.instanceCount * 4L);
+			}
+			else
+			{
+				RenderSystem.drawElements(this.mode.asGLMode, this.indexCount, this.getIndexType().asGLType);
+				SkyRenderStats.draw(this.indexCount / 6 * 4L);
+			}
+			return;
+		}
+		
+		StarBuffer.drawRanges(this.instanced, this.mode, this.getIndexType(), ranges, this.drawRangeCount);
 	}
 	
-	public void drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, SpaceCoords relativeSpacePos, StarShaderInstance shaderInstance)
+	/**
+	 * Draws the ranges of quads with a single multi-draw where possible, otherwise with one draw per range
+	 * @param ranges Ranges stored as the first quad followed by the number of quads
+	 */
+	static void drawRanges(boolean instanced, VertexFormat.Mode mode, VertexFormat.IndexType indexType, int[] ranges, int rangeCount)
 	{
-		Vector3f relativeVectorLy = new Vector3f((float) relativeSpacePos.x().ly(), (float) relativeSpacePos.y().ly(), (float) relativeSpacePos.z().ly());
-		Vector3f relativeVectorKm = new Vector3f((float) relativeSpacePos.x().km(), (float) relativeSpacePos.y().km(), (float) relativeSpacePos.z().km());
-		
-		if(!RenderSystem.isOnRenderThread())
+		if(rangeCount > 1 && !instanced)
+			multiDrawElements(mode, indexType, ranges, rangeCount);
+		else if(rangeCount > 1 && supportsMultiDrawIndirect())
+			multiDrawInstancesIndirect(ranges, rangeCount);
+		else
 		{
-			RenderSystem.recordRenderCall(() ->
+			for(int i = 0; i < rangeCount; i++)
 			{
-				this._drawWithShader(new Matrix4f(modelViewMatrix), new Matrix4f(projectionMatrix), relativeVectorLy, relativeVectorKm, shaderInstance);
-			});
+				drawRange(instanced, mode, indexType, ranges[i * 2], ranges[i * 2 + 1]);
+			}
 		}
+	}
+	
+	private static void drawRange(boolean instanced, VertexFormat.Mode mode, VertexFormat.IndexType indexType, int firstQuad, int quads)
+	{
+		if(instanced && firstQuad == 0)
+			GL31C.glDrawArraysInstanced(GL11C.GL_TRIANGLE_STRIP, 0, 4, quads); // Also works without base instances
+		else if(instanced)
+			StarBuffer.drawInstancesFrom(firstQuad, quads);
 		else
-			this._drawWithShader(modelViewMatrix, projectionMatrix, relativeVectorLy, relativeVectorKm, shaderInstance);
+			GlStateManager._drawElements(mode.asGLMode, mode.indexCount(quads * 4), indexType.asGLType, (long) mode.indexCount(firstQuad * 4) * indexType.bytes);
+		SkyRenderStats.draw(quads * 4L);
 	}
 	
-	private void _drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, Vector3f relativeSpaceLy, Vector3f relativeSpaceKm, StarShaderInstance shaderInstance)
+	private static void multiDrawElements(VertexFormat.Mode mode, VertexFormat.IndexType indexType, int[] ranges, int rangeCount)
 	{
-		for(int i = 0; i < 12; ++i)
+		long vertices = 0;
+		
+		try(MemoryStack stack = MemoryStack.stackPush())
 		{
-			int j = RenderSystem.getShaderTexture(i);
-			shaderInstance.setSampler("Sampler" + i, j);
+			IntBuffer counts = stack.mallocInt(rangeCount);
+			PointerBuffer offsets = stack.mallocPointer(rangeCount);
+			
+			for(int i = 0; i < rangeCount; i++)
+			{
+				counts.put(i, mode.indexCount(ranges[i * 2 + 1] * 4));
+				offsets.put(i, (long) mode.indexCount(ranges[i * 2] * 4) * indexType.bytes);
+				vertices += ranges[i * 2 + 1] * 4L;
+			}
+			
+			GL14C.glMultiDrawElements(mode.asGLMode, counts, indexType.asGLType, offsets);
 		}
 		
-		if(shaderInstance.MODEL_VIEW_MATRIX != null)
-			shaderInstance.MODEL_VIEW_MATRIX.set(modelViewMatrix);
-		
-		if(shaderInstance.PROJECTION_MATRIX != null)
-			shaderInstance.PROJECTION_MATRIX.set(projectionMatrix);
-		
-		if(shaderInstance.COLOR_MODULATOR != null)
-			shaderInstance.COLOR_MODULATOR.set(RenderSystem.getShaderColor());
-		
-		if(shaderInstance.FOG_START != null)
-			shaderInstance.FOG_START.set(RenderSystem.getShaderFogStart());
-		
-		if(shaderInstance.FOG_END != null)
-			shaderInstance.FOG_END.set(RenderSystem.getShaderFogEnd());
-		
-		if(shaderInstance.FOG_COLOR != null)
-			shaderInstance.FOG_COLOR.set(RenderSystem.getShaderFogColor());
-		
-		if(shaderInstance.FOG_SHAPE != null)
-			shaderInstance.FOG_SHAPE.set(RenderSystem.getShaderFogShape().getIndex());
-		
-		if(shaderInstance.TEXTURE_MATRIX != null)
-			shaderInstance.TEXTURE_MATRIX.set(RenderSystem.getTextureMatrix());
+		SkyRenderStats.draw(vertices);
+	}
+	
+	/**
+	 * Draws every range of instances from a single list of indirect draw commands, only usable when {@link #supportsMultiDrawIndirect()} is true
+	 */
+	private static void multiDrawInstancesIndirect(int[] ranges, int rangeCount)
+	{
+		long vertices = 0;
 		
-		if(shaderInstance.GAME_TIME != null)
-			shaderInstance.GAME_TIME.set(RenderSystem.getShaderGameTime());
+		if(indirectBufferId < 0)
+			indirectBufferId = GlStateManager._glGenBuffers();
 		
-		if(shaderInstance.SCREEN_SIZE != null)
+		GlStateManager._glBindBuffer(GL40C.GL_DRAW_INDIRECT_BUFFER, indirectBufferId);
+		try(MemoryStack stack = MemoryStack.stackPush())
 		{
-			Window window = Minecraft.getInstance().getWindow();
-			shaderInstance.SCREEN_SIZE.set((float)window.getWidth(), (float)window.getHeight());
+			// Each command is the vertex count, instance count, first vertex and base instance
+			IntBuffer commands = stack.mallocInt(rangeCount * 4);
+			
+			for(int i = 0; i < rangeCount; i++)
+			{
+				commands.put(i * 4, 4);
+				commands.put(i * 4 + 1, ranges[i * 2 + 1]);
+				commands.put(i * 4 + 2, 0);
+				commands.put(i * 4 + 3, ranges[i * 2]);
+				vertices += ranges[i * 2 + 1] * 4L;
+			}
+			
+			GL15C.glBufferData(GL40C.GL_DRAW_INDIRECT_BUFFER, commands, GL15C.GL_STREAM_DRAW);
 		}
 		
-		if(shaderInstance.LINE_WIDTH != null && (this.mode == VertexFormat.Mode.LINES || this.mode == VertexFormat.Mode.LINE_STRIP))
-			shaderInstance.LINE_WIDTH.set(RenderSystem.getShaderLineWidth());
-		
-		if(shaderInstance.RELATIVE_SPACE_LY != null)
-			shaderInstance.RELATIVE_SPACE_LY.set(relativeSpaceLy);
-
-		if(shaderInstance.RELATIVE_SPACE_KM != null)
-			shaderInstance.RELATIVE_SPACE_KM.set(relativeSpaceKm);
-		
-		if(shaderInstance.LENSING_MAT != null)
-			shaderInstance.LENSING_MAT.set(SpaceRenderer.lensingMatrix);
-		
-		if(shaderInstance.LENSING_MAT_INV != null)
-			shaderInstance.LENSING_MAT_INV.set(SpaceRenderer.lensingMatrixInv);
-		
-		if(shaderInstance.LENSING_INTENSITY != null)
-			shaderInstance.LENSING_INTENSITY.set(SpaceRenderer.lensingIntensity);
+		if(GL.getCapabilities().OpenGL43)
+			GL43C.glMultiDrawArraysIndirect(GL11C.GL_TRIANGLE_STRIP, 0L, rangeCount, 0);
+		else
+			ARBMultiDrawIndirect.glMultiDrawArraysIndirect(GL11C.GL_TRIANGLE_STRIP, 0L, rangeCount, 0);
+		GlStateManager._glBindBuffer(GL40C.GL_DRAW_INDIRECT_BUFFER, 0);
 		
-		RenderSystem.setupShaderLights(shaderInstance);
-		shaderInstance.apply();
-		this.draw();
-		shaderInstance.clear();
+		SkyRenderStats.draw(vertices);
+	}
+	
+	public boolean isInstanced()
+	{
+		return this.instanced;
+	}
+	
+	private VertexFormat.IndexType getIndexType()
+	{
+		RenderSystem.AutoStorageIndexBuffer rendersystem$autostorageindexbuffer = this.sequentialIndices;
+		return rendersystem$autostorageindexbuffer != null ? rendersystem$autostorageindexbuffer.type() : this.indexType;
+	}
+	
+	/**
+	 * Draws the buffer on its own, Star Fields use {@link StarDrawBatch} instead so that they can share the shader setup
+	 */
+	public void drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, SpaceCoords relativeSpacePos, StarShaderInstance shaderInstance)
+	{
+		if(!RenderSystem.isOnRenderThread())
+		{
+			RenderSystem.recordRenderCall(() ->
+			{
+				StarDrawBatch.draw(this, new Matrix4f(modelViewMatrix), new Matrix4f(projectionMatrix), relativeSpacePos, shaderInstance);
+				StarDrawBatch.end();
+			});
+		}
+		else
+		{
+			StarDrawBatch.draw(this, modelViewMatrix, projectionMatrix, relativeSpacePos, shaderInstance);
+			StarDrawBatch.end();
+		}
 	}
 	
 	public void drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, ShaderInstance shaderInstance)
@@ -229,6 +410,9 @@ public class StarBuffer implements AutoCloseable
 	
 	private void _drawWithShader(Matrix4f modelViewMatrix, Matrix4f projectionMatrix, ShaderInstance shaderInstance)
 	{
+		// The star shader would otherwise stay applied underneath this one
+		StarDrawBatch.end();
+		
 		for(int i = 0; i < 12; ++i)
 		{
 			int j = RenderSystem.getShaderTexture(i);
@@ -296,13 +480,107 @@ public class StarBuffer implements AutoCloseable
 			RenderSystem.glDeleteVertexArrays(this.arrayObjectId);
 			this.arrayObjectId = -1;
 		}
+		
+		this.byteSize = 0;
+	}
+	
+	//============================================================================================
+	//*****************************************Instancing*****************************************
+	//============================================================================================
+	
+	/**
+	 * @return True if the driver supports instanced arrays, which are core since OpenGL 3.3
+	 */
+	public static boolean supportsInstancing()
+	{
+		if(supportsInstancing == null)
+		{
+			GLCapabilities capabilities = GL.getCapabilities();
+			supportsInstancing = capabilities.OpenGL33 || (capabilities.OpenGL31 && capabilities.GL_ARB_instanced_arrays);
+			
+			if(!supportsInstancing)
+				StellarView.LOGGER.info("Instanced arrays are not supported, Stars and Dust Clouds will be rendered without instancing");
+		}
+		
+		return supportsInstancing;
+	}
+	
+	/**
+	 * @return True if Stars and Dust Clouds should be uploaded as instances
+	 */
+	public static boolean useInstancing()
+	{
+		return GeneralConfig.instanced_stars.get() && supportsInstancing();
+	}
+	
+	/**
+	 * @return True if instanced draws can start at an instance other than the first one, which is core since OpenGL 4.2
+	 */
+	public static boolean supportsBaseInstance()
+	{
+		if(supportsBaseInstance == null)
+		{
+			GLCapabilities capabilities = GL.getCapabilities();
+			supportsBaseInstance = capabilities.OpenGL42 || capabilities.GL_ARB_base_instance;
+		}
+		
+		return supportsBaseInstance;
+	}
+	
+	/**
+	 * @return True if all ranges of instances can be drawn with one indirect multi-draw, which is core since OpenGL 4.3
+	 */
+	public static boolean supportsMultiDrawIndirect()
+	{
+		if(supportsMultiDrawIndirect == null)
+		{
+			GLCapabilities capabilities = GL.getCapabilities();
+			supportsMultiDrawIndirect = capabilities.OpenGL43 || (capabilities.GL_ARB_multi_draw_indirect && supportsBaseInstance());
+		}
+		
+		return supportsMultiDrawIndirect;
+	}
+	
+	/**
+	 * Draws a range of instances, only usable when {@link #supportsBaseInstance()} is true
+	 */
+	static void drawInstancesFrom(int firstInstance, int instanceCount)
+	{
+		if(GL.getCapabilities().OpenGL42)
+			GL42C.glDrawArraysInstancedBaseInstance(GL11C.GL_TRIANGLE_STRIP, 0, 4, instanceCount, firstInstance);
+		else
+			ARBBaseInstance.glDrawArraysInstancedBaseInstance(GL11C.GL_TRIANGLE_STRIP, 0, 4, instanceCount, firstInstance);
+	}
+	
+	static void vertexAttribDivisor(int index, int divisor)
+	{
+		if(GL.getCapabilities().OpenGL33)
+			GL33C.glVertexAttribDivisor(index, divisor);
+		else
+			ARBInstancedArrays.glVertexAttribDivisorARB(index, divisor);
+	}
+	
+	static void resetVertexAttribDivisors(VertexFormat format)
+	{
+		for(int i = 0; i < format.getElements().size(); i++)
+		{
+			vertexAttribDivisor(i, 0);
+		}
+	}
+	
+	/**
+	 * @return Size of the data uploaded to the buffer in bytes, the shared sequential index buffers aren't included
+	 */
+	public long byteSize()
+	{
+		return this.byteSize;
 	}
 	
 	public VertexFormat getFormat()
 	{
 		return this.format;
 	}
-
+	
 	public boolean isInvalid()
 	{
 		return this.arrayObjectId == -1;
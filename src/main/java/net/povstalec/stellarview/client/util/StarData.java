@@ -6,17 +6,20 @@ import com.mojang.blaze3d.vertex.*;
 
 import net.minecraft.client.renderer.GameRenderer;
 import net.povstalec.stellarview.api.common.space_objects.StarLike;
-import net.povstalec.stellarview.client.render.SpaceRenderer;
+import net.povstalec.stellarview.client.render.BufferResidency;
+import net.povstalec.stellarview.client.render.BufferUploadScheduler;
+import net.povstalec.stellarview.client.render.StarDrawBatch;
+import net.povstalec.stellarview.client.render.shader.StarShaderInstance;
 import net.povstalec.stellarview.client.render.shader.StellarViewShaders;
-import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
 import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
 import net.povstalec.stellarview.common.util.Color;
 import net.povstalec.stellarview.common.util.SpaceCoords;
 import org.joml.Matrix4f;
-import org.lwjgl.system.MemoryUtil;
 
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class StarData
 {
@@ -24,99 +27,438 @@ public abstract class StarData
 	public static final float MIN_STAR_SIZE = 0.02F;
 	public static final float MIN_TEX_STAR_SIZE = 0.08F;
 	
-	private LOD lod1;
-	private LOD lod2;
-	private LOD lod3;
+	private static final StarField.LevelOfDetail[] LEVELS = StarField.LevelOfDetail.values();
+	
+	private final LOD[] lods = new LOD[LEVELS.length];
+	@SuppressWarnings("unchecked")
+	private final CompletableFuture<LOD>[] pendingLODs = new CompletableFuture[LEVELS.length];
+	
+	// All LODs share one buffer with the brightest LOD first, so every LOD together with the farther ones it's rendered with is a prefix of it
+	@Nullable
+	private StarBuffer starBuffer;
+	private int bufferedLODs = 0; // Number of LODs in the buffer, starting with LOD1
+	private final int[] lodStart = new int[LEVELS.length + 1]; // LOD i spans from lodStart[i] to lodStart[i + 1] in the buffer
+	private int[] visibleRanges = new int[0];
+	private final BufferUploadScheduler.Ticket uploadTicket = new BufferUploadScheduler.Ticket();
+	private final BufferResidency.Handle residency = new BufferResidency.Handle();
 	
 	public StarData() {}
 	
-	private LOD getLOD(StarField.LevelOfDetail lod)
+	/**
+	 * Returns the LOD if its Stars have already been generated, otherwise schedules the generation on a worker thread
+	 * @param levelOfDetail Level of Detail that should be rendered
+	 * @return LOD ready for rendering, or null if its Stars are still being generated
+	 */
+	@Nullable
+	private LOD getOrGenerateLOD(StarField.LevelOfDetail levelOfDetail)
+	{
+		int index = levelOfDetail.ordinal();
+		
+		if(lods[index] != null)
+			return lods[index];
+		
+		if(pendingLODs[index] == null)
+			pendingLODs[index] = StarGenerationService.submit("Stars for " + levelOfDetail, () -> newStars(levelOfDetail).sortIntoTiles(), () -> new LOD(0));
+		else if(pendingLODs[index].isDone())
+		{
+			lods[index] = pendingLODs[index].join();
+			pendingLODs[index] = null;
+		}
+		
+		return lods[index];
+	}
+	
+	/**
+	 * Makes sure the LOD and all farther ones are being generated
+	 * @return Number of LODs, starting with LOD1, that have been generated without a gap
+	 */
+	private int generatedLODs(StarField.LevelOfDetail levelOfDetail)
 	{
-		return switch(lod)
+		int generated = 0;
+		boolean gap = false;
+		
+		for(int i = 0; i <= levelOfDetail.ordinal(); i++)
 		{
-			case LOD1 -> lod1;
-			case LOD2 -> lod2;
-			case LOD3 -> lod3;
-		};
+			if(getOrGenerateLOD(LEVELS[i]) == null)
+				gap = true;
+			else if(!gap)
+				generated++;
+		}
+		
+		return generated;
+	}
+	
+	/**
+	 * @return True if the Stars of the LOD have been generated and uploaded, so that it can be rendered right away
+	 */
+	public boolean isReady(StarField.LevelOfDetail levelOfDetail)
+	{
+		return bufferedLODs > levelOfDetail.ordinal();
+	}
+	
+	/**
+	 * Generates and uploads the LOD along with the farther ones it's rendered with, without rendering any of them
+	 * @param levelOfDetail Level of Detail that's about to be rendered
+	 */
+	public void prefetch(StarField.LevelOfDetail levelOfDetail, SpaceCoords difference, boolean isStatic, boolean hasTexture)
+	{
+		int generated = generatedLODs(levelOfDetail);
+		
+		if(generated > bufferedLODs)
+			requestStarBuffer(generated, difference, isStatic, hasTexture, !isStatic && useInstancing(hasTexture));
+		else if(starBuffer != null)
+			BufferResidency.drawn(residency); // Keeps it from being evicted before it's needed
 	}
 	
 	public void reset()
 	{
-		if(lod1 != null)
-			lod1.reset();
-		if(lod2 != null)
-			lod2.reset();
-		if(lod3 != null)
-			lod3.reset();
+		uploadTicket.cancel();
+		bufferedLODs = 0;
+		
+		// Generation still in progress is thrown away, whatever it produces is never picked up
+		for(int i = 0; i < pendingLODs.length; i++)
+		{
+			if(pendingLODs[i] != null)
+			{
+				pendingLODs[i].cancel(false);
+				pendingLODs[i] = null;
+			}
+		}
+		
+		BufferResidency.untrack(residency);
+		
+		if(starBuffer == null)
+			return;
+		
+		starBuffer.close();
+		starBuffer = null;
+	}
+	
+	/**
+	 * @return Handle the buffer of the Stars is tracked with while it's on the GPU
+	 */
+	protected BufferResidency.Handle residency()
+	{
+		return residency;
 	}
 	
-	public void renderStars(StarField.LevelOfDetail levelOfDetail, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean isStatic, boolean hasTexture)
+	/**
+	 * Renders the LOD along with all farther ones, which takes a single draw of the visible parts of the buffer
+	 */
+	public void renderStars(StarField.LevelOfDetail levelOfDetail, Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, SkyCulling culling, boolean isStatic, boolean hasTexture)
 	{
-		switch(levelOfDetail)
+		boolean instanced = !isStatic && useInstancing(hasTexture);
+		
+		if(starBuffer != null && !isStatic && starBuffer.isInstanced() != instanced) // Instancing has been toggled
+			reset();
+		
+		// Once more LODs have been generated the buffer is rebuilt with them, until then the LODs already in it are rendered
+		int generated = generatedLODs(levelOfDetail);
+		if(generated > bufferedLODs)
+			requestStarBuffer(generated, difference, isStatic, hasTexture, instanced);
+		
+		if(starBuffer == null)
+			return;
+		
+		// Counts as drawn even when culled, it's likely to come back into view soon
+		BufferResidency.drawn(residency);
+		
+		int rangeCount = visibleRanges(Math.min(bufferedLODs, levelOfDetail.ordinal() + 1), culling, difference);
+		if(rangeCount == 0)
+			return;
+		
+		starBuffer.bind();
+		starBuffer.setDrawRanges(visibleRanges, rangeCount);
+		if(isStatic)
+			starBuffer.drawWithShader(pose, projectionMatrix, hasTexture ? GameRenderer.getPositionTexColorShader() : GameRenderer.getPositionColorShader());
+		else
+			StarDrawBatch.draw(starBuffer, pose, projectionMatrix, difference, starShader(hasTexture, instanced));
+		VertexBuffer.unbind();
+	}
+	
+	/**
+	 * Collects the visible tiles of the LODs as ranges of the shared buffer, neighbouring ranges are merged
+	 * @param lodCount Number of LODs to render, starting with LOD1
+	 * @return Number of ranges
+	 */
+	private int visibleRanges(int lodCount, SkyCulling culling, SpaceCoords difference)
+	{
+		// Without base instances only the first instances can be drawn, which is still enough for drawing a prefix
+		if(starBuffer.isInstanced() && !StarBuffer.supportsBaseInstance())
+			return addRange(0, 0, lodStart[lodCount]);
+		
+		int rangeCount = 0;
+		for(int i = 0; i < lodCount; i++)
+		{
+			LOD lod = lods[i];
+			int lodRanges = lod.tiles.visibleRanges(culling, difference.x().toLy(), difference.y().toLy(), difference.z().toLy(), lod.quadExtent, lod.visibleRanges);
+			
+			if(lodRanges < 0)
+				rangeCount = addRange(rangeCount, lodStart[i], lodStart[i + 1] - lodStart[i]);
+			else
+			{
+				for(int range = 0; range < lodRanges; range++)
+				{
+					rangeCount = addRange(rangeCount, lodStart[i] + lod.visibleRanges[range * 2], lod.visibleRanges[range * 2 + 1]);
+				}
+			}
+		}
+		
+		return rangeCount;
+	}
+	
+	private int addRange(int rangeCount, int start, int count)
+	{
+		if(count == 0)
+			return rangeCount;
+		
+		if(rangeCount > 0 && visibleRanges[rangeCount * 2 - 2] + visibleRanges[rangeCount * 2 - 1] == start)
+			visibleRanges[rangeCount * 2 - 1] += count;
+		else
 		{
-		case LOD3:
-			if(lod3 == null)
-				lod3 = newStars(StarField.LevelOfDetail.LOD3);
-			lod3.renderStarBuffer(pose, projectionMatrix, difference, isStatic, hasTexture);
-		case LOD2:
-			if(lod2 == null)
-				lod2 = newStars(StarField.LevelOfDetail.LOD2);
-			lod2.renderStarBuffer(pose, projectionMatrix, difference, isStatic, hasTexture);
-		case LOD1:
-			if(lod1 == null)
-				lod1 = newStars(StarField.LevelOfDetail.LOD1);
-			lod1.renderStarBuffer(pose, projectionMatrix, difference, isStatic, hasTexture);
+			visibleRanges[rangeCount * 2] = start;
+			visibleRanges[rangeCount * 2 + 1] = count;
+			rangeCount++;
 		}
+		
+		return rangeCount;
 	}
 	
-	protected abstract LOD newStars(StarField.LevelOfDetail lod);
+	//============================================================================================
+	//*******************************************Buffers******************************************
+	//============================================================================================
 	
-	public static void addStarHeightWidthSize(BufferBuilder builder, float height, float width, float size)
+	private void requestStarBuffer(int lodCount, SpaceCoords difference, boolean isStatic, boolean hasTexture, boolean instanced)
 	{
-		long i = builder.beginElement(StellarViewVertexFormat.ELEMENT_HEIGHT_WIDTH_SIZE.get());
+		BufferUploadScheduler.request(uploadTicket, Math.sqrt(difference.lyDistanceSquared()), lodCount - 1,
+				() -> createStarBuffer(lodCount, difference, isStatic, hasTexture, instanced));
+	}
+	
+	/**
+	 * Writes the LODs one after another into a new buffer, which replaces the one with fewer LODs
+	 * @param lodCount Number of LODs to write, starting with LOD1
+	 */
+	private void createStarBuffer(int lodCount, SpaceCoords difference, boolean isStatic, boolean hasTexture, boolean instanced)
+	{
+		if(lodCount <= bufferedLODs)
+			return;
 		
-		if (i != -1L)
+		int stars = 0;
+		int tiles = 0;
+		for(int i = 0; i < lodCount; i++)
 		{
-			MemoryUtil.memPutFloat(i, height);
-			MemoryUtil.memPutFloat(i + Float.BYTES, width);
-			MemoryUtil.memPutFloat(i + Float.BYTES * 2, size);
+			lodStart[i] = stars;
+			stars += lods[i].stars;
+			tiles += Math.max(lods[i].tiles.tiles(), 1);
 		}
+		lodStart[lodCount] = stars;
+		
+		if(starBuffer != null)
+		{
+			BufferResidency.untrack(residency);
+			starBuffer.close();
+			starBuffer = null;
+		}
+		bufferedLODs = lodCount;
+		
+		if(stars == 0)
+			return;
+		
+		visibleRanges = new int[tiles * 2];
+		starBuffer = new StarBuffer();
+		
+		RenderSystem.setShader(GameRenderer::getPositionShader);
+		if(isStatic)
+		{
+			BufferBuilder builder = Tesselator.getInstance().begin(VertexFormat.Mode.QUADS, hasTexture ? DefaultVertexFormat.POSITION_TEX_COLOR : DefaultVertexFormat.POSITION_COLOR);
+			for(int i = 0; i < lodCount; i++)
+			{
+				lods[i].writeStaticStars(builder, hasTexture, difference);
+			}
+			
+			starBuffer.bind();
+			starBuffer.upload(builder.build());
+		}
+		else
+		{
+			try(StarMeshWriter mesh = new StarMeshWriter(stars, hasTexture, instanced))
+			{
+				for(int i = 0; i < lodCount; i++)
+				{
+					lods[i].writeStars(mesh);
+				}
+				
+				starBuffer.bind();
+				mesh.upload(starBuffer);
+			}
+		}
+		VertexBuffer.unbind();
+		
+		BufferResidency.track(residency, starBuffer.byteSize(), this::reset);
+	}
+	
+	private static boolean useInstancing(boolean hasTexture)
+	{
+		return StarBuffer.useInstancing() && starShader(hasTexture, true) != null;
+	}
+	
+	private static StarShaderInstance starShader(boolean hasTexture, boolean instanced)
+	{
+		if(instanced)
+			return hasTexture ? StellarViewShaders.starTexInstancedShader() : StellarViewShaders.starInstancedShader();
+		
+		return hasTexture ? StellarViewShaders.starTexShader() : StellarViewShaders.starShader();
+	}
+	
+	/**
+	 * Generates Stars for the specified Level of Detail.
+	 * This is called from one of the {@link StarGenerationService} worker threads, so it must not touch anything that belongs to the render thread
+	 * @param lod Level of Detail to generate Stars for
+	 * @return LOD containing the generated Stars
+	 */
+	protected abstract LOD newStars(StarField.LevelOfDetail lod);
+	
+	/**
+	 * Packs the color into a single int, which is how Stars and Dust Clouds store their colors
+	 * @return Color packed as 0xRRGGBBAA
+	 */
+	public static int packRGBA(int red, int green, int blue, int alpha)
+	{
+		return (red & 0xFF) << 24 | (green & 0xFF) << 16 | (blue & 0xFF) << 8 | alpha & 0xFF;
+	}
+	
+	public static byte red(int rgba)
+	{
+		return (byte) (rgba >>> 24);
+	}
+	
+	public static byte green(int rgba)
+	{
+		return (byte) (rgba >>> 16);
+	}
+	
+	public static byte blue(int rgba)
+	{
+		return (byte) (rgba >>> 8);
+	}
+	
+	public static short alpha(int rgba)
+	{
+		return (short) (rgba & 0xFF);
 	}
 	
 	
 	
 	public static class LOD
 	{
-		@Nullable
-		private StarBuffer starBuffer;
+		// Star information is stored as a structure of flat arrays, which keeps the memory footprint of large Star Fields small
+		// and lets the buffer creation walk through the memory sequentially.
+		// Coordinates stay doubles, static buffers are positioned relative to the View Center on the CPU and need the precision at galaxy scale
+		private final double[] starCoordX;
+		private final double[] starCoordY;
+		private final double[] starCoordZ;
+		private final float[] starSizes;
 		
-		private double[][] starCoords;
-		private double[] starSizes;
+		private final int[] starRGBA; // Packed as 0xRRGGBBAA
 		
-		private short[][] starRGBA;
-		
-		private double[][] randoms;
+		private final float[] starRotations; // Rotation angle in radians
 		
 		private int stars;
 		
+		private SkyTiles tiles = SkyTiles.EMPTY;
+		private int[] visibleRanges = new int[0];
+		private float quadExtent; // How far the corners of the largest Star can reach from its center
+		
 		public LOD(int stars)
 		{
-			this.starCoords = new double[stars][3];
-			this.starSizes = new double[stars];
-			this.randoms = new double[stars][2];
+			this.starCoordX = new double[stars];
+			this.starCoordY = new double[stars];
+			this.starCoordZ = new double[stars];
+			this.starSizes = new float[stars];
 			
-			this.starRGBA = new short[stars][4];
+			this.starRGBA = new int[stars];
+			
+			this.starRotations = new float[stars];
 			
 			this.stars = 0;
 		}
 		
-		public void reset()
+		public int stars()
+		{
+			return stars;
+		}
+		
+		/**
+		 * Sorts the Stars into sky tiles, which allows rendering only the Stars in the visible part of the sky.
+		 * Should be called once all Stars have been generated
+		 * @return This LOD
+		 */
+		public LOD sortIntoTiles()
 		{
-			if(starBuffer == null)
-				return;
+			tiles = SkyTiles.sort(stars, starCoordX, starCoordY, starCoordZ, starSizes, starRGBA, starRotations);
+			visibleRanges = new int[tiles.tiles() * 2];
 			
-			starBuffer.close();
-			starBuffer = null;
+			float maxSize = 0;
+			for(int i = 0; i < stars; i++)
+			{
+				maxSize = Math.max(maxSize, starSizes[i]);
+			}
+			// Textured Stars are 4 times larger and the rotated corners reach sqrt(2) times further
+			quadExtent = maxSize * 4 * (float) Math.sqrt(2);
+			
+			return this;
+		}
+		
+		//============================================================================================
+		//*******************************************Caching******************************************
+		//============================================================================================
+		
+		/**
+		 * @return Number of bytes needed to write this LOD into a buffer
+		 */
+		public int byteSize()
+		{
+			return Integer.BYTES + stars * (Double.BYTES * 3 + Float.BYTES * 3 + Integer.BYTES);
+		}
+		
+		public void write(ByteBuffer buffer)
+		{
+			buffer.putInt(stars);
+			
+			StarDataCache.putDoubles(buffer, starCoordX, stars);
+			StarDataCache.putDoubles(buffer, starCoordY, stars);
+			StarDataCache.putDoubles(buffer, starCoordZ, stars);
+			StarDataCache.putFloats(buffer, starSizes, stars);
+			StarDataCache.putInts(buffer, starRGBA, stars);
+			StarDataCache.putFloats(buffer, starRotations, stars);
+		}
+		
+		/**
+		 * Reads a LOD previously written with {@link #write(ByteBuffer)}
+		 * @return LOD read from the buffer, or null if the buffer doesn't contain a valid LOD
+		 */
+		@Nullable
+		public static LOD read(ByteBuffer buffer)
+		{
+			if(buffer.remaining() < Integer.BYTES)
+				return null;
+			
+			int stars = buffer.getInt();
+			if(stars < 0 || buffer.remaining() != (long) stars * (Double.BYTES * 3 + Float.BYTES * 3 + Integer.BYTES))
+				return null;
+			
+			LOD lod = new LOD(stars);
+			
+			StarDataCache.getDoubles(buffer, lod.starCoordX, stars);
+			StarDataCache.getDoubles(buffer, lod.starCoordY, stars);
+			StarDataCache.getDoubles(buffer, lod.starCoordZ, stars);
+			StarDataCache.getFloats(buffer, lod.starSizes, stars);
+			StarDataCache.getInts(buffer, lod.starRGBA, stars);
+			StarDataCache.getFloats(buffer, lod.starRotations, stars);
+			
+			lod.stars = stars;
+			
+			return lod;
 		}
 		
 		/**
@@ -128,149 +470,82 @@ public abstract class StarData
 		 * @param z Z coordinate of the star
 		 */
 		public void newStar(StarLike.StarType starType, Random random, double x, double y, double z)
+		{
+			setStar(stars, starType, random, x, y, z);
+			
+			//lod.createStar(builder, hasTexture, lod.size);
+			stars++;
+		}
+		
+		/**
+		 * Makes room for Stars that are going to be created with {@link #setStar(int, StarLike.StarType, Random, double, double, double)}
+		 * @param count Number of Stars
+		 * @return Index of the first Star
+		 */
+		public int reserve(int count)
+		{
+			int start = stars;
+			stars += count;
+			
+			return start;
+		}
+		
+		/**
+		 * Same as {@link #newStar(StarLike.StarType, Random, double, double, double)}, but for a Star that has already been reserved.
+		 * Different Stars can be set from different threads at once
+		 * @param index Index of the Star
+		 */
+		public void setStar(int index, StarLike.StarType starType, Random random, double x, double y, double z)
 		{
 			// Set up position
 			
-			starCoords[stars][0] = x;
-			starCoords[stars][1] = y;
-			starCoords[stars][2] = z;
+			starCoordX[index] = x;
+			starCoordY[index] = y;
+			starCoordZ[index] = z;
 			
 			short alpha = starType.randomBrightness(random); // 0xAA is the default
 			Color.IntRGB rgb = starType.getRGB();
 			
 			// Set up size
 			
-			starSizes[stars] = starType.randomSize(random); // This randomizes the Star size
+			starSizes[index] = (float) starType.randomSize(random); // This randomizes the Star size
 			
 			// Set up color and alpha
 			
-			starRGBA[stars] = new short[] {(short) rgb.red(), (short) rgb.green(), (short) rgb.blue(), alpha};
-			
-			// sin and cos are used to effectively clamp the random number between two values without actually clamping it,
-			// wwhich would result in some awkward lines as Stars would be brought to the clamped values
-			// Both affect Star size and rotation
-			double randomValue = random.nextDouble() * Math.PI * 2.0D;
-			randoms[stars][0] = Math.sin(randomValue); // sin random
-			randoms[stars][1] = Math.cos(randomValue); // cos random
+			starRGBA[index] = packRGBA(rgb.red(), rgb.green(), rgb.blue(), alpha);
 			
-			//lod.createStar(builder, hasTexture, lod.size);
-			stars++;
+			// Only the angle is stored, its sin and cos are calculated when the buffer is created
+			starRotations[index] = (float) (random.nextDouble() * Math.PI * 2.0D);
 		}
 		
-		public void createStar(BufferBuilder builder, boolean hasTexture, int i)
+		public void createStar(StarMeshWriter writer, int i)
 		{
-			double sinRandom = randoms[i][0];
-			double cosRandom = randoms[i][1];
-			
-			// This loop creates the 4 corners of a Star
-			for(int j = 0; j < 4; ++j)
-			{
-				/* Bitwise AND is there to multiply the size by either 1 or -1 to reach this effect:
-				 * Where a coordinate is written as (A,B)
-				 * 		(-1,1)		(1,1)
-				 * 		x-----------x
-				 * 		|			|
-				 * 		|			|
-				 * 		|			|
-				 * 		|			|
-				 * 		x-----------x
-				 * 		(-1,-1)		(1,-1)
-				 * 								|	A	B
-				 * 0 & 2 = 000 & 010 = 000 = 0	|	x
-				 * 1 & 2 = 001 & 010 = 000 = 0	|	x	x
-				 * 2 & 2 = 010 & 010 = 010 = 2	|	x	x
-				 * 3 & 2 = 011 & 010 = 010 = 2	|	x	x
-				 * 4 & 2 = 100 & 000 = 000 = 0	|		x
-				 *
-				 * After you subtract 1 one from each of them, you get this:
-				 * j:	0	1	2	3
-				 * --------------------
-				 * A:	-1	-1	1	1
-				 * B:	-1	1	1	-1
-				 * Which corresponds to:
-				 * UV:	00	01	11	10
-				 */
-				double aLocation = (j & 2) - 1;
-				double bLocation = (j + 1 & 2) - 1;
-				
-				/* These are the values for cos(random) = sin(random)
-				 * (random is simply there to randomize the star rotation)
-				 * j:	0	1	2	3
-				 * -------------------
-				 * A:	0	-2	0	2
-				 * B:	-2	0	2	0
-				 *
-				 * A and B are there to create a diamond effect on the Y-axis and X-axis respectively
-				 * (Pretend it's not as stretched as the slashes make it look)
-				 * Where a coordinate is written as (B,A)
-				 *
-				 *           (0,2)
-				 *          /\
-				 *   (-2,0)/  \(2,0)
-				 *         \  /
-				 *          \/
-				 *           (0,-2)
-				 *
-				 */
-				double height = aLocation * cosRandom - bLocation * sinRandom;
-				double width = bLocation * cosRandom + aLocation * sinRandom;
-				
-				builder.addVertex((float) starCoords[i][0], (float) starCoords[i][1], (float) starCoords[i][2])
-						.setColor((byte) starRGBA[i][0], (byte) starRGBA[i][1], (byte) starRGBA[i][2], (byte) starRGBA[i][3]);
-				
-				addStarHeightWidthSize(builder, (float) height, (float) width, (float) starSizes[i]);
-				
-				if(hasTexture)
-					builder.setUv( (float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F);
-			}
+			// The shader adds the position relative to the View Center, so the coordinates within the Star Field only need float precision
+			writer.quad((float) starCoordX[i], (float) starCoordY[i], (float) starCoordZ[i], starRGBA[i], starRotations[i], starSizes[i]);
 		}
 		
-		public MeshData getStarBuffer(Tesselator tesselator, boolean hasTexture)
+		/**
+		 * Writes all Stars into the mesh, after the ones that are already in it
+		 */
+		public void writeStars(StarMeshWriter writer)
 		{
-			final var bufferBuilder = tesselator.begin(VertexFormat.Mode.QUADS, hasTexture ? StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get() : StellarViewVertexFormat.STAR_POS_COLOR_LY.get());
-			
 			for(int i = 0; i < stars; i++)
 			{
-				createStar(bufferBuilder, hasTexture, i);
+				createStar(writer, i);
 			}
-			return bufferBuilder.build();
 		}
 		
-		private void renderStarBuffer(Matrix4f pose, Matrix4f projectionMatrix, SpaceCoords difference, boolean isStatic, boolean hasTexture)
+		/**
+		 * Writes all Stars into a new mesh, which needs to be closed once it's been uploaded
+		 * @param hasTexture Whether the Stars are textured or not
+		 * @param instanced Whether each Star should be written as a single instance
+		 * @return Mesh containing all Stars of this LOD
+		 */
+		public StarMeshWriter getStarMesh(boolean hasTexture, boolean instanced)
 		{
-			if(stars == 0)
-				return;
-			
-			if(starBuffer == null) // Buffer requires setup
-			{
-				if(!SpaceRenderer.loadNewStars())
-					return;
-				
-				starBuffer = new StarBuffer();
-				
-				Tesselator tesselator = Tesselator.getInstance();
-				RenderSystem.setShader(GameRenderer::getPositionShader);
-				MeshData mesh = isStatic ? getStaticStarBuffer(tesselator, hasTexture, difference) : getStarBuffer(tesselator, hasTexture);
-				
-				starBuffer.bind();
-				starBuffer.upload(mesh);
-				if(isStatic)
-					starBuffer.drawWithShader(pose, projectionMatrix, hasTexture ? GameRenderer.getPositionTexColorShader() : GameRenderer.getPositionColorShader());
-				else
-					starBuffer.drawWithShader(pose, projectionMatrix, difference, hasTexture ? StellarViewShaders.starTexShader() : StellarViewShaders.starShader());
-				VertexBuffer.unbind();
-				
-				SpaceRenderer.loadedStars(stars);
-			}
-			else
-			{
-				starBuffer.bind();
-				if(isStatic)
-					starBuffer.drawWithShader(pose, projectionMatrix, hasTexture ? GameRenderer.getPositionTexColorShader() : GameRenderer.getPositionColorShader());
-				else
-					starBuffer.drawWithShader(pose, projectionMatrix, difference, hasTexture ? StellarViewShaders.starTexShader() : StellarViewShaders.starShader());
-				VertexBuffer.unbind();
-			}
+			StarMeshWriter writer = new StarMeshWriter(stars, hasTexture, instanced);
+			writeStars(writer);
+			return writer;
 		}
 		
 		//============================================================================================
@@ -281,11 +556,19 @@ public abstract class StarData
 		{
 			final var bufferBuilder = tesselator.begin(VertexFormat.Mode.QUADS, hasTexture ? DefaultVertexFormat.POSITION_TEX_COLOR : DefaultVertexFormat.POSITION_COLOR);
 			
+			writeStaticStars(bufferBuilder, hasTexture, difference);
+			return bufferBuilder.build();
+		}
+		
+		/**
+		 * Writes all Stars into the builder, positioned for a View Center that doesn't move
+		 */
+		public void writeStaticStars(BufferBuilder builder, boolean hasTexture, SpaceCoords difference)
+		{
 			for(int i = 0; i < stars; i++)
 			{
-				createStaticStar(bufferBuilder, hasTexture, i, difference);
+				createStaticStar(builder, hasTexture, i, difference);
 			}
-			return bufferBuilder.build();
 		}
 		
 		double clampStar(double starSize, double minStarSize, double distance)
@@ -300,15 +583,20 @@ public abstract class StarData
 		
 		private void createStaticStar(BufferBuilder builder, boolean hasTexture, int i, SpaceCoords difference)
 		{
-			double x = starCoords[i][0] - difference.x().toLy();
-			double y = starCoords[i][1] - difference.y().toLy();
-			double z = starCoords[i][2] - difference.z().toLy();
+			double x = starCoordX[i] - difference.x().toLy();
+			double y = starCoordY[i] - difference.y().toLy();
+			double z = starCoordZ[i] - difference.z().toLy();
 			
 			double distance = Math.sqrt(x * x + y * y + z * z); // Distance squared
 			
 			// COLOR START - Adjusts the brightness (alpha) of the star based on its distance
 			
-			short alpha = starRGBA[i][3];
+			int rgba = starRGBA[i];
+			byte red = red(rgba);
+			byte green = green(rgba);
+			byte blue = blue(rgba);
+			
+			short alpha = alpha(rgba);
 			short minAlpha = (short) (alpha / 10);
 			
 			// Stars appear dimmer the further away they are
@@ -360,8 +648,8 @@ public abstract class StarData
 			double sinPhi = Math.sin(sphericalPhi);
 			double cosPhi = Math.cos(sphericalPhi);
 			
-			double sinRandom = randoms[i][0];
-			double cosRandom = randoms[i][1];
+			double sinRandom = Math.sin(starRotations[i]);
+			double cosRandom = Math.cos(starRotations[i]);
 			
 			// This loop creates the 4 corners of a Star
 			for(int j = 0; j < 4; ++j)
@@ -437,12 +725,12 @@ public abstract class StarData
 				{
 					builder.addVertex((float) (starX + projectedX), (float) (starY + heightProjectionY), (float) (starZ + projectedZ))
 							.setUv( (float) (aLocation + 1) / 2F, (float) (bLocation + 1) / 2F)
-							.setColor((byte) starRGBA[i][0], (byte) starRGBA[i][1], (byte) starRGBA[i][2], alpha);
+							.setColor(red, green, blue, alpha);
 				}
 				else
 				{
 					builder.addVertex((float) (starX + projectedX), (float) (starY + heightProjectionY), (float) (starZ + projectedZ))
-							.setColor((byte) starRGBA[i][0], (byte) starRGBA[i][1], (byte) starRGBA[i][2], alpha);
+							.setColor(red, green, blue, alpha);
 				}
 			}
 		}
@@ -0,0 +1,420 @@
+package net.povstalec.stellarview.client.util;
+
+import com.mojang.serialization.JsonOps;
+import net.minecraft.core.RegistryAccess;
+import net.neoforged.fml.ModList;
+import net.neoforged.fml.loading.FMLPaths;
+import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import net.povstalec.stellarview.common.util.DustCloudInfo;
+import net.povstalec.stellarview.common.util.StarInfo;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.zip.CRC32;
+
+/**
+ * Stores generated Stars and Dust Clouds on disk, so that Star Fields which haven't changed don't need to be generated again after every reload.
+ * Each file starts with a header containing the key of the Star Field it was generated from and a checksum of its contents,
+ * files that don't match either are treated as stale and get regenerated.
+ * Files of Star Fields that aren't part of the current scene are pruned on reload once they're old or the cache grows too large
+ */
+public final class StarDataCache
+{
+	private static final int MAGIC = 0x53565343; // SVSC
+	/**
+	 * Should be increased whenever the file layout or the way Stars and Dust Clouds are generated changes
+	 */
+	private static final int FORMAT_VERSION = 2;
+	
+	private static final int KEY_BYTES = 32;
+	private static final int HEADER_BYTES = Integer.BYTES * 2 + KEY_BYTES + Integer.BYTES * 2 + Long.BYTES;
+	
+	private static final Path CACHE_DIRECTORY = FMLPaths.GAMEDIR.get().resolve(StellarView.MODID).resolve("cache");
+	
+	private static final Duration MAX_AGE = Duration.ofDays(30); // Files not used for this long are removed
+	private static final long MAX_CACHE_BYTES = 512L * 1024 * 1024; // Least recently used files are removed past this size
+	
+	/**
+	 * Creates a key which uniquely describes everything that goes into the generation of a Star Field
+	 * @return Key of the Star Field, or null if it couldn't be created, in which case the Star Field shouldn't be cached
+	 */
+	@Nullable
+	public static byte[] key(StarField starField, StarInfo starInfo, DustCloudInfo dustCloudInfo, DustCloudInfo[] armDustCloudInfo)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			
+			update(digest, "format:" + FORMAT_VERSION);
+			update(digest, "version:" + ModList.get().getModContainerById(StellarView.MODID).map(container -> container.getModInfo().getVersion().toString()).orElse("unknown"));
+			update(digest, "generator:" + (GeneralConfig.legacy_star_generation.get() ? "legacy" : "counter"));
+			update(digest, "star_field:" + StarField.CODEC.encodeStart(JsonOps.INSTANCE, starField).getOrThrow());
+			update(digest, "star_info:" + starInfo.serializeNBT(RegistryAccess.EMPTY));
+			update(digest, "dust_cloud_info:" + dustCloudInfo.serializeNBT(RegistryAccess.EMPTY));
+			
+			for(DustCloudInfo armInfo : armDustCloudInfo)
+			{
+				update(digest, "arm_dust_cloud_info:" + (armInfo == null ? "default" : armInfo.serializeNBT(RegistryAccess.EMPTY)));
+			}
+			
+			return digest.digest();
+		}
+		catch(NoSuchAlgorithmException | IllegalStateException e)
+		{
+			StellarView.LOGGER.warn("Failed to create Star Field cache key", e);
+			return null;
+		}
+	}
+	
+	private static void update(MessageDigest digest, String value)
+	{
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+	
+	//============================================================================================
+	//*******************************************Stars********************************************
+	//============================================================================================
+	
+	@Nullable
+	public static StarData.LOD loadStars(@Nullable byte[] key, StarField.LevelOfDetail levelOfDetail)
+	{
+		if(key == null)
+			return null;
+		
+		ByteBuffer buffer = load(path(key, "stars_" + levelOfDetail.name().toLowerCase()), key);
+		
+		return buffer == null ? null : StarData.LOD.read(buffer);
+	}
+	
+	public static void saveStars(@Nullable byte[] key, StarField.LevelOfDetail levelOfDetail, StarData.LOD lod)
+	{
+		if(key == null)
+			return;
+		
+		ByteBuffer buffer = ByteBuffer.allocate(lod.byteSize()).order(ByteOrder.LITTLE_ENDIAN);
+		lod.write(buffer);
+		
+		save(path(key, "stars_" + levelOfDetail.name().toLowerCase()), key, lod.stars(), buffer.flip());
+	}
+	
+	//============================================================================================
+	//****************************************Dust Clouds*****************************************
+	//============================================================================================
+	
+	@Nullable
+	public static DustCloudData.LOD loadDustClouds(@Nullable byte[] key)
+	{
+		if(key == null)
+			return null;
+		
+		ByteBuffer buffer = load(path(key, "dust_clouds"), key);
+		
+		return buffer == null ? null : DustCloudData.LOD.read(buffer);
+	}
+	
+	public static void saveDustClouds(@Nullable byte[] key, DustCloudData.LOD lod)
+	{
+		if(key == null)
+			return;
+		
+		ByteBuffer buffer = ByteBuffer.allocate(lod.byteSize()).order(ByteOrder.LITTLE_ENDIAN);
+		lod.write(buffer);
+		
+		save(path(key, "dust_clouds"), key, lod.dustClouds(), buffer.flip());
+	}
+	
+	//============================================================================================
+	//*************************************Saving and Loading*************************************
+	//============================================================================================
+	
+	private static Path path(byte[] key, String name)
+	{
+		return CACHE_DIRECTORY.resolve(prefix(key) + "_" + name + ".bin");
+	}
+	
+	private static String prefix(byte[] key)
+	{
+		return HexFormat.of().formatHex(key, 0, 16);
+	}
+	
+	/**
+	 * Reads the cached file into memory and validates its header.
+	 * The file is copied rather than mapped, a mapping would stay open until it's garbage collected and keep the file from being replaced
+	 * @return Buffer positioned at the start of the cached data, or null if there is no valid cached data
+	 */
+	@Nullable
+	private static ByteBuffer load(Path path, byte[] key)
+	{
+		if(!Files.isRegularFile(path))
+			return null;
+		
+		ByteBuffer buffer;
+		try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+		{
+			long size = channel.size();
+			if(size < HEADER_BYTES)
+				return stale(path, "File is too small");
+			if(size > Integer.MAX_VALUE)
+				return stale(path, "File is too large");
+			
+			buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+			while(buffer.hasRemaining())
+			{
+				if(channel.read(buffer) < 0)
+					return stale(path, "File ended early");
+			}
+			buffer.flip();
+			
+			if(buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION)
+				return stale(path, "Unknown format");
+			
+			byte[] fileKey = new byte[KEY_BYTES];
+			buffer.get(fileKey);
+			if(!Arrays.equals(key, fileKey))
+				return stale(path, "Key mismatch");
+			
+			buffer.getInt(); // Element count, only used for debugging
+			int dataBytes = buffer.getInt();
+			long checksum = buffer.getLong();
+			
+			if(dataBytes != size - HEADER_BYTES)
+				return stale(path, "Unexpected size");
+			
+			ByteBuffer data = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+			CRC32 crc = new CRC32();
+			crc.update(data.duplicate());
+			
+			if(crc.getValue() != checksum)
+				return stale(path, "Checksum mismatch");
+			
+			buffer = data;
+		}
+		catch(IOException | RuntimeException e)
+		{
+			StellarView.LOGGER.warn("Failed to read cached Star Field data from " + path, e);
+			return null;
+		}
+		
+		// Marks the file as used, pruning goes by the time it was last modified
+		try
+		{
+			Files.setLastModifiedTime(path, FileTime.from(Instant.now()));
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.debug("Failed to mark Star Field cache " + path + " as used", e);
+		}
+		
+		return buffer;
+	}
+	
+	@Nullable
+	private static ByteBuffer stale(Path path, String reason)
+	{
+		StellarView.LOGGER.debug("Discarding stale Star Field cache " + path + ": " + reason);
+		return null;
+	}
+	
+	/**
+	 * Writes the data into a temporary file first, then moves it in place, so that a crash mid-write can't leave a half-written file behind
+	 */
+	private static void save(Path path, byte[] key, int elements, ByteBuffer data)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(data.duplicate());
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC);
+		header.putInt(FORMAT_VERSION);
+		header.put(key, 0, KEY_BYTES);
+		header.putInt(elements);
+		header.putInt(data.remaining());
+		header.putLong(crc.getValue());
+		header.flip();
+		
+		Path temp = null;
+		boolean moved = false;
+		try
+		{
+			Files.createDirectories(CACHE_DIRECTORY);
+			temp = Files.createTempFile(CACHE_DIRECTORY, path.getFileName().toString(), ".tmp");
+			
+			try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+			{
+				while(header.hasRemaining())
+					channel.write(header);
+				while(data.hasRemaining())
+					channel.write(data);
+			}
+			
+			try
+			{
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch(AtomicMoveNotSupportedException e)
+			{
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.warn("Failed to cache Star Field data to " + path, e);
+		}
+		finally
+		{
+			if(temp != null && !moved)
+				delete(temp);
+		}
+	}
+	
+	private static void delete(Path path)
+	{
+		try
+		{
+			Files.deleteIfExists(path);
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.debug("Failed to delete Star Field cache " + path, e);
+		}
+	}
+	
+	//============================================================================================
+	//******************************************Pruning*******************************************
+	//============================================================================================
+	
+	/**
+	 * Removes cached files which don't belong to any of the Star Fields of the current scene,
+	 * once they haven't been used for a while or the cache has grown past its size limit, least recently used first
+	 * @param keys Keys of the Star Fields of the current scene, their files are always kept
+	 */
+	public static void prune(Collection<byte[]> keys)
+	{
+		if(!Files.isDirectory(CACHE_DIRECTORY))
+			return;
+		
+		HashSet<String> prefixes = new HashSet<String>();
+		for(byte[] key : keys)
+		{
+			prefixes.add(prefix(key));
+		}
+		
+		ArrayList<Path> candidates = new ArrayList<Path>();
+		HashMap<Path, BasicFileAttributes> attributes = new HashMap<Path, BasicFileAttributes>();
+		long totalBytes = 0;
+		
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(CACHE_DIRECTORY))
+		{
+			for(Path path : stream)
+			{
+				BasicFileAttributes fileAttributes;
+				try
+				{
+					fileAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+				}
+				catch(IOException e)
+				{
+					continue; // Most likely a temporary file that was just moved in place
+				}
+				
+				if(!fileAttributes.isRegularFile())
+					continue;
+				
+				totalBytes += fileAttributes.size();
+				
+				String name = path.getFileName().toString();
+				int separator = name.indexOf('_');
+				if(separator >= 0 && prefixes.contains(name.substring(0, separator)))
+					continue;
+				
+				candidates.add(path);
+				attributes.put(path, fileAttributes);
+			}
+		}
+		catch(IOException e)
+		{
+			StellarView.LOGGER.warn("Failed to list the Star Field cache", e);
+			return;
+		}
+		
+		candidates.sort(Comparator.comparing(path -> attributes.get(path).lastModifiedTime()));
+		
+		Instant oldest = Instant.now().minus(MAX_AGE);
+		int pruned = 0;
+		for(Path path : candidates)
+		{
+			BasicFileAttributes fileAttributes = attributes.get(path);
+			if(totalBytes <= MAX_CACHE_BYTES && fileAttributes.lastModifiedTime().toInstant().isAfter(oldest))
+				break; // Everything after this one was used more recently
+			
+			delete(path);
+			totalBytes -= fileAttributes.size();
+			pruned++;
+		}
+		
+		if(pruned > 0)
+			StellarView.LOGGER.info("Pruned " + pruned + " unused Star Field cache files");
+	}
+	
+	//============================================================================================
+	//*******************************************Arrays*******************************************
+	//============================================================================================
+	
+	static void putDoubles(ByteBuffer buffer, double[] array, int count)
+	{
+		buffer.asDoubleBuffer().put(array, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+	}
+	
+	static void getDoubles(ByteBuffer buffer, double[] array, int count)
+	{
+		buffer.asDoubleBuffer().get(array, 0, count);
+		buffer.position(buffer.position() + count * Double.BYTES);
+	}
+	
+	static void putFloats(ByteBuffer buffer, float[] array, int count)
+	{
+		buffer.asFloatBuffer().put(array, 0, count);
+		buffer.position(buffer.position() + count * Float.BYTES);
+	}
+	
+	static void getFloats(ByteBuffer buffer, float[] array, int count)
+	{
+		buffer.asFloatBuffer().get(array, 0, count);
+		buffer.position(buffer.position() + count * Float.BYTES);
+	}
+	
+	static void putInts(ByteBuffer buffer, int[] array, int count)
+	{
+		buffer.asIntBuffer().put(array, 0, count);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+	}
+	
+	static void getInts(ByteBuffer buffer, int[] array, int count)
+	{
+		buffer.asIntBuffer().get(array, 0, count);
+		buffer.position(buffer.position() + count * Integer.BYTES);
+	}
+}
@@ -0,0 +1,56 @@
+package net.povstalec.stellarview.client.util;
+
+import net.povstalec.stellarview.StellarView;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs Star and Dust Cloud generation on worker threads, so that the render thread only has to upload the finished data
+ */
+public final class StarGenerationService
+{
+	private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable ->
+	{
+		Thread thread = new Thread(runnable, "Stellar View Star Generator #" + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MIN_PRIORITY);
+		return thread;
+	});
+	
+	/**
+	 * Schedules generation on one of the worker threads
+	 * @param description What is being generated, used for logging when the generation fails
+	 * @param generator Generates the data, must not touch anything that belongs to the render thread
+	 * @param fallback Used in place of the data when the generation fails, that way the failed generation isn't retried every frame
+	 * @return Future that completes once the data is ready, cancelling it before a worker gets to it skips the generation
+	 */
+	public static <T> CompletableFuture<T> submit(String description, Supplier<T> generator, Supplier<T> fallback)
+	{
+		CompletableFuture<T> future = new CompletableFuture<T>();
+		
+		EXECUTOR.execute(() ->
+		{
+			if(future.isDone())
+				return;
+			
+			try
+			{
+				future.complete(generator.get());
+			}
+			catch(Throwable throwable)
+			{
+				StellarView.LOGGER.error("Failed to generate " + description, throwable);
+				future.complete(fallback.get());
+			}
+		});
+		
+		return future;
+	}
+}
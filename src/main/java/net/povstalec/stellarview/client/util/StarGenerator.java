@@ -0,0 +1,162 @@
+package net.povstalec.stellarview.client.util;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nullable;
+
+import net.povstalec.stellarview.common.config.GeneralConfig;
+
+/**
+ * Hands out the randomness Stars and Dust Clouds are generated from.
+ * By default every Star gets its own generator keyed by the seed, the part of the Star Field it belongs to and its index,
+ * so any Star can be generated on its own and large parts of a Star Field are generated in parallel with the exact same result.
+ * The legacy generator draws everything from a single sequential Random instead, which keeps Star Fields looking the way they always did
+ */
+public final class StarGenerator
+{
+	private static final int CHUNK_SIZE = 4096; // Stars generated by a single parallel task
+	
+	@Nullable
+	private final Random sequential;
+	private final long seed;
+	private final boolean parallel;
+	
+	/**
+	 * Generates a single Star or Dust Cloud
+	 */
+	public interface Element
+	{
+		/**
+		 * May be called from multiple threads at once, but never twice for the same index
+		 * @param index Index of the element within its part of the Star Field
+		 * @param random Random to draw all values of the element from
+		 */
+		void generate(int index, Random random);
+	}
+	
+	private StarGenerator(@Nullable Random sequential, long seed, boolean parallel)
+	{
+		this.sequential = sequential;
+		this.seed = seed;
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * @return Legacy generator if it's enabled in the config, otherwise a parallel counter-based generator
+	 */
+	public static StarGenerator create(long seed)
+	{
+		return GeneralConfig.legacy_star_generation.get() ? legacy(seed) : counter(seed, true);
+	}
+	
+	public static StarGenerator legacy(long seed)
+	{
+		return new StarGenerator(new Random(seed), seed, false);
+	}
+	
+	/**
+	 * @param parallel Whether large parts can be split between multiple threads, which doesn't change the result
+	 */
+	public static StarGenerator counter(long seed, boolean parallel)
+	{
+		return new StarGenerator(null, seed, parallel);
+	}
+	
+	public boolean isLegacy()
+	{
+		return sequential != null;
+	}
+	
+	/**
+	 * Generates all elements of one part of a Star Field
+	 * @param part Part the elements belong to (the field itself or one of its arms), the legacy generator just continues where the previous part left off
+	 * @param count Number of elements in the part
+	 */
+	public void generate(int part, int count, Element element)
+	{
+		if(sequential != null)
+		{
+			for(int i = 0; i < count; i++)
+			{
+				element.generate(i, sequential);
+			}
+			return;
+		}
+		
+		long key = CounterRandom.key(seed, part);
+		int chunks = (count + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		
+		if(!parallel || chunks <= 1)
+			generateChunk(key, 0, count, element);
+		else
+			IntStream.range(0, chunks).parallel().forEach(chunk -> generateChunk(key, chunk * CHUNK_SIZE, Math.min(count, (chunk + 1) * CHUNK_SIZE), element));
+	}
+	
+	private static void generateChunk(long key, int from, int to, Element element)
+	{
+		CounterRandom random = new CounterRandom(key);
+		
+		for(int i = from; i < to; i++)
+		{
+			element.generate(i, random.at(i));
+		}
+	}
+	
+	//============================================================================================
+	//***************************************Counter Random***************************************
+	//============================================================================================
+	
+	/**
+	 * SplitMix64 generator which can jump straight to the values of any element, the values only depend on the key and the index.
+	 * Everything Random offers is built on top of {@link #next(int)}, so the results are the same on every JVM
+	 */
+	public static final class CounterRandom extends Random
+	{
+		private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+		
+		private final long key;
+		private long state;
+		
+		public CounterRandom(long key)
+		{
+			super(0);
+			this.key = key;
+		}
+		
+		public static long key(long seed, int part)
+		{
+			return mix64(mix64(seed) + part);
+		}
+		
+		/**
+		 * Moves the generator to the start of the values of the element
+		 * @return This generator
+		 */
+		public CounterRandom at(long index)
+		{
+			state = mix64(key + index * GOLDEN_GAMMA);
+			return this;
+		}
+		
+		@Override
+		protected int next(int bits)
+		{
+			return (int) (nextLong() >>> (64 - bits));
+		}
+		
+		@Override
+		public long nextLong()
+		{
+			state += GOLDEN_GAMMA;
+			return mix64(state);
+		}
+		
+		private static long mix64(long z)
+		{
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+	}
+}
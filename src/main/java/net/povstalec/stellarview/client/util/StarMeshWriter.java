@@ -0,0 +1,191 @@
+package net.povstalec.stellarview.client.util;
+
+import com.mojang.blaze3d.vertex.VertexFormat;
+import com.mojang.blaze3d.vertex.VertexFormatElement;
+import net.povstalec.stellarview.client.render.shader.StellarViewVertexFormat;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Writes Star and Dust Cloud quads in the STAR_POS_COLOR_LY(_TEX) layout straight into off-heap memory,
+ * which skips all the per-element bookkeeping BufferBuilder does for every vertex.
+ * When instanced, each quad is written as a single STAR_INSTANCE record instead
+ */
+public final class StarMeshWriter implements AutoCloseable
+{
+	private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+	
+	// Corners of a quad, see StarData.LOD.createStaticStar for the explanation
+	private static final float[] A_LOCATIONS = {-1, -1, 1, 1};
+	private static final float[] B_LOCATIONS = {-1, 1, 1, -1};
+	
+	private final VertexFormat format;
+	private final boolean hasTexture;
+	private final boolean instanced;
+	
+	private final int vertexSize;
+	private final int colorOffset;
+	private final int heightWidthSizeOffset;
+	private final int uvOffset;
+	private final int rotationSizeOffset;
+	
+	private ByteBuffer buffer;
+	private long pointer;
+	private int vertices;
+	
+	/**
+	 * @param quads Maximum number of quads that will be written
+	 * @param hasTexture Whether the UV element should be written or not
+	 */
+	public StarMeshWriter(int quads, boolean hasTexture)
+	{
+		this(quads, hasTexture, false);
+	}
+	
+	/**
+	 * @param quads Maximum number of quads that will be written
+	 * @param hasTexture Whether the UV element should be written or not, ignored when instanced since the shader creates the UV
+	 * @param instanced Whether each quad should be written as a single instance rather than 4 vertices
+	 */
+	public StarMeshWriter(int quads, boolean hasTexture, boolean instanced)
+	{
+		if(instanced)
+			this.format = StellarViewVertexFormat.STAR_INSTANCE.get();
+		else
+			this.format = hasTexture ? StellarViewVertexFormat.STAR_POS_COLOR_LY_TEX.get() : StellarViewVertexFormat.STAR_POS_COLOR_LY.get();
+		this.hasTexture = hasTexture && !instanced;
+		this.instanced = instanced;
+		
+		this.vertexSize = format.getVertexSize();
+		this.colorOffset = format.getOffset(VertexFormatElement.COLOR);
+		this.heightWidthSizeOffset = instanced ? -1 : format.getOffset(StellarViewVertexFormat.ELEMENT_HEIGHT_WIDTH_SIZE.get());
+		this.uvOffset = this.hasTexture ? format.getOffset(VertexFormatElement.UV0) : -1;
+		this.rotationSizeOffset = instanced ? format.getOffset(StellarViewVertexFormat.ELEMENT_ROTATION_SIZE.get()) : -1;
+		
+		this.buffer = MemoryUtil.memAlloc(Math.max(quads, 1) * (instanced ? 1 : 4) * vertexSize);
+		this.pointer = MemoryUtil.memAddress(buffer);
+		this.vertices = 0;
+	}
+	
+	/**
+	 * Writes the 4 corners of a single Star or Dust Cloud
+	 * @param rgba Color packed as 0xRRGGBBAA
+	 * @param rotation Rotation angle of the quad in radians
+	 */
+	public void quad(float x, float y, float z, int rgba, float rotation, float size)
+	{
+		if(buffer == null)
+			throw new IllegalStateException("Mesh writer has already been closed");
+		
+		// Color is written as 4 unsigned bytes in RGBA order
+		int color = LITTLE_ENDIAN ? Integer.reverseBytes(rgba) : rgba;
+		
+		if(instanced)
+		{
+			if((vertices + 1) * vertexSize > buffer.capacity())
+				throw new IllegalStateException("Mesh writer is full");
+			
+			MemoryUtil.memPutFloat(pointer, x);
+			MemoryUtil.memPutFloat(pointer + 4, y);
+			MemoryUtil.memPutFloat(pointer + 8, z);
+			
+			MemoryUtil.memPutInt(pointer + colorOffset, color);
+			
+			MemoryUtil.memPutFloat(pointer + rotationSizeOffset, rotation);
+			MemoryUtil.memPutFloat(pointer + rotationSizeOffset + 4, size);
+			
+			pointer += vertexSize;
+			vertices++;
+			return;
+		}
+		
+		if((vertices + 4) * vertexSize > buffer.capacity())
+			throw new IllegalStateException("Mesh writer is full");
+		
+		float sin = (float) Math.sin(rotation);
+		float cos = (float) Math.cos(rotation);
+		
+		for(int j = 0; j < 4; j++)
+		{
+			float aLocation = A_LOCATIONS[j];
+			float bLocation = B_LOCATIONS[j];
+			
+			long vertex = pointer;
+			
+			MemoryUtil.memPutFloat(vertex, x);
+			MemoryUtil.memPutFloat(vertex + 4, y);
+			MemoryUtil.memPutFloat(vertex + 8, z);
+			
+			MemoryUtil.memPutInt(vertex + colorOffset, color);
+			
+			MemoryUtil.memPutFloat(vertex + heightWidthSizeOffset, aLocation * cos - bLocation * sin); // Height
+			MemoryUtil.memPutFloat(vertex + heightWidthSizeOffset + 4, bLocation * cos + aLocation * sin); // Width
+			MemoryUtil.memPutFloat(vertex + heightWidthSizeOffset + 8, size);
+			
+			if(hasTexture)
+			{
+				MemoryUtil.memPutFloat(vertex + uvOffset, (aLocation + 1) / 2F);
+				MemoryUtil.memPutFloat(vertex + uvOffset + 4, (bLocation + 1) / 2F);
+			}
+			
+			pointer += vertexSize;
+		}
+		
+		vertices += 4;
+	}
+	
+	/**
+	 * @return Number of vertices written so far, or the number of instances when instanced
+	 */
+	public int vertices()
+	{
+		return vertices;
+	}
+	
+	public boolean isInstanced()
+	{
+		return instanced;
+	}
+	
+	public VertexFormat format()
+	{
+		return format;
+	}
+	
+	/**
+	 * @return Buffer containing all the vertices written so far
+	 */
+	public ByteBuffer vertexBuffer()
+	{
+		return buffer.limit(vertices * vertexSize);
+	}
+	
+	public void upload(StarBuffer starBuffer)
+	{
+		if(instanced)
+			starBuffer.uploadInstances(vertexBuffer(), format, vertices);
+		else
+			starBuffer.upload(vertexBuffer(), format, VertexFormat.Mode.QUADS, vertices);
+	}
+	
+	public void upload(DustCloudBuffer dustCloudBuffer)
+	{
+		if(instanced)
+			dustCloudBuffer.uploadInstances(vertexBuffer(), format, vertices);
+		else
+			dustCloudBuffer.upload(vertexBuffer(), format, VertexFormat.Mode.QUADS, vertices);
+	}
+	
+	@Override
+	public void close()
+	{
+		if(buffer == null)
+			return;
+		
+		MemoryUtil.memFree(buffer);
+		buffer = null;
+		pointer = 0;
+	}
+}
@@ -20,6 +20,14 @@ public class GeneralConfig
 	
 	public static StellarViewConfigValue.BooleanValue disable_stars;
 	public static StellarViewConfigValue.BooleanValue textured_stars;
+	public static StellarViewConfigValue.BooleanValue instanced_stars;
+	public static StellarViewConfigValue.IntValue upload_budget;
+	public static StellarViewConfigValue.IntValue buffer_memory_budget;
+	public static StellarViewConfigValue.IntValue lod_hysteresis;
+	public static StellarViewConfigValue.IntValue lod_prefetch_time;
+	public static StellarViewConfigValue.BooleanValue pipelined_sky;
+	public static StellarViewConfigValue.BooleanValue legacy_star_generation;
+	public static StellarViewConfigValue.BooleanValue horizon_culling;
 	public static StellarViewConfigValue.BooleanValue light_pollution;
 	public static StellarViewConfigValue.IntValue star_brightness;
 	public static StellarViewConfigValue.IntValue dust_cloud_brightness;
@@ -72,6 +80,38 @@ public class GeneralConfig
 				true,
 				"Enables the use of textures for stars");
 		
+		instanced_stars = new StellarViewConfigValue.BooleanValue(client, "client.instanced_stars",
+				true,
+				"Renders each star and dust cloud as a single instance instead of four vertices, which uses less GPU memory (requires OpenGL 3.3, otherwise the old rendering is used)");
+		
+		upload_budget = new StellarViewConfigValue.IntValue(client, "client.upload_budget",
+				2000, 100, 20000,
+				"Specifies how many microseconds per frame can be spent uploading star and dust cloud buffers, closer star fields are uploaded first");
+		
+		buffer_memory_budget = new StellarViewConfigValue.IntValue(client, "client.buffer_memory_budget",
+				512, 32, 8192,
+				"Specifies how many megabytes of GPU memory star and dust cloud buffers can take up, once they take up more the ones that haven't been rendered for the longest are released");
+		
+		lod_hysteresis = new StellarViewConfigValue.IntValue(client, "client.lod_hysteresis",
+				10, 0, 50,
+				"Specifies by how many percent the distance has to go past a level of detail threshold before star fields switch to the other level of detail");
+		
+		lod_prefetch_time = new StellarViewConfigValue.IntValue(client, "client.lod_prefetch_time",
+				3, 0, 30,
+				"Specifies how many seconds ahead star fields start preparing their closer level of detail when the camera is approaching them, 0 disables it");
+		
+		pipelined_sky = new StellarViewConfigValue.BooleanValue(client, "client.pipelined_sky",
+				false,
+				"Calculates the positions of sky objects and the space regions in view for the next frame in the background while the current frame is rendered, sky objects can lag up to one frame behind");
+		
+		legacy_star_generation = new StellarViewConfigValue.BooleanValue(client, "client.legacy_star_generation",
+				false,
+				"Generates stars and dust clouds one after another the way older versions did, which keeps star fields looking exactly like they used to but prevents generating them in parallel. Takes effect once resources are reloaded");
+		
+		horizon_culling = new StellarViewConfigValue.BooleanValue(client, "client.horizon_culling",
+				false,
+				"Skips rendering stars and dust clouds that are well below the horizon, where they are usually hidden by the ground. Only applies to view centers that create a horizon");
+		
 		light_pollution = new StellarViewConfigValue.BooleanValue(client, "client.light_pollution",
 				true,
 				"Makes sky objects dimmer when the player is near a light source");
@@ -4,9 +4,15 @@ import net.minecraft.client.Minecraft;
 import net.neoforged.api.distmarker.Dist;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.common.EventBusSubscriber;
+import net.neoforged.neoforge.client.event.ClientPlayerNetworkEvent;
+import net.neoforged.neoforge.client.event.CustomizeGuiOverlayEvent;
 import net.neoforged.neoforge.client.event.InputEvent;
 import net.povstalec.stellarview.StellarView;
+import net.povstalec.stellarview.client.render.BufferResidency;
+import net.povstalec.stellarview.client.render.BufferUploadScheduler;
+import net.povstalec.stellarview.client.render.SkyFramePipeline;
 import net.povstalec.stellarview.client.screens.config.ConfigScreen;
+import net.povstalec.stellarview.client.util.LevelOfDetailController;
 import net.povstalec.stellarview.common.util.KeyBindings;
 
 @EventBusSubscriber(modid = StellarView.MODID, value = Dist.CLIENT)
@@ -20,4 +26,28 @@ public class EventInit
 		if(KeyBindings.OPEN_CONFIG_KEY.consumeClick())
 			minecraft.setScreen(new ConfigScreen(null));
 	}
+	
+	@SubscribeEvent
+	public static void onLoggingOut(ClientPlayerNetworkEvent.LoggingOut event)
+	{
+		// Nothing is drawn until another world is joined, by which point the closest buffers are uploaded again
+		BufferUploadScheduler.clear();
+		BufferResidency.releaseAll();
+	}
+	
+	@SubscribeEvent
+	public static void onDebugText(CustomizeGuiOverlayEvent.DebugText event)
+	{
+		if(!minecraft.getDebugOverlay().showDebugScreen())
+			return;
+		
+		event.getRight().add("");
+		event.getRight().add("Stellar View buffers: " + BufferResidency.liveBuffers() + ", " + BufferResidency.liveBytes() / 1048576 + "/" + BufferResidency.budget() / 1048576 + " MB, "
+				+ BufferResidency.totalEvictions() + " evicted");
+		event.getRight().add("Stellar View uploads: " + BufferUploadScheduler.lastUploads() + " of " + BufferUploadScheduler.queueDepth() + " queued");
+		event.getRight().add("Stellar View LODs: " + LevelOfDetailController.totalTransitions() + " transitions, "
+				+ LevelOfDetailController.totalPrefetchHits() + "/" + LevelOfDetailController.totalPrefetches() + " prefetches hit");
+		if(SkyFramePipeline.isEnabled())
+			event.getRight().add("Stellar View pipeline: " + SkyFramePipeline.totalAdopted() + "/" + SkyFramePipeline.totalPrepared() + " prepared frames used");
+	}
 }
@@ -0,0 +1,66 @@
+package net.povstalec.stellarview.common.util;
+
+import net.minecraft.resources.ResourceLocation;
+
+/**
+ * Area of a texture the UVs of a Texture Layer get mapped into, which is either a region of a Celestial Atlas page or a whole standalone texture
+ */
+public final class AtlasSprite
+{
+	private final ResourceLocation texture;
+	
+	private final float u0;
+	private final float v0;
+	private final float u1;
+	private final float v1;
+	
+	public AtlasSprite(ResourceLocation texture, float u0, float v0, float u1, float v1)
+	{
+		this.texture = texture;
+		
+		this.u0 = u0;
+		this.v0 = v0;
+		this.u1 = u1;
+		this.v1 = v1;
+	}
+	
+	/**
+	 * @return Sprite covering the whole texture, used for textures that aren't part of an atlas
+	 */
+	public static AtlasSprite whole(ResourceLocation texture)
+	{
+		return new AtlasSprite(texture, 0, 0, 1, 1);
+	}
+	
+	/**
+	 * @return Texture the sprite is on
+	 */
+	public ResourceLocation texture()
+	{
+		return texture;
+	}
+	
+	/**
+	 * @param u U coordinate within the original texture
+	 * @return U coordinate within the texture the sprite is on
+	 */
+	public float u(float u)
+	{
+		return u0 + (u1 - u0) * u;
+	}
+	
+	/**
+	 * @param v V coordinate within the original texture
+	 * @return V coordinate within the texture the sprite is on
+	 */
+	public float v(float v)
+	{
+		return v0 + (v1 - v0) * v;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return texture.toString() + " [" + u0 + ", " + v0 + " - " + u1 + ", " + v1 + "]";
+	}
+}
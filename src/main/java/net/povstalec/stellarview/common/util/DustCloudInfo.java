@@ -11,6 +11,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
+import javax.annotation.Nullable;
+
 public class DustCloudInfo implements INBTSerializable<CompoundTag>
 {
 	public static final String DUST_CLOUD_TYPES = "dust_cloud_types";
@@ -18,6 +20,8 @@ public class DustCloudInfo implements INBTSerializable<CompoundTag>
 	
 	private ArrayList<DustCloudType> dustCloudTypes;
 	private int totalWeight = 0;
+	@Nullable
+	private WeightedSampler<DustCloudType> sampler; // Null if there are no types to pick from
 	
 	public static final DustCloudType WHITE_DUST_CLOUD = new DustCloudType(new Color.IntRGB(107, 107, 107), 2.0F, 7.0F, (short) 255, (short) 255, 1);
 	public static final List<DustCloudType> DEFAULT_DUST_CLOUDS = Arrays.asList(WHITE_DUST_CLOUD);
@@ -33,6 +37,8 @@ public class DustCloudInfo implements INBTSerializable<CompoundTag>
 	{
 		this.dustCloudTypes = new ArrayList<DustCloudType>(dustCloudTypes);
 		this.totalWeight = totalWeight;
+		
+		setupSampler();
 	}
 	
 	public DustCloudInfo(List<DustCloudType> dustCloudTypes)
@@ -43,24 +49,22 @@ public class DustCloudInfo implements INBTSerializable<CompoundTag>
 		{
 			this.totalWeight += dustCloudType.getWeight();
 		}
+		
+		setupSampler();
+	}
+	
+	private void setupSampler()
+	{
+		// Draws include the total weight itself
+		this.sampler = dustCloudTypes.isEmpty() ? null : new WeightedSampler<DustCloudType>(dustCloudTypes, DustCloudType::getWeight, totalWeight + 1);
 	}
 	
 	public DustCloudType getRandomDustCloudType(Random random)
 	{
-		if(dustCloudTypes.isEmpty())
+		if(sampler == null)
 			return WHITE_DUST_CLOUD;
 		
-		int i = 0;
-		
-		for(int weight = random.nextInt(0, totalWeight + 1); i < dustCloudTypes.size() - 1; i++)
-		{
-			weight -= dustCloudTypes.get(i).getWeight();
-			
-			if(weight <= 0)
-				break;
-		}
-		
-		return dustCloudTypes.get(i);
+		return sampler.sample(random);
 	}
 	
 	//============================================================================================
@@ -98,6 +102,8 @@ public class DustCloudInfo implements INBTSerializable<CompoundTag>
 		}
 		
 		totalWeight = tag.getInt(TOTAL_WEIGHT);
+		
+		setupSampler();
 	}
 	
 	
@@ -0,0 +1,217 @@
+package net.povstalec.stellarview.common.util;
+
+import net.povstalec.stellarview.client.resourcepack.ViewCenter;
+import net.povstalec.stellarview.common.config.GeneralConfig;
+import org.joml.Vector3d;
+import org.joml.Vector3f;
+
+/**
+ * Mutable counterpart of {@link SpaceCoords}, meant to be reused for the coordinate math that happens every frame.
+ * Every operation changes the coordinates in place and returns them, so a chain of operations doesn't allocate anything.
+ * Light years and kilometers are kept apart the same way {@link SpaceCoords.SpaceDistance} keeps them
+ */
+public class MutableSpaceCoords
+{
+	private long lyX;
+	private long lyY;
+	private long lyZ;
+	
+	private double kmX;
+	private double kmY;
+	private double kmZ;
+	
+	public MutableSpaceCoords() {}
+	
+	public MutableSpaceCoords(SpaceCoords coords)
+	{
+		set(coords);
+	}
+	
+	public MutableSpaceCoords set(SpaceCoords coords)
+	{
+		return set(coords.x().ly(), coords.y().ly(), coords.z().ly(), coords.x().km(), coords.y().km(), coords.z().km());
+	}
+	
+	public MutableSpaceCoords set(MutableSpaceCoords coords)
+	{
+		return set(coords.lyX, coords.lyY, coords.lyZ, coords.kmX, coords.kmY, coords.kmZ);
+	}
+	
+	public MutableSpaceCoords set(long lyX, long lyY, long lyZ, double kmX, double kmY, double kmZ)
+	{
+		this.lyX = lyX;
+		this.lyY = lyY;
+		this.lyZ = lyZ;
+		
+		this.kmX = kmX;
+		this.kmY = kmY;
+		this.kmZ = kmZ;
+		
+		handleKmOverflow();
+		
+		return this;
+	}
+	
+	// Moves whole light years from kilometers to light years, just like SpaceDistance does
+	private void handleKmOverflow()
+	{
+		if(kmX >= SpaceCoords.KM_PER_LY || kmX <= -SpaceCoords.KM_PER_LY)
+		{
+			long additionalLightYears = SpaceCoords.SpaceDistance.kmToLy(kmX);
+			lyX += additionalLightYears;
+			kmX -= SpaceCoords.SpaceDistance.lyToKm(additionalLightYears);
+		}
+		
+		if(kmY >= SpaceCoords.KM_PER_LY || kmY <= -SpaceCoords.KM_PER_LY)
+		{
+			long additionalLightYears = SpaceCoords.SpaceDistance.kmToLy(kmY);
+			lyY += additionalLightYears;
+			kmY -= SpaceCoords.SpaceDistance.lyToKm(additionalLightYears);
+		}
+		
+		if(kmZ >= SpaceCoords.KM_PER_LY || kmZ <= -SpaceCoords.KM_PER_LY)
+		{
+			long additionalLightYears = SpaceCoords.SpaceDistance.kmToLy(kmZ);
+			lyZ += additionalLightYears;
+			kmZ -= SpaceCoords.SpaceDistance.lyToKm(additionalLightYears);
+		}
+	}
+	
+	//============================================================================================
+	//*****************************************Arithmetic*****************************************
+	//============================================================================================
+	
+	public MutableSpaceCoords add(SpaceCoords other)
+	{
+		return set(lyX + other.x().ly(), lyY + other.y().ly(), lyZ + other.z().ly(), kmX + other.x().km(), kmY + other.y().km(), kmZ + other.z().km());
+	}
+	
+	public MutableSpaceCoords add(MutableSpaceCoords other)
+	{
+		return set(lyX + other.lyX, lyY + other.lyY, lyZ + other.lyZ, kmX + other.kmX, kmY + other.kmY, kmZ + other.kmZ);
+	}
+	
+	public MutableSpaceCoords add(long x, long y, long z)
+	{
+		return set(lyX + x, lyY + y, lyZ + z, kmX, kmY, kmZ);
+	}
+	
+	public MutableSpaceCoords add(Vector3f vector)
+	{
+		return set(lyX, lyY, lyZ, kmX + vector.x, kmY + vector.y, kmZ + vector.z);
+	}
+	
+	public MutableSpaceCoords sub(SpaceCoords other)
+	{
+		return set(lyX - other.x().ly(), lyY - other.y().ly(), lyZ - other.z().ly(), kmX - other.x().km(), kmY - other.y().km(), kmZ - other.z().km());
+	}
+	
+	public MutableSpaceCoords sub(MutableSpaceCoords other)
+	{
+		return set(lyX - other.lyX, lyY - other.lyY, lyZ - other.lyZ, kmX - other.kmX, kmY - other.kmY, kmZ - other.kmZ);
+	}
+	
+	public MutableSpaceCoords sub(Vector3f vector)
+	{
+		return set(lyX, lyY, lyZ, kmX - vector.x, kmY - vector.y, kmZ - vector.z);
+	}
+	
+	//============================================================================================
+	//************************************Relative coordinates************************************
+	//============================================================================================
+	
+	public long lyDistanceSquared()
+	{
+		return lyX * lyX + lyY * lyY + lyZ * lyZ;
+	}
+	
+	/**
+	 * Writes the position of these coordinates relative to the other coordinates into the vector
+	 * @param other The coordinates the position is relative to
+	 * @param dest Vector the relative position is written into, in kilometers
+	 * @return The dest vector
+	 */
+	public Vector3d relativeKm(MutableSpaceCoords other, Vector3d dest)
+	{
+		// Light years and kilometers are subtracted separately, so that nearby objects far away from the center don't lose their precision
+		return dest.set((kmX - other.kmX) + SpaceCoords.SpaceDistance.lyToKm(lyX - other.lyX),
+				(kmY - other.kmY) + SpaceCoords.SpaceDistance.lyToKm(lyY - other.lyY),
+				(kmZ - other.kmZ) + SpaceCoords.SpaceDistance.lyToKm(lyZ - other.lyZ));
+	}
+	
+	/**
+	 * Allocation-free version of {@link SpaceCoords#skyPosition(net.minecraft.client.multiplayer.ClientLevel, ViewCenter, float, boolean)}
+	 * @param viewCenter The View Center these coordinates are viewed from
+	 * @param adjustForRotation Whether the rotation of the View Center should be applied
+	 * @param dest Vector the position on the sky is written into, in kilometers
+	 * @return The dest vector, which can be turned into {@link SphericalCoords} with {@link SphericalCoords#set(Vector3d)}
+	 */
+	public Vector3d skyPosition(ViewCenter viewCenter, boolean adjustForRotation, Vector3d dest)
+	{
+		relativeKm(viewCenter.getMutableCoords(), dest);
+		
+		// Inverse rotation, so that the world is viewed through the relative rotation of the View Center
+		if(adjustForRotation && !GeneralConfig.disable_view_center_rotation.get())
+			viewCenter.getObjectAxisRotation().quaterniond().transformInverse(dest);
+		
+		return dest;
+	}
+	
+	/**
+	 * Float version of {@link #skyPosition(ViewCenter, boolean, Vector3d)}, the subtraction itself is still done with full precision
+	 */
+	public Vector3f skyPosition(ViewCenter viewCenter, boolean adjustForRotation, Vector3d temp, Vector3f dest)
+	{
+		skyPosition(viewCenter, adjustForRotation, temp);
+		
+		return dest.set((float) temp.x, (float) temp.y, (float) temp.z);
+	}
+	
+	//============================================================================================
+	//************************************Getters and Setters*************************************
+	//============================================================================================
+	
+	public long lyX()
+	{
+		return lyX;
+	}
+	
+	public long lyY()
+	{
+		return lyY;
+	}
+	
+	public long lyZ()
+	{
+		return lyZ;
+	}
+	
+	public double kmX()
+	{
+		return kmX;
+	}
+	
+	public double kmY()
+	{
+		return kmY;
+	}
+	
+	public double kmZ()
+	{
+		return kmZ;
+	}
+	
+	/**
+	 * @return Immutable copy of these coordinates
+	 */
+	public SpaceCoords toSpaceCoords()
+	{
+		return new SpaceCoords(lyX, lyY, lyZ, kmX, kmY, kmZ);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "( x: [ly: " + lyX + ", km: " + kmX + "], y: [ly: " + lyY + ", km: " + kmY + "], z: [ly: " + lyZ + ", km: " + kmZ + "] )";
+	}
+}
@@ -292,7 +292,7 @@ public class SpaceCoords implements INBTSerializable<CompoundTag>
 				double subKm = this.km - lyToKm(additionalLightYears);
 				
 				this.ly += additionalLightYears;
-				this.km -= subKm;
+				this.km = subKm;
 			}
 		}
 		
@@ -9,6 +9,11 @@ public class SphericalCoords
 	public double theta;
 	public double phi;
 	
+	public SphericalCoords()
+	{
+		this(0, 0, 0);
+	}
+	
 	public SphericalCoords(double r, double theta, double phi)
 	{
 		this.r = r;
@@ -44,6 +49,19 @@ public class SphericalCoords
 		this.phi = sphericalPhi(cartesianCoords);
 	}
 	
+	/**
+	 * Sets these Spherical Coords from Cartesian coordinates without creating a new object
+	 * @return These Spherical Coords
+	 */
+	public SphericalCoords set(Vector3d cartesianCoords)
+	{
+		this.r = sphericalR(cartesianCoords);
+		this.theta = sphericalTheta(cartesianCoords);
+		this.phi = sphericalPhi(cartesianCoords);
+		
+		return this;
+	}
+	
 	public Vector3f toCartesianF()
 	{
 		return new Vector3f((float) cartesianX(this), (float) cartesianY(this), (float) cartesianZ(this));
@@ -10,6 +10,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
+import javax.annotation.Nullable;
+
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.povstalec.stellarview.StellarView;
@@ -32,6 +34,14 @@ public class StarInfo implements INBTSerializable<CompoundTag>
 	private int lod2Weight = 0;
 	private int lod3Weight = 0;
 	
+	// Built whenever the types change, null if there are no types to pick from
+	@Nullable
+	private WeightedSampler<StarLike.StarType> lod1Sampler;
+	@Nullable
+	private WeightedSampler<StarLike.StarType> lod2Sampler;
+	@Nullable
+	private WeightedSampler<StarLike.StarType> lod3Sampler;
+	
 	public static final StarLike.StarType WHITE_STAR = new StarLike.StarType(new Color.IntRGB(255, 255, 255), 0.15F, 0.25F, (short) 100, (short) 255, 6000000, 1);
 	public static final List<StarLike.StarType> DEFAULT_STARS = Arrays.asList(WHITE_STAR);
 	public static final StarInfo DEFAULT_STAR_INFO = new StarInfo(DEFAULT_STARS);
@@ -68,6 +78,8 @@ public class StarInfo implements INBTSerializable<CompoundTag>
 					break;
 			}
 		}
+		
+		setupSamplers();
 	}
 	
 	public StarInfo(List<StarLike.StarType> lod1Types, List<StarLike.StarType> lod2Types, List<StarLike.StarType> lod3Types, int lod1Weight, int lod2Weight, int lod3Weight)
@@ -82,38 +94,47 @@ public class StarInfo implements INBTSerializable<CompoundTag>
 		this.lod1Weight = lod1Weight;
 		this.lod2Weight = lod2Weight;
 		this.lod3Weight = lod3Weight;
+		
+		setupSamplers();
 	}
 	
-	private StarLike.StarType randomStarType(ArrayList<StarLike.StarType> lodTypes, int totalWeight, Random random)
+	private void setupSamplers()
+	{
+		this.lod1Sampler = sampler(lod1Types, lod1Weight);
+		this.lod2Sampler = sampler(lod2Types, lod2Weight);
+		this.lod3Sampler = sampler(lod3Types, lod3Weight);
+	}
+	
+	@Nullable
+	private static WeightedSampler<StarLike.StarType> sampler(@Nullable ArrayList<StarLike.StarType> lodTypes, int totalWeight)
 	{
 		if(lodTypes == null || lodTypes.isEmpty())
-			return WHITE_STAR;
+			return null;
 		
-		int i = 0;
-		for(int weight = random.nextInt(0, totalWeight); i < lodTypes.size() - 1; i++)
-		{
-			weight -= lodTypes.get(i).getWeight();
-			
-			if(weight <= 0)
-				break;
-		}
+		return new WeightedSampler<StarLike.StarType>(lodTypes, StarLike.StarType::getWeight, totalWeight);
+	}
+	
+	private static StarLike.StarType randomStarType(@Nullable WeightedSampler<StarLike.StarType> sampler, Random random)
+	{
+		if(sampler == null)
+			return WHITE_STAR;
 		
-		return lodTypes.get(i);
+		return sampler.sample(random);
 	}
 	
 	public StarLike.StarType randomLOD1StarType(Random random)
 	{
-		return randomStarType(lod1Types, lod1Weight, random);
+		return randomStarType(lod1Sampler, random);
 	}
 	
 	public StarLike.StarType randomLOD2StarType(Random random)
 	{
-		return randomStarType(lod2Types, lod2Weight, random);
+		return randomStarType(lod2Sampler, random);
 	}
 	
 	public StarLike.StarType randomLOD3StarType(Random random)
 	{
-		return randomStarType(lod3Types, lod3Weight, random);
+		return randomStarType(lod3Sampler, random);
 	}
 	
 	public int totalWeight()
@@ -200,5 +221,7 @@ public class StarInfo implements INBTSerializable<CompoundTag>
 		this.lod1Weight = tag.getInt(LOD1_WEIGHT);
 		this.lod2Weight = tag.getInt(LOD2_WEIGHT);
 		this.lod3Weight = tag.getInt(LOD3_WEIGHT);
+		
+		setupSamplers();
 	}
 }
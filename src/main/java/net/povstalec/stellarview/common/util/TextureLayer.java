@@ -8,6 +8,8 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.resources.ResourceLocation;
 import net.neoforged.neoforge.common.util.INBTSerializable;
 
+import javax.annotation.Nullable;
+
 public class TextureLayer implements INBTSerializable<CompoundTag>
 {
 	public static final String TEXTURE = "texture";
@@ -38,6 +40,10 @@ public class TextureLayer implements INBTSerializable<CompoundTag>
 	
 	private UV.Quad uv;
 	
+	// Filled in once the Celestial Atlas is built
+	@Nullable
+	private AtlasSprite sprite;
+	
 	public static final Codec<TextureLayer> CODEC = RecordCodecBuilder.create(instance -> instance.group(
 			ResourceLocation.CODEC.fieldOf(TEXTURE).forGetter(TextureLayer::texture),
 			Color.FloatRGBA.INT_CODEC.fieldOf(RGBA).forGetter(TextureLayer::rgba),
@@ -122,6 +128,22 @@ public class TextureLayer implements INBTSerializable<CompoundTag>
 		return uv;
 	}
 	
+	/**
+	 * @return Sprite the texture was stitched into, or the whole texture if it isn't part of an atlas
+	 */
+	public AtlasSprite sprite()
+	{
+		if(sprite == null)
+			sprite = AtlasSprite.whole(texture);
+		
+		return sprite;
+	}
+	
+	public void setSprite(@Nullable AtlasSprite sprite)
+	{
+		this.sprite = sprite;
+	}
+	
 	@Override
 	public String toString()
 	{
@@ -171,5 +193,6 @@ public class TextureLayer implements INBTSerializable<CompoundTag>
 		
 		this.rotation = tag.getDouble(ROTATION);
 		this.uv = UV.Quad.deserialize(tag.getCompound(UV_QUAD));
+		this.sprite = null;
 	}
 }
@@ -0,0 +1,88 @@
+package net.povstalec.stellarview.common.util;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.ToIntFunction;
+
+/**
+ * Picks one of several weighted elements, built once for a list of elements so that each pick takes constant time on average.
+ * A pick draws a single number between 0 and the bound and maps it to the same element that walking the list and subtracting
+ * the weights from the number would, so anything generated with the same seed stays exactly the same.
+ * The draw is looked up in a guide table that points at the first element each part of the range can map to,
+ * which leaves at most a few comparisons per pick no matter how many elements there are
+ */
+public final class WeightedSampler<T>
+{
+	private final Object[] elements;
+	private final long[] thresholds; // Largest draw that still maps to each element, always increasing
+	private final int[] guide; // First element each of the equally wide parts of the range can map to
+	private final int bound;
+	
+	/**
+	 * @param elements Elements to pick from, must not be empty
+	 * @param weight Weight of an element
+	 * @param bound Draws are made between 0 (inclusive) and the bound (exclusive), usually the total weight of the elements
+	 */
+	public WeightedSampler(List<T> elements, ToIntFunction<T> weight, int bound)
+	{
+		int size = elements.size();
+		
+		this.elements = elements.toArray();
+		this.thresholds = new long[size];
+		this.bound = bound;
+		
+		long prefix = 0;
+		long threshold = Long.MIN_VALUE;
+		for(int i = 0; i < size - 1; i++)
+		{
+			prefix += weight.applyAsInt(elements.get(i));
+			threshold = Math.max(threshold, prefix); // The first element whose prefix reaches the draw is picked, so a smaller prefix later on never is
+			thresholds[i] = threshold;
+		}
+		thresholds[size - 1] = Long.MAX_VALUE; // Everything left over goes to the last element
+		
+		this.guide = new int[bound > 0 ? size : 0];
+		int i = 0;
+		for(int part = 0; part < guide.length; part++)
+		{
+			// Smallest draw that falls into this part
+			long start = ((long) part * bound + guide.length - 1) / guide.length;
+			while(thresholds[i] < start)
+			{
+				i++;
+			}
+			guide[part] = i;
+		}
+	}
+	
+	public int size()
+	{
+		return elements.length;
+	}
+	
+	public int bound()
+	{
+		return bound;
+	}
+	
+	/**
+	 * @param draw Number between 0 (inclusive) and the bound (exclusive)
+	 * @return Index of the element the draw maps to
+	 */
+	public int index(int draw)
+	{
+		int i = guide[(int) ((long) draw * guide.length / bound)];
+		while(thresholds[i] < draw)
+		{
+			i++;
+		}
+		
+		return i;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public T sample(Random random)
+	{
+		return (T) elements[index(random.nextInt(0, bound))];
+	}
+}
@@ -0,0 +1,79 @@
+package net.povstalec.stellarview.client.render;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Draws a test scene of 100 Star Fields through a Draw Batch, every twentieth of them with the textured star shader.
+ * Each Star Field still takes a draw of its own, only the shader setups between them are saved
+ */
+public class DrawBatchTest
+{
+	private static final int STAR_FIELDS = 100;
+	
+	@Test
+	public void setsUpEachShaderOncePerBatch()
+	{
+		Scene scene = new Scene();
+		scene.draw(0);
+		
+		assertEquals(STAR_FIELDS, scene.batch.draws());
+		assertEquals(10, scene.batch.setups()); // The plain shader before each textured Star Field, the textured one for each of them
+		assertClearedOncePerSetup(scene);
+	}
+	
+	@Test
+	public void interruptionsEndTheBatch()
+	{
+		Scene scene = new Scene();
+		scene.draw(10);
+		
+		assertEquals(STAR_FIELDS, scene.batch.draws());
+		assertEquals(15, scene.batch.setups()); // Five of the interruptions don't fall right after a textured Star Field
+		assertClearedOncePerSetup(scene);
+	}
+	
+	private static void assertClearedOncePerSetup(Scene scene)
+	{
+		assertEquals(scene.batch.setups(), scene.shader.setups + scene.texturedShader.setups);
+		assertEquals(scene.batch.setups(), scene.shader.clears + scene.texturedShader.clears);
+	}
+	
+	private static class Scene
+	{
+		private final FakeShader shader = new FakeShader();
+		private final FakeShader texturedShader = new FakeShader();
+		private final DrawBatch<FakeShader> batch = new DrawBatch<FakeShader>(FakeShader::clear);
+		
+		/**
+		 * @param interruptEvery Star Fields drawn before something else is drawn, 0 if nothing else is
+		 */
+		private void draw(int interruptEvery)
+		{
+			for(int i = 0; i < STAR_FIELDS; i++)
+			{
+				FakeShader starShader = i % 20 == 19 ? texturedShader : shader;
+				
+				if(batch.draw(starShader))
+					starShader.setups++;
+				
+				if(interruptEvery > 0 && i % interruptEvery == interruptEvery - 1)
+					batch.end(); // Sprites or a static sky buffer drawn with another shader
+			}
+			
+			batch.end(); // End of the space pass
+		}
+	}
+	
+	private static class FakeShader
+	{
+		private int setups = 0;
+		private int clears = 0;
+		
+		private void clear()
+		{
+			clears++;
+		}
+	}
+}
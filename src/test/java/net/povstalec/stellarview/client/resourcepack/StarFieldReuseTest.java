@@ -0,0 +1,140 @@
+package net.povstalec.stellarview.client.resourcepack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.minecraft.resources.ResourceLocation;
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.benchmark.BenchmarkConfig;
+import net.povstalec.stellarview.benchmark.StarGenerationBenchmark;
+import net.povstalec.stellarview.benchmark.StarInfoBenchmark;
+import net.povstalec.stellarview.client.render.BufferResidency;
+import net.povstalec.stellarview.client.render.space_objects.SpaceObjectRenderer;
+import net.povstalec.stellarview.client.util.StarData;
+
+/**
+ * Reloads a scene over and over, with half of its Star Fields keeping their definition each time,
+ * and makes sure the buffers of the previous Star Fields that weren't taken over are released
+ */
+public class StarFieldReuseTest
+{
+	private static final int STAR_FIELDS = 16;
+	private static final int RELOADS = 10;
+	private static final long BYTES_PER_BUFFER = 1024L;
+	
+	@BeforeEach
+	public void setup()
+	{
+		BenchmarkConfig.load();
+		BufferResidency.releaseAll();
+	}
+	
+	@AfterEach
+	public void tearDown()
+	{
+		BufferResidency.releaseAll();
+	}
+	
+	@Test
+	public void reloadsOnlyKeepReusedBuffers()
+	{
+		HashMap<ResourceLocation, SpaceObjectRenderer<?>> previousObjects = scene(0, true);
+		render(previousObjects);
+		assertEquals(STAR_FIELDS, BufferResidency.liveBuffers());
+		
+		for(int reload = 1; reload <= RELOADS; reload++)
+		{
+			HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects = scene(reload, true);
+			
+			assertEquals(STAR_FIELDS / 2, ResourcepackReloadListener.ReloadListener.reuseStarFields(previousObjects, spaceObjects));
+			assertEquals(STAR_FIELDS / 2, BufferResidency.liveBuffers(), "Reload " + reload + " left the buffers of replaced Star Fields behind");
+			
+			render(spaceObjects);
+			assertEquals(STAR_FIELDS, BufferResidency.liveBuffers());
+			
+			previousObjects = spaceObjects;
+		}
+	}
+	
+	@Test
+	public void cancelledReloadReleasesAllBuffers()
+	{
+		HashMap<ResourceLocation, SpaceObjectRenderer<?>> previousObjects = scene(0, true);
+		render(previousObjects);
+		
+		// A cancelled Space Renderer reload never sets up the new Star Fields, so none of them have a cache key
+		assertEquals(0, ResourcepackReloadListener.ReloadListener.reuseStarFields(previousObjects, scene(1, false)));
+		assertEquals(0, BufferResidency.liveBuffers());
+		assertEquals(0, BufferResidency.liveBytes());
+	}
+	
+	/**
+	 * Even Star Fields keep the same definition across reloads, odd ones get a new one with every reload
+	 */
+	private static HashMap<ResourceLocation, SpaceObjectRenderer<?>> scene(int reload, boolean setUp)
+	{
+		HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects = new HashMap<>();
+		
+		for(int i = 0; i < STAR_FIELDS; i++)
+		{
+			byte[] cacheKey = setUp ? new byte[] {(byte) i, (byte) (i % 2 == 0 ? 0 : reload)} : null;
+			spaceObjects.put(ResourceLocation.fromNamespaceAndPath("stellarview", "star_field_" + i), new ReloadedStarFieldRenderer(cacheKey));
+		}
+		
+		return spaceObjects;
+	}
+	
+	private static void render(HashMap<ResourceLocation, SpaceObjectRenderer<?>> spaceObjects)
+	{
+		for(SpaceObjectRenderer<?> spaceObject : spaceObjects.values())
+		{
+			((ReloadedStarFieldRenderer) spaceObject).upload();
+		}
+	}
+	
+	/**
+	 * Star Field with a cache key of its own, whose Stars are uploaded on demand
+	 */
+	private static class ReloadedStarFieldRenderer extends StarGenerationBenchmark.BenchmarkStarFieldRenderer
+	{
+		public ReloadedStarFieldRenderer(byte[] cacheKey)
+		{
+			super(StarGenerationBenchmark.starField(), StarInfoBenchmark.starInfo());
+			
+			this.cacheKey = cacheKey;
+			this.starData = new UploadedStarData();
+		}
+		
+		/**
+		 * Uploads the Stars unless they're already on the GPU, like rendering the Star Field would
+		 */
+		public void upload()
+		{
+			((UploadedStarData) starData).upload();
+		}
+	}
+	
+	/**
+	 * There's no GL context to upload to, so uploading only tracks the buffer.
+	 * Releasing it is left to Star Data, the same as for a real buffer
+	 */
+	private static class UploadedStarData extends StarData
+	{
+		public void upload()
+		{
+			if(!residency().isResident())
+				BufferResidency.track(residency(), BYTES_PER_BUFFER, this::reset);
+		}
+		
+		@Override
+		protected LOD newStars(StarField.LevelOfDetail levelOfDetail)
+		{
+			return new LOD(0);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package net.povstalec.stellarview.client.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import net.povstalec.stellarview.api.common.space_objects.resourcepack.StarField;
+import net.povstalec.stellarview.benchmark.BenchmarkConfig;
+import net.povstalec.stellarview.benchmark.StarGenerationBenchmark;
+import net.povstalec.stellarview.benchmark.StarInfoBenchmark;
+
+/**
+ * The counter-based generator has to produce the exact same Stars no matter how the work is split between threads
+ */
+public class StarGeneratorTest
+{
+	private static StarGenerationBenchmark.BenchmarkStarFieldRenderer renderer;
+	
+	@BeforeAll
+	public static void setup()
+	{
+		BenchmarkConfig.load();
+		
+		renderer = new StarGenerationBenchmark.BenchmarkStarFieldRenderer(StarGenerationBenchmark.starField(), StarInfoBenchmark.starInfo());
+	}
+	
+	@ParameterizedTest
+	@EnumSource(StarField.LevelOfDetail.class)
+	public void parallelMatchesSerial(StarField.LevelOfDetail levelOfDetail)
+	{
+		byte[] serial = bytes(generateLOD(levelOfDetail, StarGenerator.counter(StarGenerationBenchmark.SEED, false)));
+		byte[] parallel = bytes(generateLOD(levelOfDetail, StarGenerator.counter(StarGenerationBenchmark.SEED, true)));
+		
+		assertArrayEquals(serial, parallel, "Stars generated in parallel differ from the ones generated serially");
+	}
+	
+	private static StarData.LOD generateLOD(StarField.LevelOfDetail levelOfDetail, StarGenerator generator)
+	{
+		StarData.LOD lod = new StarData.LOD(renderer.fieldStars(levelOfDetail) + renderer.armStars(levelOfDetail, 0) + renderer.armStars(levelOfDetail, 1));
+		renderer.generateStars(lod, levelOfDetail, generator);
+		renderer.generateArmStars(lod, levelOfDetail, generator, 0);
+		renderer.generateArmStars(lod, levelOfDetail, generator, 1);
+		
+		return lod;
+	}
+	
+	private static byte[] bytes(StarData.LOD lod)
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(lod.byteSize());
+		lod.write(buffer);
+		
+		return buffer.array();
+	}
+}
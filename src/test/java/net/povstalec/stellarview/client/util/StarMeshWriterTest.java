@@ -0,0 +1,32 @@
+package net.povstalec.stellarview.client.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.mojang.blaze3d.vertex.MeshData;
+
+import net.povstalec.stellarview.benchmark.StarMeshBenchmark;
+
+/**
+ * The Star Mesh Writer replaced the Buffer Builder Star Data used to build its meshes with,
+ * so both have to write the same number of vertices and bytes for the same Stars
+ */
+public class StarMeshWriterTest
+{
+	@ParameterizedTest
+	@ValueSource(booleans = {false, true})
+	public void matchesBufferBuilder(boolean hasTexture)
+	{
+		StarMeshBenchmark meshes = new StarMeshBenchmark();
+		meshes.hasTexture = hasTexture;
+		meshes.setup();
+		
+		try(StarMeshWriter writer = meshes.buildWithStarMeshWriter(); MeshData mesh = meshes.buildWithBufferBuilder())
+		{
+			assertEquals(mesh.drawState().vertexCount(), writer.vertices(), "Star Mesh Writer wrote a different number of vertices");
+			assertEquals(mesh.vertexBuffer().remaining(), writer.vertexBuffer().remaining(), "Star Mesh Writer wrote a different number of bytes");
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package net.povstalec.stellarview.common.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * The Weighted Sampler has to pick the same element the linear scan Star Infos used to do for every possible draw,
+ * otherwise Star Fields generated from the same seed would change
+ */
+public class WeightedSamplerTest
+{
+	@ParameterizedTest
+	@ValueSource(ints = {1, 6, 60, 600})
+	public void matchesLinearScan(int elements)
+	{
+		Random random = new Random(elements);
+		
+		List<Integer> weights = new ArrayList<Integer>();
+		int totalWeight = 0;
+		for(int i = 0; i < elements; i++)
+		{
+			// Mostly light weights with the occasional heavy one, similar to packs that have a few common and many rare spectral classes
+			int weight = random.nextInt(10) == 0 ? random.nextInt(50, 200) : random.nextInt(1, 10);
+			
+			weights.add(weight);
+			totalWeight += weight;
+		}
+		
+		assertMatchesLinearScan(weights, totalWeight);
+	}
+	
+	@Test
+	public void matchesLinearScanWithZeroWeights()
+	{
+		assertMatchesLinearScan(List.of(0, 5, 0, 0, 3, 0), 8);
+	}
+	
+	@Test
+	public void matchesLinearScanWithLargerBound()
+	{
+		// Dust Cloud Infos draw up to their total weight inclusive
+		assertMatchesLinearScan(List.of(4, 1, 7), 13);
+	}
+	
+	private static void assertMatchesLinearScan(List<Integer> weights, int bound)
+	{
+		WeightedSampler<Integer> sampler = new WeightedSampler<Integer>(weights, Integer::intValue, bound);
+		
+		for(int draw = 0; draw < bound; draw++)
+		{
+			assertEquals(linearIndex(weights, draw), sampler.index(draw), "Draw " + draw + " picked the wrong element");
+		}
+	}
+	
+	/**
+	 * Walks the elements and subtracts their weights from the draw until it runs out, the way Star Infos used to pick a Star Type
+	 */
+	private static int linearIndex(List<Integer> weights, int draw)
+	{
+		int i = 0;
+		for(int weight = draw; i < weights.size() - 1; i++)
+		{
+			weight -= weights.get(i);
+			
+			if(weight <= 0)
+				break;
+		}
+		
+		return i;
+	}
+}